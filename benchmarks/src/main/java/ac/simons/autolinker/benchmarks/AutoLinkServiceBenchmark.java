@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ac.simons.autolinker.AutoLinkEntity;
+import ac.simons.autolinker.AutoLinkService;
+import ac.simons.autolinker.CombinedAutoLinker;
+import ac.simons.autolinker.EmailAddressAutoLinker;
+import ac.simons.autolinker.IncrementalLinker;
+import ac.simons.autolinker.LinkingSession;
+import ac.simons.autolinker.PersistentAutoLinkCache;
+import ac.simons.autolinker.TwitterUserAutoLinker;
+import ac.simons.autolinker.UrlAutoLinker;
+
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the full {@link AutoLinkService} with all built-in autolinkers,
+ * including parsing the input and serializing the result.
+ *
+ * @author Michael J. Simons
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutoLinkServiceBenchmark {
+
+	@Param
+	private Corpus corpus;
+
+	private AutoLinkService autoLinkService;
+
+	private AutoLinkService combinedAutoLinkService;
+
+	private String text;
+
+	private byte[] utf8Text;
+
+	private IncrementalLinker incrementalLinker;
+
+	private String editedText;
+
+	private boolean edited;
+
+	private PersistentAutoLinkCache persistentCache;
+
+	private AutoLinkService persistentlyCachedAutoLinkService;
+
+	private LinkingSession session;
+
+	@Setup
+	public void setup() throws IOException {
+		this.autoLinkService = new AutoLinkService(List.of(
+			new EmailAddressAutoLinker(true, true),
+			new TwitterUserAutoLinker(),
+			new UrlAutoLinker(30)
+		));
+		this.combinedAutoLinkService = new AutoLinkService(List.of(new CombinedAutoLinker(List.of(
+			new EmailAddressAutoLinker(true, true),
+			new TwitterUserAutoLinker(),
+			new UrlAutoLinker(30)
+		))));
+		this.text = corpus.getText();
+		this.utf8Text = text.getBytes(StandardCharsets.UTF_8);
+		this.incrementalLinker = autoLinkService.newIncrementalLinker();
+		this.editedText = text + "<p>Edited by @rotnroll666</p>";
+		final Path cacheFile = Files.createTempFile("autolinker", ".cache");
+		Files.delete(cacheFile);
+		this.persistentCache = PersistentAutoLinkCache.open(cacheFile, 16, Math.max(256, 8 * text.length() + 1024), "benchmark");
+		this.persistentlyCachedAutoLinkService = autoLinkService.withPersistentCache(persistentCache);
+		this.session = autoLinkService.newSession();
+	}
+
+	@Benchmark
+	public String addLinks() {
+		return autoLinkService.addLinks(text, null);
+	}
+
+	@Benchmark
+	public StringWriter addLinksToWriter() throws IOException {
+		final StringWriter target = new StringWriter(text.length() * 2);
+		autoLinkService.addLinks(text, null, target);
+		return target;
+	}
+
+	@Benchmark
+	public String addLinksIncrementally() {
+		edited = !edited;
+		return incrementalLinker.addLinks(edited ? editedText : text, null);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		persistentCache.close();
+		Files.delete(persistentCache.getFile());
+	}
+
+	@Benchmark
+	public String addLinksWithPersistentCache() {
+		return persistentlyCachedAutoLinkService.addLinks(text, null);
+	}
+
+	@Benchmark
+	public String addLinksCombined() {
+		return combinedAutoLinkService.addLinks(text, null);
+	}
+
+	@Benchmark
+	public String addLinksToPlainText() {
+		return autoLinkService.addLinksToPlainText(text);
+	}
+
+	@Benchmark
+	public String addLinksToPlainTextWithSession() {
+		return session.addLinksToPlainText(text);
+	}
+
+	@Benchmark
+	public List<AutoLinkEntity> extractEntities() {
+		return autoLinkService.extractEntities(text);
+	}
+
+	@Benchmark
+	public List<AutoLinkEntity> extractEntitiesWithSession() {
+		return session.extractEntities(text);
+	}
+
+	@Benchmark
+	public String addLinksToStream() throws IOException {
+		final StringWriter target = new StringWriter(text.length() * 2);
+		autoLinkService.addLinksToStream(new StringReader(text), target);
+		return target.toString();
+	}
+
+	@Benchmark
+	public ByteBuffer addLinksToUtf8() {
+		return autoLinkService.addLinksToUtf8(utf8Text, ByteBuffer.allocate(utf8Text.length * 2));
+	}
+
+	@Benchmark
+	public Document addLinksToDocument() {
+		return autoLinkService.addLinks(text, null, Document.class);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ac.simons.autolinker.AutoLinker;
+import ac.simons.autolinker.CashtagAutoLinker;
+import ac.simons.autolinker.CombinedAutoLinker;
+import ac.simons.autolinker.EmailAddressAutoLinker;
+import ac.simons.autolinker.HashtagAutoLinker;
+import ac.simons.autolinker.TwitterUserAutoLinker;
+import ac.simons.autolinker.UrlAutoLinker;
+
+import org.jsoup.nodes.TextNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures a single {@link AutoLinker} on all text nodes of a corpus, without
+ * parsing or serializing any html.
+ *
+ * @author Michael J. Simons
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutoLinkerBenchmark {
+
+	/**
+	 * The autolinkers under test.
+	 */
+	public enum Linker {
+		URL {
+			@Override
+			AutoLinker create() {
+				return new UrlAutoLinker(30);
+			}
+		},
+		URL_SCANNER {
+			@Override
+			AutoLinker create() {
+				return new UrlAutoLinker(30, UrlAutoLinker.Engine.SCANNER);
+			}
+		},
+		EMAIL {
+			@Override
+			AutoLinker create() {
+				return new EmailAddressAutoLinker(true, true);
+			}
+		},
+		TWITTER_USER {
+			@Override
+			AutoLinker create() {
+				return new TwitterUserAutoLinker();
+			}
+		},
+		HASHTAG {
+			@Override
+			AutoLinker create() {
+				return new HashtagAutoLinker();
+			}
+		},
+		CASHTAG {
+			@Override
+			AutoLinker create() {
+				return new CashtagAutoLinker();
+			}
+		},
+		/**
+		 * Mentions, hashtags and cashtags in one pass.
+		 */
+		TWITTER_ENTITIES {
+			@Override
+			AutoLinker create() {
+				return new CombinedAutoLinker(List.of(new TwitterUserAutoLinker(), new HashtagAutoLinker(), new CashtagAutoLinker()));
+			}
+		};
+
+		abstract AutoLinker create();
+	}
+
+	@Param
+	private Linker linker;
+
+	@Param
+	private Corpus corpus;
+
+	private AutoLinker autoLinker;
+
+	private List<TextNode> textNodes;
+
+	@Setup
+	public void setup() {
+		this.autoLinker = linker.create();
+		this.textNodes = corpus.getTextNodes();
+	}
+
+	@Benchmark
+	public void createLinks(final Blackhole blackhole) {
+		for (TextNode textNode : textNodes) {
+			blackhole.consume(autoLinker.createLinks(textNode));
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import ac.simons.autolinker.AutoLinkMetrics;
+import ac.simons.autolinker.AutoLinkService;
+import ac.simons.autolinker.EmailAddressAutoLinker;
+import ac.simons.autolinker.TwitterUserAutoLinker;
+import ac.simons.autolinker.UrlAutoLinker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of one {@link AutoLinkService} shared by all
+ * benchmark threads. Compare the single threaded results with the ones on
+ * all cores: As a service doesn't synchronize on anything, throughput
+ * should grow with the number of cores. The variant with metrics shows the
+ * cost of a listener shared by all threads.
+ *
+ * @author Michael J. Simons
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentAutoLinkServiceBenchmark {
+
+	@Param
+	private Corpus corpus;
+
+	private AutoLinkService autoLinkService;
+
+	private AutoLinkService autoLinkServiceWithMetrics;
+
+	private String text;
+
+	@Setup
+	public void setup() {
+		final AutoLinkService.Builder builder = AutoLinkService.builder()
+			.autoLinker(new EmailAddressAutoLinker(true, true))
+			.autoLinker(new TwitterUserAutoLinker())
+			.autoLinker(new UrlAutoLinker(30));
+		this.autoLinkService = builder.build();
+		this.autoLinkServiceWithMetrics = builder.listener(new AutoLinkMetrics()).build();
+		this.text = corpus.getText();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String addLinksSingleThreaded() {
+		return autoLinkService.addLinks(text, null);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public String addLinksOnAllCores() {
+		return autoLinkService.addLinks(text, null);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public String addLinksWithMetricsOnAllCores() {
+		return autoLinkServiceWithMetrics.addLinks(text, null);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String addLinksToPlainTextSingleThreaded() {
+		return autoLinkService.addLinksToPlainText(text);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public String addLinksToPlainTextOnAllCores() {
+		return autoLinkService.addLinksToPlainText(text);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+/**
+ * The texts the benchmarks run over. Each corpus resembles a class of input
+ * we see in production: short chat messages and tweets, long blog posts with
+ * markup, texts full of links and plain prose without any linkable content.
+ *
+ * @author Michael J. Simons
+ */
+public enum Corpus {
+
+	/**
+	 * A tweet sized message with one mention and one url.
+	 */
+	TWEET("@rotnroll666 just pushed the new release to https://github.com/michael-simons/java-autolinker, have a look!"),
+
+	/**
+	 * A long html post with paragraphs, lists, existing anchors and some
+	 * linkable content in between.
+	 */
+	LONG_HTML(longHtml()),
+
+	/**
+	 * A text that consists mostly of urls, email addresses and mentions.
+	 */
+	LINK_DENSE(linkDense()),
+
+	/**
+	 * Prose without anything to link.
+	 */
+	LINK_FREE(linkFree());
+
+	private final String text;
+
+	Corpus(final String text) {
+		this.text = text;
+	}
+
+	/**
+	 * @return The raw text of this corpus
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Parses the text of this corpus like the AutoLinkService would do and
+	 * returns all text nodes. The nodes are detached copies, so they can be
+	 * handed to an autolinker again and again.
+	 *
+	 * @return All text nodes of this corpus
+	 */
+	public List<TextNode> getTextNodes() {
+		final List<TextNode> rv = new ArrayList<>();
+		NodeTraversor.traverse(new NodeVisitor() {
+			@Override
+			public void head(final Node node, final int depth) {
+				if (node instanceof TextNode) {
+					rv.add(new TextNode(((TextNode) node).getWholeText()));
+				}
+			}
+
+			@Override
+			public void tail(final Node node, final int depth) {
+			}
+		}, Jsoup.parseBodyFragment(text).body());
+		return rv;
+	}
+
+	private static String longHtml() {
+		final StringBuilder rv = new StringBuilder();
+		for (int i = 0; i < 25; ++i) {
+			rv
+				.append("<h2>Chapter ").append(i).append("</h2>")
+				.append("<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit. Sed do eiusmod tempor incididunt ut labore et dolore magna aliqua. ")
+				.append("Ut enim ad minim veniam, quis nostrud exercitation ullamco laboris nisi ut aliquip ex ea commodo consequat. ")
+				.append("See <a href=\"http://planet-punk.de\">my old blog</a> or www.michael-simons.eu for details.</p>")
+				.append("<ul><li>Duis aute irure dolor in reprehenderit</li><li>in voluptate velit esse cillum dolore</li>")
+				.append("<li>contact me at michael@simons.ac or ping @rotnroll666</li></ul>")
+				.append("<p>Excepteur sint occaecat cupidatat non proident, sunt in culpa qui officia deserunt mollit anim id est laborum. ")
+				.append("Wikipedia has more: https://en.wikipedia.org/wiki/Primer_(film) and so on.</p>")
+				.append("<blockquote><p>Nemo enim ipsam voluptatem quia voluptas sit aspernatur aut odit aut fugit.</p></blockquote>");
+		}
+		return rv.toString();
+	}
+
+	private static String linkDense() {
+		final StringBuilder rv = new StringBuilder();
+		for (int i = 0; i < 20; ++i) {
+			rv
+				.append("http://example.com/").append(i).append(" ")
+				.append("www.test").append(i).append(".de ")
+				.append("user").append(i).append("@example.org ")
+				.append("@user").append(i).append(" ")
+				.append("https://dailyfratze.de/app/tags/CoStarring/Anton?page=").append(i).append("#taggedPictures ");
+		}
+		return rv.toString().trim();
+	}
+
+	private static String linkFree() {
+		final StringBuilder rv = new StringBuilder();
+		for (int i = 0; i < 20; ++i) {
+			rv.append("Sed ut perspiciatis unde omnis iste natus error sit voluptatem accusantium doloremque laudantium, ")
+				.append("totam rem aperiam eaque ipsa quae ab illo inventore veritatis et quasi architecto beatae vitae dicta sunt explicabo ");
+		}
+		return rv.toString().trim();
+	}
+}
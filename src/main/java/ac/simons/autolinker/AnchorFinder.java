@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+/**
+ * Finds the links of an autolinker by their offsets and writes them as html
+ * anchors, without creating any nodes or strings, or creates the anchor
+ * elements or entities. Writing the anchors gives the same result as writing the elements
+ * with {@link HtmlWriter}. Instances are reusable but not thread safe.
+ *
+ * @author Michael J. Simons
+ */
+interface AnchorFinder {
+
+	/**
+	 * Starts looking for links in a new text.
+	 *
+	 * @param text The text to look at
+	 */
+	void reset(CharSequence text);
+
+	/**
+	 * Looks for the next link, starting after the end of the previous one.
+	 *
+	 * @return True if a link was found
+	 */
+	boolean find();
+
+	/**
+	 * @return End of the text in front of the current link, exclusive
+	 */
+	int textEnd();
+
+	/**
+	 * @return End of the current link, exclusive
+	 */
+	int end();
+
+	/**
+	 * Writes the current link as an anchor.
+	 *
+	 * @param target The target to write to
+	 */
+	void writeAnchor(StringBuilder target);
+
+	/**
+	 * Stores the offsets of the current link, so that its anchor can be
+	 * written or created later on. The start of the span is
+	 * {@link #textEnd()}, the end is {@link #end()}.
+	 *
+	 * @param span The span to store the offsets in
+	 */
+	void capture(LinkSpan span);
+
+	/**
+	 * Writes the anchor of a link captured since the last reset.
+	 *
+	 * @param span   The captured link
+	 * @param target The target to write to
+	 */
+	void writeAnchor(LinkSpan span, StringBuilder target);
+
+	/**
+	 * Creates the anchor element of a link captured since the last reset.
+	 *
+	 * @param span    The captured link
+	 * @param baseUri The base uri of the new element
+	 * @return A new anchor element
+	 */
+	Element createAnchor(LinkSpan span, String baseUri);
+
+	/**
+	 * Creates the entity of a link captured since the last reset, without
+	 * creating an anchor.
+	 *
+	 * @param span   The captured link
+	 * @param offset Offset of the text this finder looks at in the text the
+	 *               entity is reported for
+	 * @return A new entity
+	 */
+	AutoLinkEntity createEntity(LinkSpan span, int offset);
+
+	/**
+	 * Finds all links in a text node and creates the nodes as described in
+	 * {@link AutoLinker#createLinks(org.jsoup.nodes.TextNode)}.
+	 *
+	 * @param textNode The text node which may contain linkable texts
+	 * @return The new node list created from {@code textNode}
+	 */
+	default List<Node> createLinks(final TextNode textNode) {
+		final String nodeText = textNode.getWholeText();
+		final String baseUri = textNode.baseUri();
+		final LinkSpan span = new LinkSpan();
+		final List<Node> rv = new ArrayList<>();
+
+		int position = 0;
+		reset(AutoLinkBudget.guard(nodeText));
+		while (find()) {
+			capture(span);
+			// Add a new textnode for everything before the link
+			if (span.getStart() > position) {
+				rv.add(new TextNode(nodeText.substring(position, span.getStart())));
+			}
+			rv.add(createAnchor(span, baseUri));
+			position = span.getEnd();
+		}
+		// Keep the original node if there is nothing to link
+		if (rv.isEmpty()) {
+			return List.of(textNode);
+		}
+
+		// Add a new textnode for everything after
+		if (position < nodeText.length()) {
+			rv.add(new TextNode(nodeText.substring(position)));
+		}
+		return rv;
+	}
+
+	/**
+	 * Creates a finder for one of the autolinkers of this library.
+	 *
+	 * @param autoLinker The autolinker to create a finder for
+	 * @return A new finder or {@literal null} if {@code autoLinker} has none
+	 */
+	static AnchorFinder of(final AutoLinker autoLinker) {
+		if (autoLinker instanceof UrlAutoLinker) {
+			return ((UrlAutoLinker) autoLinker).newAnchorFinder();
+		} else if (autoLinker instanceof EmailAddressAutoLinker) {
+			return ((EmailAddressAutoLinker) autoLinker).newAnchorFinder();
+		} else if (autoLinker instanceof TwitterUserAutoLinker) {
+			return ((TwitterUserAutoLinker) autoLinker).newAnchorFinder();
+		} else if (autoLinker instanceof HashtagAutoLinker) {
+			return ((HashtagAutoLinker) autoLinker).newAnchorFinder();
+		} else if (autoLinker instanceof CashtagAutoLinker) {
+			return ((CashtagAutoLinker) autoLinker).newAnchorFinder();
+		} else if (autoLinker instanceof CombinedAutoLinker) {
+			return ((CombinedAutoLinker) autoLinker).newAnchorFinder();
+		}
+		return null;
+	}
+}
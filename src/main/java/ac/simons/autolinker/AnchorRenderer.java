@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Tag;
+
+/**
+ * Renders the anchors of the autolinkers of this library. The href, title
+ * and label of an anchor are given by the autolinker, a renderer adds
+ * additional attributes to all anchors, for example
+ * {@code rel="nofollow"}. The html of the additional attributes is prepared
+ * once, not for every anchor.
+ * <br>
+ * Instances are immutable, start with {@link #defaults()} and add
+ * attributes to that.
+ *
+ * @author Michael J. Simons
+ */
+public final class AnchorRenderer {
+
+	/**
+	 * The tag of all anchors created, looked up only once.
+	 */
+	private static final Tag ANCHOR = Tag.valueOf("a");
+
+	private static final Pattern VALID_ATTRIBUTE_NAME = Pattern.compile("[a-zA-Z_:][-a-zA-Z0-9_:.]*");
+
+	private static final AnchorRenderer DEFAULTS = new AnchorRenderer(Map.of());
+
+	private final Map<String, String> attributes;
+
+	/**
+	 * The additional attributes as html, including a leading space.
+	 */
+	private final String attributesHtml;
+
+	private AnchorRenderer(final Map<String, String> attributes) {
+		this.attributes = attributes;
+		final StringBuilder html = new StringBuilder();
+		attributes.forEach((name, value) -> {
+			html.append(' ').append(name).append("=\"");
+			HtmlWriter.escape(value, html, true);
+			html.append('"');
+		});
+		this.attributesHtml = html.toString();
+	}
+
+	/**
+	 * @return A renderer that renders anchors without additional attributes
+	 */
+	public static AnchorRenderer defaults() {
+		return DEFAULTS;
+	}
+
+	/**
+	 * Creates a new renderer that adds an attribute to all anchors. An
+	 * attribute with the same name is replaced.
+	 *
+	 * @param name  The name of the attribute, {@code href} and {@code title}
+	 *              are given by the autolinkers
+	 * @param value The value of the attribute
+	 * @return A new renderer
+	 */
+	public AnchorRenderer withAttribute(final String name, final String value) {
+		if (!VALID_ATTRIBUTE_NAME.matcher(name).matches()) {
+			throw new IllegalArgumentException("Invalid attribute name '" + name + "'");
+		}
+		if ("href".equalsIgnoreCase(name) || "title".equalsIgnoreCase(name)) {
+			throw new IllegalArgumentException("Attribute '" + name + "' is given by the autolinkers");
+		}
+		if (value == null) {
+			throw new IllegalArgumentException("Attribute value must not be null");
+		}
+		final Map<String, String> newAttributes = new LinkedHashMap<>(attributes);
+		newAttributes.put(name, value);
+		return new AnchorRenderer(Collections.unmodifiableMap(newAttributes));
+	}
+
+	/**
+	 * @return The additional attributes in the order they are rendered
+	 */
+	public Map<String, String> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Creates a new anchor element with the additional attributes following
+	 * the href.
+	 *
+	 * @param baseUri The base uri of the new element
+	 * @param href    The href of the anchor
+	 * @param title   An optional title
+	 * @param label   The label of the anchor
+	 * @return A new anchor element
+	 */
+	Element createAnchor(final String baseUri, final String href, final String title, final String label) {
+		final Element rv = new Element(ANCHOR, baseUri);
+		rv.attr("href", href);
+		if (title != null) {
+			rv.attr("title", title);
+		}
+		attributes.forEach(rv::attr);
+		rv.appendText(label);
+		return rv;
+	}
+
+	/**
+	 * Writes the additional attributes and closes the start tag of an
+	 * anchor.
+	 *
+	 * @param target The target to write to
+	 */
+	void closeStartTag(final StringBuilder target) {
+		target.append(attributesHtml).append('>');
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.time.Duration;
+
+/**
+ * Limits the work an {@link AutoLinkService} spends on a single document and
+ * on a single text node, see
+ * {@link AutoLinkService#withBudget(ac.simons.autolinker.AutoLinkBudget)}.
+ * The budget is enforced while matching: The autolinkers of this library
+ * match against a {@link #guard(java.lang.CharSequence) guarded} text, that
+ * counts each character access as one step and checks the clock every now
+ * and then. A text node for which the budget runs out is left unlinked,
+ * once the budget of a document runs out, all remaining text nodes are left
+ * unlinked. Both is reported to the
+ * {@link AutoLinkListener#budgetExceeded(ac.simons.autolinker.AutoLinkBudget.Scope) listener}.
+ * <br>
+ * Some inputs, like long quoted strings in email addresses, don't take long
+ * but overflow the stack of the regex engine. Those text nodes are left
+ * unlinked and reported as over the budget of a text node, too.
+ * <br>
+ * Instances are immutable, start with {@link #unlimited()} and restrict
+ * that.
+ *
+ * @author Michael J. Simons
+ */
+public final class AutoLinkBudget {
+
+	/**
+	 * What a budget applies to.
+	 */
+	public enum Scope {
+		/**
+		 * A whole document, plain text or stream.
+		 */
+		DOCUMENT,
+		/**
+		 * A single text node.
+		 */
+		TEXT_NODE
+	}
+
+	private static final AutoLinkBudget UNLIMITED = new AutoLinkBudget(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+	private final long nanosPerDocument;
+
+	private final long nanosPerTextNode;
+
+	private final long stepsPerTextNode;
+
+	private AutoLinkBudget(final long nanosPerDocument, final long nanosPerTextNode, final long stepsPerTextNode) {
+		this.nanosPerDocument = nanosPerDocument;
+		this.nanosPerTextNode = nanosPerTextNode;
+		this.stepsPerTextNode = stepsPerTextNode;
+	}
+
+	/**
+	 * @return A budget without any limits
+	 */
+	public static AutoLinkBudget unlimited() {
+		return UNLIMITED;
+	}
+
+	/**
+	 * @param maximumTime Maximum time spent linking a document
+	 * @return A new budget
+	 */
+	public AutoLinkBudget withTimePerDocument(final Duration maximumTime) {
+		return new AutoLinkBudget(toPositiveNanos(maximumTime), nanosPerTextNode, stepsPerTextNode);
+	}
+
+	/**
+	 * @param maximumTime Maximum time spent linking a single text node
+	 * @return A new budget
+	 */
+	public AutoLinkBudget withTimePerTextNode(final Duration maximumTime) {
+		return new AutoLinkBudget(nanosPerDocument, toPositiveNanos(maximumTime), stepsPerTextNode);
+	}
+
+	/**
+	 * @param maximumSteps Maximum number of character accesses while
+	 *                     matching a single text node, summed over all
+	 *                     autolinkers
+	 * @return A new budget
+	 */
+	public AutoLinkBudget withStepsPerTextNode(final long maximumSteps) {
+		if (maximumSteps <= 0) {
+			throw new IllegalArgumentException("The maximum number of steps must be positive");
+		}
+		return new AutoLinkBudget(nanosPerDocument, nanosPerTextNode, maximumSteps);
+	}
+
+	/**
+	 * Wraps {@code text} so that each character access counts against the
+	 * budget of the current text node. Custom autolinkers can use this to
+	 * make their matching budget aware. The text is returned as is if no
+	 * budget is in effect on the current thread.
+	 *
+	 * @param text The text to guard
+	 * @return A guarded text
+	 */
+	public static CharSequence guard(final CharSequence text) {
+		return BudgetTracker.guard(text);
+	}
+
+	long getNanosPerDocument() {
+		return nanosPerDocument;
+	}
+
+	long getNanosPerTextNode() {
+		return nanosPerTextNode;
+	}
+
+	long getStepsPerTextNode() {
+		return stepsPerTextNode;
+	}
+
+	private static long toPositiveNanos(final Duration duration) {
+		if (duration.isNegative() || duration.isZero()) {
+			throw new IllegalArgumentException("The maximum time must be positive");
+		}
+		return duration.toNanos();
+	}
+}
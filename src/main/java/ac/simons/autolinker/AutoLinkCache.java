@@ -0,0 +1,276 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+/**
+ * A cache for the {@link AutoLinkService}, see
+ * {@link AutoLinkService#withCache(ac.simons.autolinker.AutoLinkCache)}. The
+ * cache has two tiers, both are bounded and evict the least recently used
+ * entries:
+ * <ul>
+ * <li>Results: The linked output of whole texts, keyed by text, base url and
+ * the configured autolinkers</li>
+ * <li>Fragments: The nodes created from single text nodes, keyed by the
+ * content of the text node. This tier catches repeated paragraphs in
+ * otherwise different documents. Cached nodes are copied on every hit.</li>
+ * </ul>
+ * A cache can be safely shared between threads and between services, the
+ * autolinkers of a service are part of all keys.
+ *
+ * @author Michael J. Simons
+ */
+public final class AutoLinkCache {
+
+	private static final int KIND_HTML = 0;
+	private static final int KIND_PLAIN_TEXT = 1;
+	private static final int KIND_FRAGMENT = 2;
+
+	/**
+	 * Cached for text nodes in which nothing has been linked.
+	 */
+	private static final List<Node> UNCHANGED = List.of();
+
+	private final LruCache<Key, String> results;
+
+	private final LruCache<Key, List<Node>> fragments;
+
+	/**
+	 * Creates a new cache. Each tier can be disabled by setting its maximum
+	 * size to 0.
+	 *
+	 * @param maximumResults   Maximum number of cached results
+	 * @param maximumFragments Maximum number of cached fragments
+	 */
+	public AutoLinkCache(final int maximumResults, final int maximumFragments) {
+		if (maximumResults < 0 || maximumFragments < 0) {
+			throw new IllegalArgumentException("Maximum sizes must not be negative");
+		}
+		this.results = maximumResults == 0 ? null : new LruCache<>(maximumResults);
+		this.fragments = maximumFragments == 0 ? null : new LruCache<>(maximumFragments);
+	}
+
+	/**
+	 * @return Statistics of the result tier
+	 */
+	public Statistics getResultStatistics() {
+		return results == null ? Statistics.EMPTY : results.getStatistics();
+	}
+
+	/**
+	 * @return Statistics of the fragment tier
+	 */
+	public Statistics getFragmentStatistics() {
+		return fragments == null ? Statistics.EMPTY : fragments.getStatistics();
+	}
+
+	/**
+	 * Removes all entries from both tiers.
+	 */
+	public void clear() {
+		if (results != null) {
+			results.clear();
+		}
+		if (fragments != null) {
+			fragments.clear();
+		}
+	}
+
+	String getHtml(final List<AutoLinker> autoLinkers, final String text, final String baseUrl) {
+		return results == null ? null : results.get(new Key(autoLinkers, KIND_HTML, text, baseUrl));
+	}
+
+	void putHtml(final List<AutoLinker> autoLinkers, final String text, final String baseUrl, final String html) {
+		if (results != null) {
+			results.put(new Key(autoLinkers, KIND_HTML, text, baseUrl), html);
+		}
+	}
+
+	String getPlainText(final List<AutoLinker> autoLinkers, final String text) {
+		return results == null ? null : results.get(new Key(autoLinkers, KIND_PLAIN_TEXT, text, null));
+	}
+
+	void putPlainText(final List<AutoLinker> autoLinkers, final String text, final String html) {
+		if (results != null) {
+			results.put(new Key(autoLinkers, KIND_PLAIN_TEXT, text, null), html);
+		}
+	}
+
+	/**
+	 * Runs the autolinkers on a text node or takes the nodes from the
+	 * fragment tier.
+	 *
+	 * @param autoLinkers The autolinkers to apply
+	 * @param textNode    The text node which may contain linkable texts
+	 * @param listener    An optional listener
+	 * @return The new node list created from {@code textNode}
+	 */
+	List<Node> createLinks(final List<AutoLinker> autoLinkers, final TextNode textNode, final AutoLinkListener listener) {
+		if (fragments == null || !isCandidate(autoLinkers, textNode.getWholeText())) {
+			return AutoLinkService.createLinks(autoLinkers, textNode, listener);
+		}
+		final Key key = new Key(autoLinkers, KIND_FRAGMENT, textNode.getWholeText(), textNode.baseUri());
+		final List<Node> cached = fragments.get(key);
+		if (cached != null && listener != null) {
+			listener.textNodeVisited(false);
+		}
+		if (cached == UNCHANGED) {
+			return List.of(textNode);
+		} else if (cached != null) {
+			return copy(cached);
+		}
+
+		final List<Node> rv = AutoLinkService.createLinks(autoLinkers, textNode, listener);
+		fragments.put(key, rv.size() == 1 && rv.get(0) == textNode ? UNCHANGED : copy(rv));
+		return rv;
+	}
+
+	/**
+	 * Text nodes that no autolinker is interested in are not worth caching.
+	 */
+	private static boolean isCandidate(final List<AutoLinker> autoLinkers, final String text) {
+		for (AutoLinker autoLinker : autoLinkers) {
+			if (autoLinker.isCandidate(text)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<Node> copy(final List<Node> nodes) {
+		final List<Node> rv = new ArrayList<>(nodes.size());
+		for (Node node : nodes) {
+			rv.add(node.clone());
+		}
+		return rv;
+	}
+
+	/**
+	 * A point in time view on the statistics of a cache tier.
+	 */
+	public static final class Statistics {
+
+		static final Statistics EMPTY = new Statistics(0, 0, 0, 0);
+
+		private final long hits;
+
+		private final long misses;
+
+		private final long evictions;
+
+		private final int size;
+
+		Statistics(final long hits, final long misses, final long evictions, final int size) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.size = size;
+		}
+
+		/**
+		 * @return Number of lookups that found a cached entry
+		 */
+		public long getHits() {
+			return hits;
+		}
+
+		/**
+		 * @return Number of lookups that didn't find a cached entry
+		 */
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * @return Number of entries evicted because the tier was full
+		 */
+		public long getEvictions() {
+			return evictions;
+		}
+
+		/**
+		 * @return Current number of entries
+		 */
+		public int getSize() {
+			return size;
+		}
+
+		/**
+		 * @return Ratio of hits to all lookups, 0 if there haven't been any
+		 *         lookups yet
+		 */
+		public double getHitRate() {
+			final long lookups = hits + misses;
+			return lookups == 0 ? 0.0 : (double) hits / lookups;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Statistics{hits=%d, misses=%d, evictions=%d, size=%d}", hits, misses, evictions, size);
+		}
+	}
+
+	/**
+	 * Key for both tiers. Autolinkers are compared by identity of the list.
+	 */
+	private static final class Key {
+
+		private final List<AutoLinker> autoLinkers;
+
+		private final int kind;
+
+		private final String text;
+
+		private final String baseUrl;
+
+		private final int hash;
+
+		Key(final List<AutoLinker> autoLinkers, final int kind, final String text, final String baseUrl) {
+			this.autoLinkers = autoLinkers;
+			this.kind = kind;
+			this.text = text;
+			this.baseUrl = baseUrl;
+			this.hash = 31 * (31 * (31 * System.identityHashCode(autoLinkers) + kind) + text.hashCode()) + Objects.hashCode(baseUrl);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return this.hash == other.hash
+				&& this.autoLinkers == other.autoLinkers
+				&& this.kind == other.kind
+				&& this.text.equals(other.text)
+				&& Objects.equals(this.baseUrl, other.baseUrl);
+		}
+	}
+}
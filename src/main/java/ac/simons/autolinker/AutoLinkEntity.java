@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.Objects;
+
+/**
+ * Something an autolinker would link, found by
+ * {@link AutoLinkService#extractEntities(java.lang.CharSequence)}. An entity
+ * knows where it is in the text and where its link would point to, but no
+ * anchor is created for it.
+ *
+ * @author Michael J. Simons
+ */
+public final class AutoLinkEntity {
+
+	/**
+	 * The kinds of entities, one per autolinker of this library.
+	 */
+	public enum Kind {
+		/**
+		 * An url, see {@link UrlAutoLinker}.
+		 */
+		URL,
+		/**
+		 * An email address, see {@link EmailAddressAutoLinker}.
+		 */
+		EMAIL_ADDRESS,
+		/**
+		 * A mention, see {@link TwitterUserAutoLinker}.
+		 */
+		MENTION,
+		/**
+		 * A hashtag, see {@link HashtagAutoLinker}.
+		 */
+		HASHTAG,
+		/**
+		 * A cashtag, see {@link CashtagAutoLinker}.
+		 */
+		CASHTAG
+	}
+
+	private final Kind kind;
+
+	private final int start;
+
+	private final int end;
+
+	private final String href;
+
+	AutoLinkEntity(final Kind kind, final int start, final int end, final String href) {
+		this.kind = kind;
+		this.start = start;
+		this.end = end;
+		this.href = href;
+	}
+
+	/**
+	 * @return The kind of this entity
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return Start of the entity in the text, inclusive
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * @return End of the entity in the text, exclusive
+	 */
+	public int getEnd() {
+		return end;
+	}
+
+	/**
+	 * The href an anchor of this entity would have, before any escaping or
+	 * encoding. Urls without protocol get the default one, email addresses
+	 * are never hex encoded.
+	 *
+	 * @return The normalized href of this entity
+	 */
+	public String getHref() {
+		return href;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof AutoLinkEntity)) {
+			return false;
+		}
+		final AutoLinkEntity other = (AutoLinkEntity) obj;
+		return kind == other.kind && start == other.start && end == other.end && href.equals(other.href);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(kind, start, end, href);
+	}
+
+	@Override
+	public String toString() {
+		return "AutoLinkEntity{kind=" + kind + ", start=" + start + ", end=" + end + ", href=" + href + "}";
+	}
+}
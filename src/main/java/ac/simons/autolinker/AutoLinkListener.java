@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+/**
+ * Receives events about the work of an {@link AutoLinkService}, see
+ * {@link AutoLinkService#withListener(ac.simons.autolinker.AutoLinkListener)}.
+ * All methods do nothing by default. A listener is called on the threads
+ * that use the service and thus must be thread safe. It should also be
+ * cheap, as it is called for every text node and every autolinker.
+ * {@link AutoLinkMetrics} is a ready to use implementation.
+ *
+ * @author Michael J. Simons
+ */
+public interface AutoLinkListener {
+
+	/**
+	 * The phases of linking a text.
+	 */
+	enum Phase {
+		/**
+		 * Parsing html into a document.
+		 */
+		PARSE,
+		/**
+		 * Running the autolinkers on a document, a plain text or a stream.
+		 */
+		LINK,
+		/**
+		 * Writing the linked nodes as html.
+		 */
+		SERIALIZE
+	}
+
+	/**
+	 * Called after a phase has been completed.
+	 *
+	 * @param phase         The phase
+	 * @param durationNanos Duration of the phase in nanoseconds
+	 */
+	default void phaseCompleted(final Phase phase, final long durationNanos) {
+	}
+
+	/**
+	 * Called for each text node that has been visited.
+	 *
+	 * @param skipped True if the text node has been skipped because it was
+	 *                no candidate for any autolinker
+	 */
+	default void textNodeVisited(final boolean skipped) {
+	}
+
+	/**
+	 * Called after an autolinker has been applied to a text node.
+	 *
+	 * @param autoLinker    The autolinker
+	 * @param durationNanos Duration of the call in nanoseconds
+	 * @param matches       Number of links the autolinker created
+	 */
+	default void autoLinkerApplied(final AutoLinker autoLinker, final long durationNanos, final int matches) {
+	}
+
+	/**
+	 * Called when a text node has been left unlinked because a budget has
+	 * been exceeded. Running out of the budget of a document is reported
+	 * only once per document. A text node that made an autolinker overflow
+	 * the stack is reported as {@link AutoLinkBudget.Scope#TEXT_NODE}, even
+	 * without a budget.
+	 *
+	 * @param scope The scope of the budget that has been exceeded
+	 */
+	default void budgetExceeded(final AutoLinkBudget.Scope scope) {
+	}
+
+	/**
+	 * Called after html has been created as a string.
+	 *
+	 * @param length Length of the html in characters
+	 */
+	default void outputWritten(final int length) {
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link AutoLinkListener} that sums up all events in counters, ready to
+ * be exported to a monitoring system. Counters are {@link LongAdder}, so
+ * that threads sharing the metrics don't contend for a single value.
+ *
+ * @author Michael J. Simons
+ */
+public final class AutoLinkMetrics implements AutoLinkListener {
+
+	private final Map<Phase, LongAdder> phaseCounts = new EnumMap<>(Phase.class);
+
+	private final Map<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+
+	private final LongAdder textNodesVisited = new LongAdder();
+
+	private final LongAdder textNodesSkipped = new LongAdder();
+
+	private final Map<AutoLinkBudget.Scope, LongAdder> budgetsExceeded = new EnumMap<>(AutoLinkBudget.Scope.class);
+
+	private final LongAdder outputs = new LongAdder();
+
+	private final LongAdder outputLength = new LongAdder();
+
+	private final Map<AutoLinker, AutoLinkerMetrics> autoLinkerMetrics = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates new metrics with all counters at zero.
+	 */
+	public AutoLinkMetrics() {
+		// The maps are filled upfront and only read afterwards
+		for (Phase phase : Phase.values()) {
+			phaseCounts.put(phase, new LongAdder());
+			phaseNanos.put(phase, new LongAdder());
+		}
+		for (AutoLinkBudget.Scope scope : AutoLinkBudget.Scope.values()) {
+			budgetsExceeded.put(scope, new LongAdder());
+		}
+	}
+
+	@Override
+	public void phaseCompleted(final Phase phase, final long durationNanos) {
+		phaseCounts.get(phase).increment();
+		phaseNanos.get(phase).add(durationNanos);
+	}
+
+	@Override
+	public void textNodeVisited(final boolean skipped) {
+		textNodesVisited.increment();
+		if (skipped) {
+			textNodesSkipped.increment();
+		}
+	}
+
+	@Override
+	public void autoLinkerApplied(final AutoLinker autoLinker, final long durationNanos, final int matches) {
+		final AutoLinkerMetrics metrics = autoLinkerMetrics.computeIfAbsent(autoLinker, key -> new AutoLinkerMetrics());
+		metrics.invocations.increment();
+		metrics.nanos.add(durationNanos);
+		metrics.matches.add(matches);
+	}
+
+	@Override
+	public void budgetExceeded(final AutoLinkBudget.Scope scope) {
+		budgetsExceeded.get(scope).increment();
+	}
+
+	@Override
+	public void outputWritten(final int length) {
+		outputs.increment();
+		outputLength.add(length);
+	}
+
+	/**
+	 * @param phase The phase
+	 * @return How often the phase has been completed
+	 */
+	public long getPhaseCount(final Phase phase) {
+		return phaseCounts.get(phase).sum();
+	}
+
+	/**
+	 * @param phase The phase
+	 * @return Total time spent in the phase in nanoseconds
+	 */
+	public long getPhaseNanos(final Phase phase) {
+		return phaseNanos.get(phase).sum();
+	}
+
+	/**
+	 * @return Number of text nodes visited
+	 */
+	public long getTextNodesVisited() {
+		return textNodesVisited.sum();
+	}
+
+	/**
+	 * @return Number of text nodes that have been skipped without calling any
+	 *         autolinker
+	 */
+	public long getTextNodesSkipped() {
+		return textNodesSkipped.sum();
+	}
+
+	/**
+	 * @param scope The scope of a budget
+	 * @return How often the budget has been exceeded
+	 */
+	public long getBudgetsExceeded(final AutoLinkBudget.Scope scope) {
+		return budgetsExceeded.get(scope).sum();
+	}
+
+	/**
+	 * @return Number of html strings created
+	 */
+	public long getOutputs() {
+		return outputs.sum();
+	}
+
+	/**
+	 * @return Total length of all html strings created
+	 */
+	public long getOutputLength() {
+		return outputLength.sum();
+	}
+
+	/**
+	 * @return A live view on the metrics of all autolinkers that have been
+	 *         applied so far
+	 */
+	public Map<AutoLinker, AutoLinkerMetrics> getAutoLinkerMetrics() {
+		return Collections.unmodifiableMap(autoLinkerMetrics);
+	}
+
+	/**
+	 * Metrics of a single autolinker.
+	 */
+	public static final class AutoLinkerMetrics {
+
+		private final LongAdder invocations = new LongAdder();
+
+		private final LongAdder nanos = new LongAdder();
+
+		private final LongAdder matches = new LongAdder();
+
+		AutoLinkerMetrics() {
+		}
+
+		/**
+		 * @return Number of text nodes handed to the autolinker
+		 */
+		public long getInvocations() {
+			return invocations.sum();
+		}
+
+		/**
+		 * @return Total time spent in the autolinker in nanoseconds
+		 */
+		public long getNanos() {
+			return nanos.sum();
+		}
+
+		/**
+		 * @return Total number of links created by the autolinker
+		 */
+		public long getMatches() {
+			return matches.sum();
+		}
+	}
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Links a stream of texts asynchronously, see
+ * {@link AutoLinkService#newProcessor(java.lang.String, java.util.concurrent.Executor, int, boolean)}.
+ * Every text is linked on the executor like
+ * {@link AutoLinkService#addLinks(java.lang.String, java.lang.String)} does
+ * and emitted as an {@link AutoLinkResult}. A failure while linking a text,
+ * errors included, is emitted as a failed result and doesn't end the stream, the same applies to
+ * texts that the executor rejects.
+ * <br>
+ * The processor never requests more texts from upstream than its subscriber
+ * has requested results, and never more than {@code maxInFlight} texts whose
+ * results haven't been emitted yet. So at most {@code maxInFlight} texts are
+ * linked at the same time and every result can be emitted as soon as it's
+ * ready. Ordered results are emitted in the order of their texts, a result
+ * waits for the results of all texts before it. Unordered results are
+ * emitted as soon as they are ready.
+ * <br>
+ * A processor accepts one subscriber and one upstream subscription. The
+ * completion or error of upstream is passed on after the results of all
+ * texts received before have been emitted.
+ *
+ * @author Michael J. Simons
+ */
+public final class AutoLinkProcessor implements Flow.Processor<String, AutoLinkResult> {
+
+	/**
+	 * The subscription of rejected subscribers, just to be able to receive
+	 * their error.
+	 */
+	private static final Flow.Subscription REJECTED = new Flow.Subscription() {
+		@Override
+		public void request(final long n) {
+		}
+
+		@Override
+		public void cancel() {
+		}
+	};
+
+	private final AutoLinkService autoLinkService;
+
+	private final String baseUrl;
+
+	private final Executor executor;
+
+	private final int maxInFlight;
+
+	private final boolean ordered;
+
+	/**
+	 * Number of requests to emit, only the thread that increments it from
+	 * zero emits, so that the subscriber is never called concurrently.
+	 */
+	private final AtomicInteger emissions = new AtomicInteger();
+
+	/**
+	 * Results ready to be emitted by the sequence number of their text, in
+	 * the order they became ready. Guarded by this as all state below.
+	 */
+	private final Map<Long, AutoLinkResult> ready = new LinkedHashMap<>();
+
+	private Flow.Subscription upstream;
+
+	private Flow.Subscriber<? super AutoLinkResult> downstream;
+
+	/**
+	 * True once the subscriber has returned from
+	 * {@link Flow.Subscriber#onSubscribe(java.util.concurrent.Flow.Subscription)}.
+	 */
+	private boolean subscribed;
+
+	/**
+	 * Results requested by the subscriber and not emitted yet.
+	 */
+	private long demand;
+
+	/**
+	 * Texts requested from upstream whose results have not been emitted yet.
+	 */
+	private long pending;
+
+	/**
+	 * Number of texts being linked.
+	 */
+	private int linking;
+
+	/**
+	 * Sequence number of the next text received.
+	 */
+	private long received;
+
+	/**
+	 * Sequence number of the next result to emit if ordered.
+	 */
+	private long emitted;
+
+	private boolean upstreamDone;
+
+	private Throwable upstreamError;
+
+	private IllegalArgumentException invalidRequest;
+
+	private boolean cancelled;
+
+	private boolean terminated;
+
+	AutoLinkProcessor(final AutoLinkService autoLinkService, final String baseUrl, final Executor executor, final int maxInFlight, final boolean ordered) {
+		this.autoLinkService = autoLinkService;
+		this.baseUrl = baseUrl;
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+		this.ordered = ordered;
+	}
+
+	@Override
+	public void subscribe(final Flow.Subscriber<? super AutoLinkResult> subscriber) {
+		Objects.requireNonNull(subscriber, "Subscriber must not be null");
+		final boolean accepted;
+		synchronized (this) {
+			accepted = downstream == null;
+			if (accepted) {
+				downstream = subscriber;
+			}
+		}
+		if (!accepted) {
+			subscriber.onSubscribe(REJECTED);
+			subscriber.onError(new IllegalStateException("A processor accepts only one subscriber"));
+			return;
+		}
+		subscriber.onSubscribe(new Subscription());
+		synchronized (this) {
+			subscribed = true;
+		}
+		emit();
+	}
+
+	@Override
+	public void onSubscribe(final Flow.Subscription subscription) {
+		Objects.requireNonNull(subscription, "Subscription must not be null");
+		final boolean accepted;
+		synchronized (this) {
+			accepted = upstream == null && !cancelled;
+			if (accepted) {
+				upstream = subscription;
+			}
+		}
+		if (accepted) {
+			// Requests to upstream are only made while emitting
+			emit();
+		} else {
+			subscription.cancel();
+		}
+	}
+
+	@Override
+	public void onNext(final String text) {
+		Objects.requireNonNull(text, "Text must not be null");
+		final long sequence;
+		synchronized (this) {
+			if (cancelled || upstreamDone) {
+				return;
+			}
+			sequence = received++;
+			++linking;
+		}
+		try {
+			executor.execute(() -> link(sequence, text));
+		} catch (RejectedExecutionException e) {
+			linked(sequence, AutoLinkResult.failure(text, e));
+		}
+	}
+
+	@Override
+	public void onError(final Throwable throwable) {
+		Objects.requireNonNull(throwable, "Throwable must not be null");
+		synchronized (this) {
+			if (upstreamDone) {
+				return;
+			}
+			upstreamDone = true;
+			upstreamError = throwable;
+		}
+		emit();
+	}
+
+	@Override
+	public void onComplete() {
+		synchronized (this) {
+			upstreamDone = true;
+		}
+		emit();
+	}
+
+	private void link(final long sequence, final String text) {
+		AutoLinkResult result;
+		try {
+			result = AutoLinkResult.success(text, autoLinkService.addLinks(text, baseUrl));
+		} catch (Throwable e) {
+			// Errors, too, the stream would never complete otherwise
+			result = AutoLinkResult.failure(text, e);
+		}
+		linked(sequence, result);
+	}
+
+	private void linked(final long sequence, final AutoLinkResult result) {
+		synchronized (this) {
+			--linking;
+			if (!cancelled) {
+				ready.put(sequence, result);
+			}
+		}
+		emit();
+	}
+
+	/**
+	 * Requests as many texts from upstream as the demand of the subscriber
+	 * and the maximum number of texts in flight allow. Only called while
+	 * emitting, so that upstream is never called concurrently.
+	 */
+	private void requestUpstream() {
+		final Flow.Subscription subscription;
+		final long n;
+		synchronized (this) {
+			if (upstream == null || upstreamDone || cancelled) {
+				return;
+			}
+			n = Math.min(maxInFlight, demand) - pending;
+			if (n <= 0) {
+				return;
+			}
+			pending += n;
+			subscription = upstream;
+		}
+		subscription.request(n);
+	}
+
+	/**
+	 * Emits all results that are ready and the final signal, if due, and
+	 * requests more texts afterwards.
+	 */
+	private void emit() {
+		if (emissions.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			emitReady();
+			requestUpstream();
+			missed = emissions.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private void emitReady() {
+		while (true) {
+			final Flow.Subscriber<? super AutoLinkResult> subscriber;
+			AutoLinkResult next = null;
+			Throwable error = null;
+			synchronized (this) {
+				if (!subscribed || terminated) {
+					return;
+				}
+				subscriber = downstream;
+				if (invalidRequest != null) {
+					terminated = true;
+					error = invalidRequest;
+				} else if (cancelled) {
+					return;
+				} else {
+					if (demand > 0) {
+						next = nextReady();
+					}
+					if (next != null) {
+						--demand;
+						--pending;
+					} else if (upstreamDone && linking == 0 && ready.isEmpty()) {
+						terminated = true;
+						error = upstreamError;
+					} else {
+						return;
+					}
+				}
+			}
+			if (next != null) {
+				subscriber.onNext(next);
+			} else if (error == null) {
+				subscriber.onComplete();
+			} else {
+				subscriber.onError(error);
+			}
+		}
+	}
+
+	/**
+	 * @return The next result to emit or {@literal null} if there is none
+	 */
+	private AutoLinkResult nextReady() {
+		if (ordered) {
+			final AutoLinkResult rv = ready.remove(emitted);
+			if (rv != null) {
+				++emitted;
+			}
+			return rv;
+		}
+		final Iterator<AutoLinkResult> results = ready.values().iterator();
+		if (!results.hasNext()) {
+			return null;
+		}
+		final AutoLinkResult rv = results.next();
+		results.remove();
+		return rv;
+	}
+
+	private void cancelUpstream() {
+		final Flow.Subscription subscription;
+		synchronized (this) {
+			cancelled = true;
+			ready.clear();
+			subscription = upstream;
+		}
+		if (subscription != null) {
+			subscription.cancel();
+		}
+	}
+
+	/**
+	 * The subscription of the subscriber.
+	 */
+	private final class Subscription implements Flow.Subscription {
+
+		@Override
+		public void request(final long n) {
+			synchronized (AutoLinkProcessor.this) {
+				if (terminated) {
+					return;
+				}
+				if (n <= 0) {
+					invalidRequest = new IllegalArgumentException("The number of requested results must be positive, got " + n);
+				} else {
+					demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+				}
+			}
+			if (n <= 0) {
+				cancelUpstream();
+			}
+			emit();
+		}
+
+		@Override
+		public void cancel() {
+			cancelUpstream();
+		}
+	}
+}
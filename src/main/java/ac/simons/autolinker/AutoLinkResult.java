@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+/**
+ * The result of linking a single text of a batch, see
+ * {@link AutoLinkService#addLinksToAll(java.util.Collection, java.lang.String)},
+ * or of a stream, see {@link AutoLinkProcessor}. A result either contains
+ * the linked html or the exception or error that occurred while linking
+ * the text.
+ *
+ * @author Michael J. Simons
+ */
+public final class AutoLinkResult {
+
+	private final String text;
+
+	private final String html;
+
+	private final Throwable error;
+
+	private AutoLinkResult(final String text, final String html, final Throwable error) {
+		this.text = text;
+		this.html = html;
+		this.error = error;
+	}
+
+	static AutoLinkResult success(final String text, final String html) {
+		return new AutoLinkResult(text, html, null);
+	}
+
+	static AutoLinkResult failure(final String text, final Throwable error) {
+		return new AutoLinkResult(text, null, error);
+	}
+
+	/**
+	 * @return True if the text has been linked without errors
+	 */
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	/**
+	 * @return The text that has been linked
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * @return The linked html, {@literal null} if linking failed or the
+	 *         input has been {@literal null}
+	 */
+	public String getHtml() {
+		return html;
+	}
+
+	/**
+	 * @return The exception or error that occurred while linking or
+	 *         {@literal null}
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return isSuccess() ? "AutoLinkResult{html=" + html + "}" : "AutoLinkResult{error=" + error + "}";
+	}
+}
@@ -15,10 +15,22 @@
  */
 package ac.simons.autolinker;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -26,51 +38,352 @@ import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Entities.EscapeMode;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
-import org.jsoup.parser.Parser;
 
 /**
+ * Applies a list of {@link AutoLinker autolinkers} to html, documents or
+ * plain text.
+ * <br>
+ * A service is immutable. A service created by {@link #builder()} owns a
+ * copy of its autolinkers and can be shared by any number of threads,
+ * provided that its autolinkers and listener are thread safe. All
+ * autolinkers, caches and listeners of this library are. Linking doesn't
+ * synchronize on anything but the configured caches, so threads sharing a
+ * service don't block each other. There is no need for a service per
+ * request or thread. The {@link LinkingSession sessions} and
+ * {@link IncrementalLinker incremental linkers} created by a service are
+ * not thread safe.
+ *
  * @author Michael J. Simons, 2014-12-27
  */
 public class AutoLinkService {
 
 	private final List<AutoLinker> autolinkers;
 
+	/**
+	 * Bytes that make UTF-8 encoded text worth decoding.
+	 */
+	private final Utf8HtmlLinker.Triggers utf8Triggers;
+
+	/**
+	 * True if all autolinkers are the ones of this library, which can link
+	 * plain text without creating nodes.
+	 */
+	private final boolean builtInAutoLinkersOnly;
+
+	/**
+	 * An optional cache for results and fragments.
+	 */
+	private final AutoLinkCache cache;
+
+	/**
+	 * An optional cache for results, shared with other JVMs.
+	 */
+	private final PersistentAutoLinkCache persistentCache;
+
+	/**
+	 * An optional listener, {@literal null} if nobody is listening.
+	 */
+	private final AutoLinkListener listener;
+
+	/**
+	 * An optional budget per document and text node.
+	 */
+	private final AutoLinkBudget budget;
+
+	/**
+	 * Creates a new service with a copy of the given autolinkers. Changing
+	 * the list afterwards doesn't change the service.
+	 *
+	 * @param autolinkers The autolinkers to apply, in order
+	 */
 	public AutoLinkService(final List<AutoLinker> autolinkers) {
+		this(List.copyOf(autolinkers), null, null, null, null);
+	}
+
+	private AutoLinkService(final List<AutoLinker> copyOfAutoLinkers, final AutoLinkCache cache, final PersistentAutoLinkCache persistentCache, final AutoLinkListener listener, final AutoLinkBudget budget) {
+		this(copyOfAutoLinkers, new Utf8HtmlLinker.Triggers(copyOfAutoLinkers), hasAnchorFinders(copyOfAutoLinkers), cache, persistentCache, listener, budget);
+	}
+
+	private AutoLinkService(final AutoLinkService template, final AutoLinkCache cache, final PersistentAutoLinkCache persistentCache, final AutoLinkListener listener, final AutoLinkBudget budget) {
+		this(template.autolinkers, template.utf8Triggers, template.builtInAutoLinkersOnly, cache, persistentCache, listener, budget);
+	}
+
+	private AutoLinkService(final List<AutoLinker> autolinkers, final Utf8HtmlLinker.Triggers utf8Triggers, final boolean builtInAutoLinkersOnly, final AutoLinkCache cache, final PersistentAutoLinkCache persistentCache, final AutoLinkListener listener, final AutoLinkBudget budget) {
 		this.autolinkers = autolinkers;
+		this.utf8Triggers = utf8Triggers;
+		this.builtInAutoLinkersOnly = builtInAutoLinkersOnly;
+		this.cache = cache;
+		this.persistentCache = persistentCache;
+		this.listener = listener;
+		this.budget = budget;
+	}
+
+	private static boolean hasAnchorFinders(final List<AutoLinker> autoLinkers) {
+		for (AutoLinker autoLinker : autoLinkers) {
+			if (AnchorFinder.of(autoLinker) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Starts building an immutable service.
+	 *
+	 * @return A new builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return The autolinkers of this service, in the order they are applied
+	 */
+	public List<AutoLinker> getAutoLinkers() {
+		return autolinkers;
+	}
+
+	/**
+	 * Creates a new service with the same autolinkers that uses the given
+	 * cache. Results of {@link #addLinks(java.lang.String, java.lang.String)}
+	 * and {@link #addLinksToPlainText(java.lang.CharSequence)} are cached
+	 * as a whole, all other methods profit from cached fragments.
+	 *
+	 * @param newCache The cache to use, {@literal null} disables caching
+	 * @return A new service
+	 */
+	public AutoLinkService withCache(final AutoLinkCache newCache) {
+		return new AutoLinkService(this, newCache, persistentCache, listener, budget);
+	}
+
+	/**
+	 * Creates a new service with the same autolinkers that looks up results
+	 * of {@link #addLinks(java.lang.String, java.lang.String)} and
+	 * {@link #addLinksToPlainText(java.lang.CharSequence)} in the given
+	 * persistent cache, after the cache configured by
+	 * {@link #withCache(ac.simons.autolinker.AutoLinkCache)}, if any.
+	 * <br>
+	 * The namespace of the persistent cache must identify the configuration
+	 * of the autolinkers of this service.
+	 *
+	 * @param newPersistentCache The persistent cache to use, {@literal null}
+	 *                           disables persistent caching
+	 * @return A new service
+	 */
+	public AutoLinkService withPersistentCache(final PersistentAutoLinkCache newPersistentCache) {
+		return new AutoLinkService(this, cache, newPersistentCache, listener, budget);
+	}
+
+	/**
+	 * Creates a new service with the same autolinkers and cache that reports
+	 * its work to the given listener. Without a listener, no time is
+	 * measured and nothing is counted.
+	 *
+	 * @param newListener The listener to use, {@literal null} removes the listener
+	 * @return A new service
+	 */
+	public AutoLinkService withListener(final AutoLinkListener newListener) {
+		return new AutoLinkService(this, cache, persistentCache, newListener, budget);
+	}
+
+	/**
+	 * Creates a new service that limits the time and work spent on a single
+	 * document and on a single text node. Text nodes for which the budget
+	 * runs out are left unlinked, results affected by that are not cached.
+	 *
+	 * @param newBudget The budget to use, {@literal null} removes all limits
+	 * @return A new service
+	 */
+	public AutoLinkService withBudget(final AutoLinkBudget newBudget) {
+		return new AutoLinkService(this, cache, persistentCache, listener, newBudget);
+	}
+
+	/**
+	 * Creates a new session for linking many plain texts on the current
+	 * thread with as little allocation as possible. The session takes the
+	 * direct path only if all autolinkers are the ones from this library and
+	 * no cache, listener or budget is configured, otherwise it delegates to
+	 * {@link #addLinksToPlainText(java.lang.CharSequence)}.
+	 *
+	 * @return A new session, not to be shared between threads
+	 */
+	public LinkingSession newSession() {
+		return new LinkingSession(this, autolinkers, builtInAutoLinkersOnly && cache == null && persistentCache == null && listener == null && budget == null);
+	}
+
+	/**
+	 * Creates a new linker for linking the same document again and again
+	 * while it is being edited. Only the parts of the document that changed
+	 * since the previous run are linked again.
+	 *
+	 * @return A new incremental linker, not to be shared between threads
+	 */
+	public IncrementalLinker newIncrementalLinker() {
+		return new IncrementalLinker(this, autolinkers, listener, budget);
 	}
 
 	/**
-	 * Applies an autolinker to a given element (or a document, which is an
-	 * element itself) and creates a new element from the nodes the autolinker
-	 * returns.
+	 * Applies an autolinker to a copy of given element (or a document, which
+	 * is an element itself).
 	 *
+	 * @param autoLinker The autolinker to apply
 	 * @param element    The element whos text nodes should be autolinked
-	 * @param autoLinker
-	 * @return An optional processed element. The optional will be empty if
-	 * {@code element} is an anchor
+	 * @return A new, processed element
 	 */
 	Element applyAutoLinker(final AutoLinker autoLinker, final Element element) {
-		final List<Node> newChildNodes = element.childNodes().stream()
-			.collect(ArrayList::new,
-				(l, childNode) -> {
-					// Child node is itself an element with children
-					if (childNode instanceof Element) {
-						final Element childElement = (Element) childNode;
-						if (childElement.tagName().equals("a")) {
-							l.add(childElement);
-						} else {
-							l.add(applyAutoLinker(autoLinker, childElement));
-						}
-					} else if (childNode instanceof TextNode) { // Only TextNodes may have possible urls
-						l.addAll(autoLinker.createLinks(((TextNode) childNode)));
-					} else { // Other nodes are just kept
-						l.add(childNode);
-					}
-				},
-				ArrayList::addAll
-			);
-		final Element rv = new Element(element.tag(), element.baseUri(), element.attributes());
-		newChildNodes.forEach(rv::appendChild);
+		final Element rv = element.clone();
+		applyAutoLinkers(List.of(autoLinker), rv);
+		return rv;
+	}
+
+	/**
+	 * Applies a list of autolinkers to a given element (or a document, which
+	 * is an element itself). The element is traversed only once, all
+	 * autolinkers are applied to a text node in sequence before the traversal
+	 * continues.
+	 * <br>
+	 * The element is modified in place: Only text nodes that actually contain
+	 * linkable stuff are replaced, all other nodes are left untouched.
+	 *
+	 * @param autoLinkers The autolinkers to apply
+	 * @param element     The element whos text nodes should be autolinked
+	 */
+	void applyAutoLinkers(final List<AutoLinker> autoLinkers, final Element element) {
+		int i = 0;
+		while (i < element.childNodeSize()) {
+			final Node childNode = element.childNode(i);
+			if (childNode instanceof TextNode) { // Only TextNodes may have possible urls
+				final List<Node> newNodes = linkTextNode(autoLinkers, (TextNode) childNode);
+				if (newNodes.size() == 1 && newNodes.get(0) == childNode) {
+					++i;
+				} else {
+					childNode.remove();
+					element.insertChildren(i, newNodes);
+					i += newNodes.size();
+				}
+			} else {
+				// Child node is itself an element with children, anchors are skipped
+				if (childNode instanceof Element && !((Element) childNode).tagName().equals("a")) {
+					applyAutoLinkers(autoLinkers, (Element) childNode);
+				}
+				++i;
+			}
+		}
+	}
+
+	/**
+	 * Runs the autolinkers on a text node, taking cached fragments into
+	 * account if the autolinkers are the ones of this service. A text node
+	 * that makes an autolinker overflow the stack is left unlinked as if it
+	 * had exceeded its budget, with or without a budget.
+	 *
+	 * @param autoLinkers The autolinkers to apply
+	 * @param textNode    The text node which may contain linkable texts
+	 * @return The new node list created from {@code textNode}
+	 */
+	List<Node> linkTextNode(final List<AutoLinker> autoLinkers, final TextNode textNode) {
+		final BudgetTracker tracker = budget == null ? null : BudgetTracker.current();
+		if (tracker != null && tracker.isDocumentExceeded()) {
+			return List.of(textNode);
+		}
+		try {
+			if (tracker != null) {
+				tracker.startTextNode();
+			}
+			return linkTextNodeWithinBudget(autoLinkers, textNode);
+		} catch (BudgetExceededException e) {
+			return leaveUnlinked(tracker, e.getScope(), textNode);
+		} catch (StackOverflowError e) {
+			// Java regexes recurse for every repetition of a group, so long
+			// quoted strings or runs of dots in an email address overflow the
+			// stack long before any budget runs out
+			return leaveUnlinked(tracker, AutoLinkBudget.Scope.TEXT_NODE, textNode);
+		}
+	}
+
+	private List<Node> leaveUnlinked(final BudgetTracker tracker, final AutoLinkBudget.Scope scope, final TextNode textNode) {
+		if (tracker != null) {
+			tracker.exceeded(scope);
+		}
+		if (listener != null) {
+			listener.budgetExceeded(scope);
+		}
+		return List.of(textNode);
+	}
+
+	private List<Node> linkTextNodeWithinBudget(final List<AutoLinker> autoLinkers, final TextNode textNode) {
+		if (cache != null && autoLinkers == this.autolinkers) {
+			return cache.createLinks(autoLinkers, textNode, listener);
+		}
+		return createLinks(autoLinkers, textNode, listener);
+	}
+
+	/**
+	 * Runs all autolinkers on a text node. Each autolinker processes the text
+	 * nodes created by its predecessor, anchors created by a predecessor are
+	 * kept as they are. Text nodes that are no
+	 * {@link AutoLinker#isCandidate(java.lang.CharSequence) candidate} for an
+	 * autolinker are not handed to it.
+	 *
+	 * @param autoLinkers The autolinkers to apply
+	 * @param textNode    The text node which may contain linkable texts
+	 * @return The new node list created from {@code textNode}
+	 */
+	static List<Node> createLinks(final List<AutoLinker> autoLinkers, final TextNode textNode) {
+		return createLinks(autoLinkers, textNode, null);
+	}
+
+	/**
+	 * Runs all autolinkers on a text node and reports to {@code listener}.
+	 *
+	 * @param autoLinkers The autolinkers to apply
+	 * @param textNode    The text node which may contain linkable texts
+	 * @param listener    An optional listener
+	 * @return The new node list created from {@code textNode}
+	 * @see #createLinks(java.util.List, org.jsoup.nodes.TextNode)
+	 */
+	static List<Node> createLinks(final List<AutoLinker> autoLinkers, final TextNode textNode, final AutoLinkListener listener) {
+		List<Node> rv = List.of(textNode);
+		boolean skipped = true;
+		for (AutoLinker autoLinker : autoLinkers) {
+			// Nothing has been linked so far
+			if (rv.size() == 1 && rv.get(0) == textNode) {
+				if (autoLinker.isCandidate(textNode.getWholeText())) {
+					rv = createLinks(autoLinker, textNode, listener);
+					skipped = false;
+				}
+				continue;
+			}
+			final List<Node> newNodes = new ArrayList<>();
+			for (Node node : rv) {
+				if (node instanceof TextNode && autoLinker.isCandidate(((TextNode) node).getWholeText())) {
+					newNodes.addAll(createLinks(autoLinker, (TextNode) node, listener));
+				} else {
+					newNodes.add(node);
+				}
+			}
+			rv = newNodes;
+		}
+		if (listener != null) {
+			listener.textNodeVisited(skipped);
+		}
+		return rv;
+	}
+
+	private static List<Node> createLinks(final AutoLinker autoLinker, final TextNode textNode, final AutoLinkListener listener) {
+		if (listener == null) {
+			return autoLinker.createLinks(textNode);
+		}
+		final long start = System.nanoTime();
+		final List<Node> rv = autoLinker.createLinks(textNode);
+		final long duration = System.nanoTime() - start;
+		int matches = 0;
+		for (Node node : rv) {
+			if (!(node instanceof TextNode)) {
+				++matches;
+			}
+		}
+		listener.autoLinkerApplied(autoLinker, duration, matches);
 		return rv;
 	}
 
@@ -105,24 +418,403 @@ public class AutoLinkService {
 			throw new RuntimeException(String.format("Invalid target class: %s", targetClass.getName()));
 		}
 
-		if (!(textWithLinkableStuff == null || textWithLinkableStuff.trim().isEmpty())) {
-			// Create a document
-			final Document document = addLinks(Jsoup.parseBodyFragment(textWithLinkableStuff, optionalBaseUrl.orElse("")));
-			// As the linkables do their work in place, use the document as return
-			if (Document.class.isAssignableFrom(targetClass)) {
-				rv = (T) document;
-			} else {
-				document
-					.outputSettings()
-					.prettyPrint(false)
-					.escapeMode(EscapeMode.xhtml)
-					.charset(StandardCharsets.UTF_8);
-				rv = (T) Parser.unescapeEntities(document.body().html().trim(), true);
+		final boolean cacheable = (cache != null || persistentCache != null) && String.class.isAssignableFrom(targetClass);
+		final String cached = cacheable && textWithLinkableStuff != null ? getCachedHtml(textWithLinkableStuff, baseUrl) : null;
+		if (cached != null) {
+			rv = (T) cached;
+		} else if (!(textWithLinkableStuff == null || textWithLinkableStuff.trim().isEmpty())) {
+			final BudgetTracker tracker = BudgetTracker.start(budget);
+			try {
+				// Create a document
+				long start = listener == null ? 0 : System.nanoTime();
+				final Document document = Jsoup.parseBodyFragment(textWithLinkableStuff, optionalBaseUrl.orElse(""));
+				if (listener != null) {
+					listener.phaseCompleted(AutoLinkListener.Phase.PARSE, System.nanoTime() - start);
+				}
+				addLinks(document);
+				// As the linkables do their work in place, use the document as return
+				if (Document.class.isAssignableFrom(targetClass)) {
+					rv = (T) document;
+				} else {
+					final StringBuilder html = new StringBuilder(textWithLinkableStuff.length() + 64);
+					try {
+						writeBody(document, html);
+					} catch (IOException e) {
+						// Not thrown by a StringBuilder
+						throw new UncheckedIOException(e);
+					}
+					rv = (T) html.toString();
+					if (cacheable && !BudgetTracker.isCurrentExceeded()) {
+						putCachedHtml(textWithLinkableStuff, baseUrl, (String) rv);
+					}
+				}
+			} finally {
+				BudgetTracker.stop(tracker);
+			}
+		}
+		return rv;
+	}
+
+	/**
+	 * Looks through a text with linkable stuff, applies all configured
+	 * {@link AutoLinker} to this text and writes the result to
+	 * {@code target}. The output is the same as the one of
+	 * {@link #addLinks(java.lang.String, java.lang.String)}, but the linked
+	 * document is written directly while walking it once, without creating a
+	 * string for the whole output. This allows writing into a response
+	 * buffer. Nothing is written for a {@literal null} text.
+	 *
+	 * @param textWithLinkableStuff The text that contains possible urls
+	 * @param baseUrl               An optional base url for resolving relative urls
+	 * @param target                The target to write to, neither flushed nor closed
+	 * @throws IOException If writing to {@code target} fails
+	 */
+	public void addLinks(final String textWithLinkableStuff, final String baseUrl, final Appendable target) throws IOException {
+		if (textWithLinkableStuff == null) {
+			return;
+		}
+		// Cached results are strings anyway
+		if (cache != null || persistentCache != null || textWithLinkableStuff.trim().isEmpty()) {
+			target.append(addLinks(textWithLinkableStuff, baseUrl));
+			return;
+		}
+		final BudgetTracker tracker = BudgetTracker.start(budget);
+		try {
+			final Document document = addLinks(textWithLinkableStuff, baseUrl, Document.class);
+			writeBody(document, target);
+		} finally {
+			BudgetTracker.stop(tracker);
+		}
+	}
+
+	/**
+	 * Looks up a result in the cache and then in the persistent cache.
+	 * Results found in the latter are added to the former.
+	 */
+	private String getCachedHtml(final String text, final String baseUrl) {
+		String rv = cache == null ? null : cache.getHtml(autolinkers, text, baseUrl);
+		if (rv == null && persistentCache != null) {
+			rv = persistentCache.getHtml(text, baseUrl);
+			if (rv != null && cache != null) {
+				cache.putHtml(autolinkers, text, baseUrl, rv);
+			}
+		}
+		return rv;
+	}
+
+	private void putCachedHtml(final String text, final String baseUrl, final String html) {
+		if (cache != null) {
+			cache.putHtml(autolinkers, text, baseUrl, html);
+		}
+		if (persistentCache != null) {
+			persistentCache.putHtml(text, baseUrl, html);
+		}
+	}
+
+	private String getCachedPlainText(final String text) {
+		String rv = cache == null ? null : cache.getPlainText(autolinkers, text);
+		if (rv == null && persistentCache != null) {
+			rv = persistentCache.getPlainText(text);
+			if (rv != null && cache != null) {
+				cache.putPlainText(autolinkers, text, rv);
 			}
 		}
 		return rv;
 	}
 
+	private void putCachedPlainText(final String text, final String html) {
+		if (cache != null) {
+			cache.putPlainText(autolinkers, text, html);
+		}
+		if (persistentCache != null) {
+			persistentCache.putPlainText(text, html);
+		}
+	}
+
+	/**
+	 * Writes the body of a linked document.
+	 */
+	private void writeBody(final Document document, final Appendable target) throws IOException {
+		final long start = listener == null ? 0 : System.nanoTime();
+		// Only used for nodes the body writer doesn't know
+		document
+			.outputSettings()
+			.prettyPrint(false)
+			.escapeMode(EscapeMode.xhtml)
+			.charset(StandardCharsets.UTF_8);
+		final int length = new BodyWriter(target).writeContent(document.body());
+		if (listener != null) {
+			listener.phaseCompleted(AutoLinkListener.Phase.SERIALIZE, System.nanoTime() - start);
+			listener.outputWritten(length);
+		}
+	}
+
+	/**
+	 * Links all {@code texts} in parallel on the common fork join pool, see
+	 * {@link #addLinksToAll(java.util.Collection, java.lang.String, java.util.concurrent.Executor, int)}.
+	 * The calling thread blocks until all texts have been linked. Don't call
+	 * this from a task running in the common pool itself: the blocked task
+	 * occupies one of the threads the texts are waiting for, which can
+	 * starve the pool. Pass a dedicated executor in that case.
+	 *
+	 * @param texts   The texts that may contain urls and such
+	 * @param baseUrl An optional base url for resolving relative urls
+	 * @return One result per text, in the same order as {@code texts}
+	 */
+	public List<AutoLinkResult> addLinksToAll(final Collection<String> texts, final String baseUrl) {
+		return addLinksToAll(texts, baseUrl, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+	}
+
+	/**
+	 * Links all {@code texts} like {@link #addLinks(java.lang.String, java.lang.String)}
+	 * does, spreading the work over the given {@code executor}. At most
+	 * {@code maxInFlight} texts are submitted to the executor at the same
+	 * time, the calling thread blocks until a slot is free and until all
+	 * texts have been linked.
+	 * <br>
+	 * A failure while linking one text doesn't affect the others, it is
+	 * reported by the corresponding result, errors included. The same
+	 * applies to texts that the executor rejects.
+	 *
+	 * @param texts       The texts that may contain urls and such
+	 * @param baseUrl     An optional base url for resolving relative urls
+	 * @param executor    The executor to run on
+	 * @param maxInFlight Maximum number of texts being linked concurrently
+	 * @return One result per text, in the same order as {@code texts}
+	 * @throws IllegalArgumentException If {@code maxInFlight} is not positive
+	 */
+	public List<AutoLinkResult> addLinksToAll(final Collection<String> texts, final String baseUrl, final Executor executor, final int maxInFlight) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("The maximum number of texts in flight must be positive");
+		}
+		final String[] allTexts = texts.toArray(new String[0]);
+		final AutoLinkResult[] results = new AutoLinkResult[allTexts.length];
+		final CountDownLatch done = new CountDownLatch(results.length);
+		final Semaphore inFlight = new Semaphore(maxInFlight);
+		try {
+			for (int i = 0; i < allTexts.length; ++i) {
+				final int index = i;
+				final String text = allTexts[i];
+				inFlight.acquire();
+				try {
+					executor.execute(() -> {
+						try {
+							results[index] = AutoLinkResult.success(text, addLinks(text, baseUrl));
+						} catch (Throwable e) {
+							// Anything else would end the worker and lose the cause
+							results[index] = AutoLinkResult.failure(text, e);
+						} finally {
+							inFlight.release();
+							done.countDown();
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					results[index] = AutoLinkResult.failure(text, e);
+					inFlight.release();
+					done.countDown();
+				}
+			}
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return toResults(allTexts, results, e);
+		}
+		return toResults(allTexts, results, null);
+	}
+
+	/**
+	 * Creates the list of results. Texts without a result either failed with
+	 * an error or have not been linked due to an interruption.
+	 */
+	private static List<AutoLinkResult> toResults(final String[] texts, final AutoLinkResult[] results, final InterruptedException interruption) {
+		final AutoLinkResult[] rv = Arrays.copyOf(results, results.length);
+		for (int i = 0; i < rv.length; ++i) {
+			if (rv[i] == null) {
+				rv[i] = AutoLinkResult.failure(texts[i], interruption == null ? new IllegalStateException("Linking has been aborted") : interruption);
+			}
+		}
+		return List.of(rv);
+	}
+
+	/**
+	 * Creates a processor that links a stream of texts, honouring the demand
+	 * of its subscriber. Each text is linked like
+	 * {@link #addLinks(java.lang.String, java.lang.String)} does on the given
+	 * {@code executor}, at most {@code maxInFlight} texts at the same time.
+	 *
+	 * @param baseUrl     An optional base url for resolving relative urls
+	 * @param executor    The executor to run on
+	 * @param maxInFlight Maximum number of texts being linked concurrently
+	 * @param ordered     True if the results must be emitted in the order
+	 *                    of their texts
+	 * @return A new processor, accepting one subscriber
+	 * @throws IllegalArgumentException If {@code maxInFlight} is not positive
+	 */
+	public AutoLinkProcessor newProcessor(final String baseUrl, final Executor executor, final int maxInFlight, final boolean ordered) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("The maximum number of texts in flight must be positive");
+		}
+		return new AutoLinkProcessor(this, baseUrl, executor, maxInFlight, ordered);
+	}
+
+	/**
+	 * Applies all configured {@link AutoLinker} to plain text. The text is
+	 * not parsed as html, the autolinkers work directly on the given
+	 * characters and the result is written without creating a document.
+	 * The text between the links is escaped, so that the result is valid
+	 * html. Whitespace is kept as is.
+	 *
+	 * @param plainText A plain text that may contain urls and such
+	 * @return The escaped text with urls turned into anchor tags or
+	 *         {@literal null} if {@code plainText} is {@literal null}
+	 */
+	public String addLinksToPlainText(final CharSequence plainText) {
+		if (plainText == null) {
+			return null;
+		}
+		final String text = plainText.toString();
+		final String cached = getCachedPlainText(text);
+		if (cached != null) {
+			return cached;
+		}
+		final BudgetTracker tracker = BudgetTracker.start(budget);
+		try {
+			long start = listener == null ? 0 : System.nanoTime();
+			final TextNode textNode = new TextNode(text);
+			final List<Node> nodes = linkTextNode(autolinkers, textNode);
+			if (listener != null) {
+				listener.phaseCompleted(AutoLinkListener.Phase.LINK, System.nanoTime() - start);
+				start = System.nanoTime();
+			}
+			final String rv;
+			// Nothing linked and nothing to escape
+			if (nodes.size() == 1 && nodes.get(0) == textNode && !HtmlWriter.needsEscaping(text)) {
+				rv = text;
+			} else {
+				final StringBuilder html = new StringBuilder(text.length() + 64 * nodes.size());
+				HtmlWriter.writeNodes(nodes, html);
+				rv = html.toString();
+			}
+			if (listener != null) {
+				listener.phaseCompleted(AutoLinkListener.Phase.SERIALIZE, System.nanoTime() - start);
+				listener.outputWritten(rv.length());
+			}
+			if (!BudgetTracker.isCurrentExceeded()) {
+				putCachedPlainText(text, rv);
+			}
+			return rv;
+		} finally {
+			BudgetTracker.stop(tracker);
+		}
+	}
+
+	/**
+	 * Finds everything the configured {@link AutoLinker} would link in plain
+	 * text, without creating any nodes, anchors or html. The entities are
+	 * the same as the links created by
+	 * {@link #addLinksToPlainText(java.lang.CharSequence)}, with their
+	 * offsets in {@code plainText} and normalized hrefs. No cache, listener
+	 * or budget is used. Use a {@link #newSession()} to reuse the finders
+	 * for many texts.
+	 *
+	 * @param plainText A plain text that may contain urls and such
+	 * @return The entities ordered by their start, empty if
+	 *         {@code plainText} is {@literal null}
+	 * @throws IllegalStateException If this service uses custom autolinkers
+	 */
+	public List<AutoLinkEntity> extractEntities(final CharSequence plainText) {
+		if (plainText == null) {
+			return List.of();
+		}
+		return new EntityExtractor(autolinkers).extract(plainText);
+	}
+
+	/**
+	 * Applies all configured {@link AutoLinker} to html read from
+	 * {@code html} and writes the result to {@code target}. The html is not
+	 * parsed into a document but tokenized while reading. Markup is copied
+	 * as is, text runs are linked as they arrive. Text inside anchors,
+	 * scripts, styles and comments is left alone, just like
+	 * {@link #addLinks(org.jsoup.nodes.Document)} does.
+	 * <br>
+	 * Memory use depends on the longest text run, not on the size of the
+	 * input. Neither the reader nor the writer are closed, the writer is
+	 * flushed.
+	 *
+	 * @param html   Source of the html that may contain urls and such
+	 * @param target Target for the linked html
+	 * @throws IOException If reading or writing fails
+	 */
+	public void addLinksToStream(final Reader html, final Writer target) throws IOException {
+		final BudgetTracker tracker = BudgetTracker.start(budget);
+		try {
+			final long start = listener == null ? 0 : System.nanoTime();
+			new HtmlStreamLinker(textNode -> linkTextNode(autolinkers, textNode), html, target).run();
+			if (listener != null) {
+				listener.phaseCompleted(AutoLinkListener.Phase.LINK, System.nanoTime() - start);
+			}
+		} finally {
+			BudgetTracker.stop(tracker);
+		}
+	}
+
+	/**
+	 * Applies all configured {@link AutoLinker} to UTF-8 encoded html and
+	 * writes the UTF-8 encoded result to {@code target}, with the same
+	 * result as {@link #addLinksToStream(java.io.Reader, java.io.Writer)}.
+	 * Markup and text without anything to link are copied byte by byte
+	 * without decoding, only text runs that may contain links are decoded
+	 * and encoded again. Malformed input in those runs is replaced.
+	 * <br>
+	 * If {@code target} is too small, a larger buffer is allocated that
+	 * contains everything written to {@code target} so far, followed by the
+	 * result.
+	 *
+	 * @param html   UTF-8 encoded html, read from its position to its
+	 *               limit. The position is moved to the limit.
+	 * @param target Target for the linked html, written from its position
+	 * @return {@code target} or a larger copy of it, positioned after the
+	 *         linked html
+	 */
+	public ByteBuffer addLinksToUtf8(final ByteBuffer html, final ByteBuffer target) {
+		final BudgetTracker tracker = BudgetTracker.start(budget);
+		try {
+			final long start = listener == null ? 0 : System.nanoTime();
+			final ByteBuffer rv = new Utf8HtmlLinker(utf8Triggers, textNode -> linkTextNode(autolinkers, textNode), html, target).run();
+			if (listener != null) {
+				listener.phaseCompleted(AutoLinkListener.Phase.LINK, System.nanoTime() - start);
+			}
+			return rv;
+		} finally {
+			BudgetTracker.stop(tracker);
+		}
+	}
+
+	/**
+	 * Applies all configured {@link AutoLinker} to UTF-8 encoded html.
+	 *
+	 * @param html   UTF-8 encoded html
+	 * @param target Target for the linked html, written from its position
+	 * @return {@code target} or a larger copy of it, positioned after the
+	 *         linked html
+	 * @see #addLinksToUtf8(java.nio.ByteBuffer, java.nio.ByteBuffer)
+	 */
+	public ByteBuffer addLinksToUtf8(final byte[] html, final ByteBuffer target) {
+		return addLinksToUtf8(ByteBuffer.wrap(html), target);
+	}
+
+	/**
+	 * Applies all configured {@link AutoLinker} to UTF-8 encoded html.
+	 *
+	 * @param html UTF-8 encoded html
+	 * @return The UTF-8 encoded, linked html
+	 * @see #addLinksToUtf8(java.nio.ByteBuffer, java.nio.ByteBuffer)
+	 */
+	public byte[] addLinksToUtf8(final byte[] html) {
+		final ByteBuffer rv = addLinksToUtf8(ByteBuffer.wrap(html), ByteBuffer.allocate(html.length + html.length / 4));
+		return Arrays.copyOf(rv.array(), rv.position());
+	}
+
 	/**
 	 * A convenience method for adding links in an existing document.
 	 *
@@ -131,11 +823,116 @@ public class AutoLinkService {
 	 * @see #addLinks(java.lang.String, java.lang.String, java.lang.Class)
 	 */
 	public Document addLinks(final Document document) {
-		// Let each linkable process the document
-		autolinkers.forEach((autoLinker) -> {
-			final Element body = document.body();
-			body.replaceWith(applyAutoLinker(autoLinker, body));
-		});
+		// Let all linkables process the document in one pass
+		final BudgetTracker tracker = BudgetTracker.start(budget);
+		try {
+			final long start = listener == null ? 0 : System.nanoTime();
+			applyAutoLinkers(autolinkers, document.body());
+			if (listener != null) {
+				listener.phaseCompleted(AutoLinkListener.Phase.LINK, System.nanoTime() - start);
+			}
+		} finally {
+			BudgetTracker.stop(tracker);
+		}
 		return document;
 	}
+
+	/**
+	 * Builds immutable services. The list of autolinkers is copied and
+	 * everything that only depends on the autolinkers is computed once in
+	 * {@link #build()}, not on every call of a service. A builder is not
+	 * thread safe, the services built are.
+	 */
+	public static final class Builder {
+
+		private final List<AutoLinker> autoLinkers = new ArrayList<>();
+
+		private AutoLinkCache cache;
+
+		private PersistentAutoLinkCache persistentCache;
+
+		private AutoLinkListener listener;
+
+		private AutoLinkBudget budget;
+
+		private Builder() {
+		}
+
+		/**
+		 * Adds an autolinker, autolinkers are applied in the order they
+		 * have been added.
+		 *
+		 * @param autoLinker The autolinker to add
+		 * @return This builder
+		 */
+		public Builder autoLinker(final AutoLinker autoLinker) {
+			if (autoLinker == null) {
+				throw new IllegalArgumentException("Autolinker must not be null");
+			}
+			this.autoLinkers.add(autoLinker);
+			return this;
+		}
+
+		/**
+		 * Adds several autolinkers.
+		 *
+		 * @param newAutoLinkers The autolinkers to add
+		 * @return This builder
+		 */
+		public Builder autoLinkers(final Collection<? extends AutoLinker> newAutoLinkers) {
+			newAutoLinkers.forEach(this::autoLinker);
+			return this;
+		}
+
+		/**
+		 * @param newCache The cache to use
+		 * @return This builder
+		 * @see AutoLinkService#withCache(ac.simons.autolinker.AutoLinkCache)
+		 */
+		public Builder cache(final AutoLinkCache newCache) {
+			this.cache = newCache;
+			return this;
+		}
+
+		/**
+		 * @param newPersistentCache The persistent cache to use
+		 * @return This builder
+		 * @see AutoLinkService#withPersistentCache(ac.simons.autolinker.PersistentAutoLinkCache)
+		 */
+		public Builder persistentCache(final PersistentAutoLinkCache newPersistentCache) {
+			this.persistentCache = newPersistentCache;
+			return this;
+		}
+
+		/**
+		 * @param newListener The listener to use, must be thread safe
+		 * @return This builder
+		 * @see AutoLinkService#withListener(ac.simons.autolinker.AutoLinkListener)
+		 */
+		public Builder listener(final AutoLinkListener newListener) {
+			this.listener = newListener;
+			return this;
+		}
+
+		/**
+		 * @param newBudget The budget to use
+		 * @return This builder
+		 * @see AutoLinkService#withBudget(ac.simons.autolinker.AutoLinkBudget)
+		 */
+		public Builder budget(final AutoLinkBudget newBudget) {
+			this.budget = newBudget;
+			return this;
+		}
+
+		/**
+		 * Builds a new service. An {@link AutoLinkBudget#unlimited() unlimited}
+		 * budget is dropped, so that nothing is tracked.
+		 *
+		 * @return A new, immutable service
+		 */
+		public AutoLinkService build() {
+			final AutoLinkBudget resolvedBudget = budget == AutoLinkBudget.unlimited() ? null : budget;
+			return new AutoLinkService(List.copyOf(autoLinkers), cache, persistentCache, listener, resolvedBudget);
+		}
+	}
 }
@@ -25,6 +25,9 @@ import org.jsoup.nodes.TextNode;
  * into an html anchor tag. The interface is similar to interface "Linkable"
  * from my 2010er project
  * <a href="https://github.com/michael-simons/java-autolinker">java-autolinker</a>.
+ * <br>
+ * Implementations must be thread safe, an {@link AutoLinkService} may call
+ * them concurrently, for example when linking a batch of texts.
  *
  * @author Michael J. Simons, 2012-12-27
  */
@@ -42,4 +45,30 @@ public interface AutoLinker {
 	 * @return The new node list created from {@code textNode}
 	 */
 	List<Node> createLinks(TextNode textNode);
+
+	/**
+	 * Returns the characters of which at least one must be present in a text
+	 * for this autolinker to find anything to link, for example the
+	 * {@code @} for email addresses. An empty string means that this
+	 * autolinker cannot name such characters.
+	 *
+	 * @return The trigger characters of this autolinker
+	 */
+	default String getTriggerCharacters() {
+		return "";
+	}
+
+	/**
+	 * A cheap check whether {@code text} may contain anything this autolinker
+	 * can link. {@link #createLinks(org.jsoup.nodes.TextNode)} is not called
+	 * for text nodes that aren't a candidate. The default implementation
+	 * checks for the presence of the {@link #getTriggerCharacters()}.
+	 *
+	 * @param text The text which may contain linkable texts
+	 * @return False, if {@code text} cannot contain anything to link
+	 */
+	default boolean isCandidate(final CharSequence text) {
+		final String triggerCharacters = getTriggerCharacters();
+		return triggerCharacters.isEmpty() || Strings.containsAny(text, triggerCharacters);
+	}
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.IOException;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.CDataNode;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.Tag;
+
+/**
+ * Writes the content of a linked body as {@link AutoLinkService#addLinks(java.lang.String, java.lang.String)}
+ * returns it: jsoup's html without pretty printing, entities unescaped and
+ * whitespace at both ends trimmed. Text and attribute values are written as
+ * is, which is what escaping and unescaping them again boils down to. The
+ * nodes are walked once and written directly, without an intermediate
+ * string for the whole document.
+ * <br>
+ * Single nodes can be written without trimming, so that the output of
+ * consecutive nodes can be concatenated.
+ *
+ * @author Michael J. Simons
+ */
+final class BodyWriter {
+
+	private final Appendable out;
+
+	/**
+	 * True if whitespace at both ends of the output is dropped.
+	 */
+	private final boolean trim;
+
+	/**
+	 * Whitespace that is only written if something else follows.
+	 */
+	private final StringBuilder pendingWhitespace = new StringBuilder();
+
+	/**
+	 * True as soon as something other than whitespace has been written.
+	 */
+	private boolean started;
+
+	private int length;
+
+	BodyWriter(final Appendable out) {
+		this(out, true);
+	}
+
+	BodyWriter(final Appendable out, final boolean trim) {
+		this.out = out;
+		this.trim = trim;
+	}
+
+	/**
+	 * Writes all children of {@code root}, walking the tree without
+	 * recursion.
+	 *
+	 * @param root The element whose content should be written
+	 * @return The number of characters written
+	 * @throws IOException If writing fails
+	 */
+	int writeContent(final Element root) throws IOException {
+		if (root.childNodeSize() > 0) {
+			walk(root.childNode(0), true);
+		}
+		return length;
+	}
+
+	/**
+	 * Writes a single node and its descendants.
+	 *
+	 * @param node The node to write
+	 * @return The number of characters written so far
+	 * @throws IOException If writing fails
+	 */
+	int writeNode(final Node node) throws IOException {
+		walk(node, false);
+		return length;
+	}
+
+	private void walk(final Node first, final boolean withSiblings) throws IOException {
+		Node node = first;
+		int depth = 0;
+		while (node != null) {
+			head(node);
+			if (node.childNodeSize() > 0) {
+				node = node.childNode(0);
+				++depth;
+				continue;
+			}
+			tail(node);
+			while (node.nextSibling() == null && depth > 0) {
+				node = node.parentNode();
+				--depth;
+				tail(node);
+			}
+			node = depth > 0 || withSiblings ? node.nextSibling() : null;
+		}
+	}
+
+	private void head(final Node node) throws IOException {
+		if (node instanceof Element) {
+			final Element element = (Element) node;
+			write("<");
+			write(unescape(element.tagName()));
+			for (Attribute attribute : element.attributes()) {
+				write(" ");
+				write(unescape(attribute.getKey()));
+				if (!isCollapsed(attribute)) {
+					write("=\"");
+					write(attribute.getValue());
+					write("\"");
+				}
+			}
+			final Tag tag = element.tag();
+			if (element.childNodeSize() == 0 && tag.isSelfClosing()) {
+				write(tag.isEmpty() ? ">" : " />");
+			} else {
+				write(">");
+			}
+		} else if (node instanceof TextNode && !(node instanceof CDataNode)) {
+			write(((TextNode) node).getWholeText());
+		} else if (node instanceof DataNode) {
+			write(unescape(((DataNode) node).getWholeData()));
+		} else if (node instanceof Comment) {
+			write("<!--");
+			write(unescape(((Comment) node).getData()));
+			write("-->");
+		} else {
+			write(unescape(node.outerHtml()));
+		}
+	}
+
+	private void tail(final Node node) throws IOException {
+		if (node instanceof Element) {
+			final Element element = (Element) node;
+			if (!(element.childNodeSize() == 0 && element.tag().isSelfClosing())) {
+				write("</");
+				write(unescape(element.tagName()));
+				write(">");
+			}
+		}
+	}
+
+	/**
+	 * Boolean attributes are written without their value. Asking the
+	 * attribute is expensive, but only necessary for missing or empty values
+	 * and values repeating the name.
+	 */
+	private static boolean isCollapsed(final Attribute attribute) {
+		final String value = attribute.getValue();
+		return value == null || (value.isEmpty() || value.equalsIgnoreCase(attribute.getKey())) && attribute.html().indexOf('=') < 0;
+	}
+
+	/**
+	 * Everything but text and attribute values is unescaped, just as if the
+	 * whole html would have been unescaped.
+	 */
+	private static String unescape(final String text) {
+		return text.indexOf('&') < 0 ? text : Parser.unescapeEntities(text, true);
+	}
+
+	/**
+	 * Writes {@code text}, dropping whitespace at the start of the output
+	 * and holding back whitespace that may turn out to be at the end.
+	 */
+	private void write(final CharSequence text) throws IOException {
+		if (!trim) {
+			out.append(text);
+			length += text.length();
+			return;
+		}
+		int start = 0;
+		final int end = text.length();
+		if (!started) {
+			while (start < end && text.charAt(start) <= ' ') {
+				++start;
+			}
+			if (start == end) {
+				return;
+			}
+			started = true;
+		}
+		int trimmedEnd = end;
+		while (trimmedEnd > start && text.charAt(trimmedEnd - 1) <= ' ') {
+			--trimmedEnd;
+		}
+		if (trimmedEnd > start) {
+			if (pendingWhitespace.length() > 0) {
+				out.append(pendingWhitespace);
+				length += pendingWhitespace.length();
+				pendingWhitespace.setLength(0);
+			}
+			out.append(text, start, trimmedEnd);
+			length += trimmedEnd - start;
+		}
+		pendingWhitespace.append(text, trimmedEnd, end);
+	}
+}
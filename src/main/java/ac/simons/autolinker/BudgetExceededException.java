@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+/**
+ * Thrown from inside matching when an {@link AutoLinkBudget} runs out and
+ * caught by the {@link AutoLinkService}. It is thrown often enough under
+ * load that it doesn't fill in a stack trace.
+ *
+ * @author Michael J. Simons
+ */
+final class BudgetExceededException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final AutoLinkBudget.Scope scope;
+
+	BudgetExceededException(final AutoLinkBudget.Scope scope) {
+		super("Budget per " + scope + " exceeded", null, false, false);
+		this.scope = scope;
+	}
+
+	AutoLinkBudget.Scope getScope() {
+		return scope;
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+/**
+ * Tracks the consumption of an {@link AutoLinkBudget} while a document is
+ * linked. The tracker of the current document is bound to the linking
+ * thread, so that autolinkers can {@link #guard(java.lang.CharSequence)}
+ * their texts without knowing about budgets.
+ *
+ * @author Michael J. Simons
+ */
+final class BudgetTracker {
+
+	private static final ThreadLocal<BudgetTracker> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * Reading the clock is much more expensive than counting steps.
+	 */
+	private static final int STEPS_BETWEEN_CLOCK_CHECKS = 1024;
+
+	private final AutoLinkBudget budget;
+
+	private final long documentStart;
+
+	private long textNodeStart;
+
+	private long remainingSteps;
+
+	private int stepsUntilClockCheck;
+
+	private boolean exceeded;
+
+	private boolean documentExceeded;
+
+	private BudgetTracker(final AutoLinkBudget budget) {
+		this.budget = budget;
+		this.documentStart = System.nanoTime();
+		startTextNode();
+	}
+
+	/**
+	 * Starts tracking a document on the current thread.
+	 *
+	 * @param budget An optional budget
+	 * @return A new tracker or {@literal null} if there's no budget or a
+	 *         document is already tracked on this thread
+	 */
+	static BudgetTracker start(final AutoLinkBudget budget) {
+		if (budget == null || CURRENT.get() != null) {
+			return null;
+		}
+		final BudgetTracker rv = new BudgetTracker(budget);
+		CURRENT.set(rv);
+		return rv;
+	}
+
+	/**
+	 * Stops tracking.
+	 *
+	 * @param tracker A tracker returned by {@link #start(ac.simons.autolinker.AutoLinkBudget)}, may be {@literal null}
+	 */
+	static void stop(final BudgetTracker tracker) {
+		if (tracker != null) {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * @return The tracker of the document linked on this thread, if any
+	 */
+	static BudgetTracker current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @return True if the budget of the document linked on this thread has
+	 *         been exceeded in any scope
+	 */
+	static boolean isCurrentExceeded() {
+		final BudgetTracker tracker = CURRENT.get();
+		return tracker != null && tracker.exceeded;
+	}
+
+	/**
+	 * @param text The text to guard
+	 * @return {@code text} or a guarded view on it, if a document is tracked
+	 *         on this thread
+	 */
+	static CharSequence guard(final CharSequence text) {
+		final BudgetTracker tracker = CURRENT.get();
+		return tracker == null ? text : new GuardedCharSequence(text, tracker);
+	}
+
+	/**
+	 * Resets the budget per text node.
+	 *
+	 * @throws BudgetExceededException If the time per document is up
+	 */
+	void startTextNode() {
+		this.textNodeStart = System.nanoTime();
+		this.remainingSteps = budget.getStepsPerTextNode();
+		this.stepsUntilClockCheck = STEPS_BETWEEN_CLOCK_CHECKS;
+		if (textNodeStart - documentStart > budget.getNanosPerDocument()) {
+			throw new BudgetExceededException(AutoLinkBudget.Scope.DOCUMENT);
+		}
+	}
+
+	/**
+	 * Records that the budget has been exceeded.
+	 *
+	 * @param scope The scope that has been exceeded
+	 */
+	void exceeded(final AutoLinkBudget.Scope scope) {
+		this.exceeded = true;
+		if (scope == AutoLinkBudget.Scope.DOCUMENT) {
+			this.documentExceeded = true;
+		}
+	}
+
+	/**
+	 * @return True if the time per document is up
+	 */
+	boolean isDocumentExceeded() {
+		return documentExceeded;
+	}
+
+	private void step() {
+		if (--remainingSteps < 0) {
+			throw new BudgetExceededException(AutoLinkBudget.Scope.TEXT_NODE);
+		}
+		if (--stepsUntilClockCheck == 0) {
+			stepsUntilClockCheck = STEPS_BETWEEN_CLOCK_CHECKS;
+			final long now = System.nanoTime();
+			if (now - documentStart > budget.getNanosPerDocument()) {
+				throw new BudgetExceededException(AutoLinkBudget.Scope.DOCUMENT);
+			}
+			if (now - textNodeStart > budget.getNanosPerTextNode()) {
+				throw new BudgetExceededException(AutoLinkBudget.Scope.TEXT_NODE);
+			}
+		}
+	}
+
+	/**
+	 * A view on a text that counts every character access.
+	 */
+	private static final class GuardedCharSequence implements CharSequence {
+
+		private final CharSequence text;
+
+		private final BudgetTracker tracker;
+
+		GuardedCharSequence(final CharSequence text, final BudgetTracker tracker) {
+			this.text = text;
+			this.tracker = tracker;
+		}
+
+		@Override
+		public int length() {
+			return text.length();
+		}
+
+		@Override
+		public char charAt(final int index) {
+			tracker.step();
+			return text.charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end) {
+			return new GuardedCharSequence(text.subSequence(start, end), tracker);
+		}
+
+		@Override
+		public String toString() {
+			return text.toString();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014-2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+/**
+ * Turns $cashtags, ticker symbols like {@code $GOOG} or {@code $BRK.A}, into
+ * anchor elements. Cashtags are recognized the same way twitter does: A
+ * cashtag must be at the start of the text or preceded by whitespace and
+ * consists of up to six letters, optionally followed by a dot or underscore
+ * and up to two letters.
+ * <br>
+ * The start of the text is the start of a text node. Chained behind a
+ * {@link TwitterUserAutoLinker}, the cashtag in {@code @foo$AAPL} is linked,
+ * as it starts a text node of its own after the mention. In a
+ * {@link CombinedAutoLinker}, it isn't.
+ *
+ * @author Michael J. Simons
+ */
+public final class CashtagAutoLinker implements AutoLinker {
+
+	/**
+	 * The placeholder for the cashtag in the url template.
+	 */
+	public static final String CASHTAG = "{cashtag}";
+
+	/**
+	 * The default url of a cashtag, a search for it on twitter.
+	 */
+	public static final String DEFAULT_URL_TEMPLATE = "https://twitter.com/search?q=%24" + CASHTAG;
+
+	private final LinkTemplate urlTemplate;
+
+	private final TwitterEntityFinder.Kind kind;
+
+	/**
+	 * Instantiates a new cashtag autolinker, linking to a search on twitter.
+	 */
+	public CashtagAutoLinker() {
+		this(DEFAULT_URL_TEMPLATE);
+	}
+
+	/**
+	 * Instantiates a new cashtag autolinker with a custom url.
+	 *
+	 * @param urlTemplate The url of a cashtag, containing the
+	 *                    {@link #CASHTAG} placeholder at least once
+	 */
+	public CashtagAutoLinker(final String urlTemplate) {
+		this(LinkTemplate.compile(urlTemplate, CASHTAG), AnchorRenderer.defaults());
+	}
+
+	private CashtagAutoLinker(final LinkTemplate urlTemplate, final AnchorRenderer renderer) {
+		this.urlTemplate = urlTemplate;
+		this.kind = TwitterEntityFinder.Kind.cashtags(urlTemplate, renderer);
+	}
+
+	/**
+	 * Creates a new autolinker with the same url template, rendering
+	 * anchors with the given renderer.
+	 *
+	 * @param newRenderer The renderer to use
+	 * @return A new autolinker
+	 */
+	public CashtagAutoLinker withRenderer(final AnchorRenderer newRenderer) {
+		return new CashtagAutoLinker(urlTemplate, newRenderer);
+	}
+
+	/**
+	 * Cashtags need a dollar sign.
+	 *
+	 * @return The trigger characters of this autolinker
+	 */
+	@Override
+	public String getTriggerCharacters() {
+		return "$";
+	}
+
+	@Override
+	public List<Node> createLinks(final TextNode textNode) {
+		return newAnchorFinder().createLinks(textNode);
+	}
+
+	/**
+	 * @return A new finder for cashtags
+	 */
+	AnchorFinder newAnchorFinder() {
+		return new TwitterEntityFinder(List.of(kind));
+	}
+
+	/**
+	 * @return The cashtags as an entity of a {@link TwitterEntityFinder}
+	 */
+	TwitterEntityFinder.Kind getKind() {
+		return kind;
+	}
+}
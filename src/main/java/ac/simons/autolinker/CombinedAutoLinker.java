@@ -0,0 +1,272 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+/**
+ * Combines the autolinkers of this library into one. Chained autolinkers
+ * each look at the text nodes created by the previous ones, so which one
+ * wins on overlapping text depends on their order and each of them scans
+ * again what the previous ones have already seen. A combined autolinker
+ * lets all autolinkers look at the original text once, collects the links
+ * they find, resolves overlapping links and creates the nodes only once.
+ * <br>
+ * Overlaps are resolved by priority: An autolinker earlier in the list
+ * beats all autolinkers later in the list, no matter which link starts
+ * first. For example, an email address wins over an url that is part of
+ * the address if the {@link EmailAddressAutoLinker} comes before the
+ * {@link UrlAutoLinker}.
+ * <br>
+ * A {@link TwitterUserAutoLinker}, {@link HashtagAutoLinker} and
+ * {@link CashtagAutoLinker} next to each other in the list share one pass
+ * over the text. Their links never overlap, so their order among each other
+ * doesn't matter. As they see the whole text, a hashtag or cashtag directly
+ * after a mention, like in {@code @foo#bar}, isn't linked, just like on
+ * twitter. Chained, it is, because it starts a text node of its own.
+ *
+ * @author Michael J. Simons
+ */
+public final class CombinedAutoLinker implements AutoLinker {
+
+	/**
+	 * The autolinkers, ordered by priority.
+	 */
+	private final List<AutoLinker> autoLinkers;
+
+	private final String triggerCharacters;
+
+	/**
+	 * Creates a new combined autolinker. Only the autolinkers of this library
+	 * can be combined.
+	 *
+	 * @param autoLinkers The autolinkers to combine, the first one has the
+	 *                    highest priority
+	 */
+	public CombinedAutoLinker(final List<AutoLinker> autoLinkers) {
+		if (autoLinkers.isEmpty()) {
+			throw new IllegalArgumentException("At least one autolinker is required");
+		}
+		final StringBuilder allTriggerCharacters = new StringBuilder();
+		for (AutoLinker autoLinker : autoLinkers) {
+			if (autoLinker instanceof CombinedAutoLinker || AnchorFinder.of(autoLinker) == null) {
+				throw new IllegalArgumentException("Cannot combine " + autoLinker.getClass().getName());
+			}
+			allTriggerCharacters.append(autoLinker.getTriggerCharacters());
+		}
+		this.autoLinkers = List.copyOf(autoLinkers);
+		this.triggerCharacters = allTriggerCharacters.toString();
+	}
+
+	/**
+	 * @return The combined autolinkers, ordered by priority
+	 */
+	public List<AutoLinker> getAutoLinkers() {
+		return autoLinkers;
+	}
+
+	/**
+	 * @return The trigger characters of all combined autolinkers
+	 */
+	@Override
+	public String getTriggerCharacters() {
+		return triggerCharacters;
+	}
+
+	@Override
+	public boolean isCandidate(final CharSequence text) {
+		for (AutoLinker autoLinker : autoLinkers) {
+			if (autoLinker.isCandidate(text)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public List<Node> createLinks(final TextNode textNode) {
+		return newAnchorFinder().createLinks(textNode);
+	}
+
+	/**
+	 * @return A new finder for the links of all combined autolinkers
+	 */
+	AnchorFinder newAnchorFinder() {
+		return new CombinedFinder();
+	}
+
+	/**
+	 * Collects the links of all autolinkers when reset and hands out the
+	 * ones that survived the overlap resolution in order of their start.
+	 * The anchors are written or created by the finder that found the link.
+	 */
+	private final class CombinedFinder implements AnchorFinder {
+
+		/**
+		 * One finder per autolinker, autolinkers sharing a finder are next
+		 * to each other.
+		 */
+		private final AnchorFinder[] finders = new AnchorFinder[autoLinkers.size()];
+
+		/**
+		 * Spans are reused between resets, the first
+		 * {@link #numberOfAccepted} are in use. A rejected span is handed out
+		 * again.
+		 */
+		private final List<LinkSpan> spans = new ArrayList<>();
+
+		/**
+		 * The accepted spans, ordered by start.
+		 */
+		private LinkSpan[] accepted = new LinkSpan[16];
+
+		private int numberOfAccepted;
+
+		private int current;
+
+		CombinedFinder() {
+			int i = 0;
+			while (i < finders.length) {
+				final List<TwitterEntityFinder.Kind> kinds = new ArrayList<>();
+				int end = i;
+				while (end < finders.length && TwitterEntityFinder.kindOf(autoLinkers.get(end)) != null) {
+					kinds.add(TwitterEntityFinder.kindOf(autoLinkers.get(end)));
+					++end;
+				}
+				if (kinds.isEmpty()) {
+					finders[i] = AnchorFinder.of(autoLinkers.get(i));
+					++i;
+				} else {
+					// Mentions, hashtags and cashtags next to each other share one pass
+					Arrays.fill(finders, i, end, new TwitterEntityFinder(kinds));
+					i = end;
+				}
+			}
+		}
+
+		@Override
+		public void reset(final CharSequence newText) {
+			this.numberOfAccepted = 0;
+			this.current = -1;
+			for (int i = 0; i < finders.length; ++i) {
+				final AnchorFinder finder = finders[i];
+				// A shared finder looks for the links of all its autolinkers at once
+				if (i > 0 && finder == finders[i - 1] || !isCandidate(i, newText)) {
+					continue;
+				}
+				finder.reset(newText);
+				while (finder.find()) {
+					final LinkSpan span = nextSpan();
+					finder.capture(span);
+					span.setSource(i);
+					accept(span);
+				}
+			}
+		}
+
+		/**
+		 * @return True if any autolinker sharing the finder at {@code index}
+		 *         may find something
+		 */
+		private boolean isCandidate(final int index, final CharSequence text) {
+			for (int i = index; i < finders.length && finders[i] == finders[index]; ++i) {
+				if (autoLinkers.get(i).isCandidate(text)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private LinkSpan nextSpan() {
+			if (numberOfAccepted == spans.size()) {
+				spans.add(new LinkSpan());
+			}
+			return spans.get(numberOfAccepted);
+		}
+
+		/**
+		 * Accepts a span unless it overlaps one of a finder with higher
+		 * priority. The spans of a single finder never overlap.
+		 */
+		private void accept(final LinkSpan span) {
+			int low = 0;
+			int high = numberOfAccepted;
+			while (low < high) {
+				final int middle = (low + high) >>> 1;
+				if (accepted[middle].getStart() < span.getStart()) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			if (low > 0 && accepted[low - 1].overlaps(span) || low < numberOfAccepted && accepted[low].overlaps(span)) {
+				return;
+			}
+			if (numberOfAccepted == accepted.length) {
+				accepted = Arrays.copyOf(accepted, numberOfAccepted * 2);
+			}
+			System.arraycopy(accepted, low, accepted, low + 1, numberOfAccepted - low);
+			accepted[low] = span;
+			++numberOfAccepted;
+		}
+
+		@Override
+		public boolean find() {
+			return ++current < numberOfAccepted;
+		}
+
+		@Override
+		public int textEnd() {
+			return accepted[current].getStart();
+		}
+
+		@Override
+		public int end() {
+			return accepted[current].getEnd();
+		}
+
+		@Override
+		public void writeAnchor(final StringBuilder target) {
+			writeAnchor(accepted[current], target);
+		}
+
+		@Override
+		public void capture(final LinkSpan span) {
+			span.copyFrom(accepted[current]);
+		}
+
+		@Override
+		public void writeAnchor(final LinkSpan span, final StringBuilder target) {
+			finders[span.getSource()].writeAnchor(span, target);
+		}
+
+		@Override
+		public Element createAnchor(final LinkSpan span, final String baseUri) {
+			return finders[span.getSource()].createAnchor(span, baseUri);
+		}
+
+		@Override
+		public AutoLinkEntity createEntity(final LinkSpan span, final int offset) {
+			return finders[span.getSource()].createEntity(span, offset);
+		}
+	}
+}
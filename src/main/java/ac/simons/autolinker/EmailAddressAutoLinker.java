@@ -15,16 +15,14 @@
  */
 package ac.simons.autolinker;
 
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
-import org.jsoup.parser.Tag;
 
 /**
  * Turns valid ASCII email adresses into anchor text. The label can be
@@ -46,6 +44,8 @@ public final class EmailAddressAutoLinker implements AutoLinker {
 	public static final Pattern VALID_EMAIL_ADRESS_ML = Pattern.compile(String.format("(?m)(?<![^\\s])%s", VALID_EMAIL_ADDRESS_REGEX));
 	public static final Pattern AT_SIGNS = Pattern.compile("[@\uFF20\\x40]");
 
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
 	/**
 	 * A flag if the addresses in the mailto: protocoll should be hex-encoded
 	 */
@@ -55,6 +55,11 @@ public final class EmailAddressAutoLinker implements AutoLinker {
 	 */
 	private final boolean obfuscateEmailAddress;
 
+	/**
+	 * The renderer of the anchors.
+	 */
+	private final AnchorRenderer renderer;
+
 	/**
 	 * Instantiates a new email address autolinker.
 	 *
@@ -64,46 +69,44 @@ public final class EmailAddressAutoLinker implements AutoLinker {
 	public EmailAddressAutoLinker(
 		final boolean hexEncodeEmailAddress,
 		final boolean obfuscateEmailAddress
+	) {
+		this(hexEncodeEmailAddress, obfuscateEmailAddress, AnchorRenderer.defaults());
+	}
+
+	private EmailAddressAutoLinker(
+		final boolean hexEncodeEmailAddress,
+		final boolean obfuscateEmailAddress,
+		final AnchorRenderer renderer
 	) {
 		this.hexEncodeEmailAddress = hexEncodeEmailAddress;
 		this.obfuscateEmailAddress = obfuscateEmailAddress;
+		this.renderer = renderer;
 	}
 
-	@Override
-	public List<Node> createLinks(final TextNode textNode) {
-
-		final List<Node> rv = new ArrayList<>();
-
-		int start = 0;
-
-		final String nodeText = textNode.getWholeText();
-		final String baseUri = textNode.baseUri();
-
-		final Matcher matcher = VALID_EMAIL_ADRESS_ML.matcher(nodeText);
-
-		while (matcher.find()) {
-			final String emailAddress = matcher.group();
+	/**
+	 * Creates a new autolinker with the same encoding and obfuscation,
+	 * rendering anchors with the given renderer.
+	 *
+	 * @param newRenderer The renderer to use
+	 * @return A new autolinker
+	 */
+	public EmailAddressAutoLinker withRenderer(final AnchorRenderer newRenderer) {
+		return new EmailAddressAutoLinker(hexEncodeEmailAddress, obfuscateEmailAddress, newRenderer);
+	}
 
-			if (!(new String(emailAddress.getBytes(), StandardCharsets.US_ASCII)).equals(emailAddress)) {
-				continue;
-			}
+	/**
+	 * Email addresses need an at sign.
+	 *
+	 * @return The trigger characters of this autolinker
+	 */
+	@Override
+	public String getTriggerCharacters() {
+		return "@";
+	}
 
-			final String textBefore = nodeText.substring(start, matcher.start());
-			if (!textBefore.isEmpty()) {
-				rv.add(new TextNode(textBefore));
-			}
-			final Element newAnchor = new Element(Tag.valueOf("a"), baseUri);
-			newAnchor.attr("href", String.format("%s%s", "mailto:", hexEncodeEmailAddress ? hexEncodeEmailAddress(emailAddress) : emailAddress));
-			newAnchor.appendChild(new TextNode(obfuscateEmailAddress ? obfuscateEmailAddress(emailAddress) : emailAddress));
-			rv.add(newAnchor);
-			start = matcher.end();
-		}
-		// Add a new textnode for everything after
-		final String textAfter = nodeText.substring(start);
-		if (!textAfter.isEmpty()) {
-			rv.add(new TextNode(textAfter));
-		}
-		return rv;
+	@Override
+	public List<Node> createLinks(final TextNode textNode) {
+		return newAnchorFinder().createLinks(textNode);
 	}
 
 	/**
@@ -114,7 +117,18 @@ public final class EmailAddressAutoLinker implements AutoLinker {
 	 * @return An obfuscated email address
 	 */
 	public String obfuscateEmailAddress(final String emailAddress) {
-		return AT_SIGNS.matcher(emailAddress.toLowerCase()).replaceAll(" [AT] ").replaceAll("\\.", " [DOT] ");
+		final String emailAddressLc = emailAddress.toLowerCase(Locale.ROOT);
+		final StringBuilder rv = new StringBuilder(emailAddressLc.length() + 16);
+		for (int i = 0; i < emailAddressLc.length(); ++i) {
+			final char c = emailAddressLc.charAt(i);
+			final String replacement = obfuscation(c);
+			if (replacement == null) {
+				rv.append(c);
+			} else {
+				rv.append(replacement);
+			}
+		}
+		return rv.toString();
 	}
 
 	/**
@@ -127,13 +141,165 @@ public final class EmailAddressAutoLinker implements AutoLinker {
 	 * @return An hexadecimal encoded email adresse
 	 */
 	public String hexEncodeEmailAddress(final String emailAddress) {
-		final String emailAddressLc = emailAddress.toLowerCase();
-		final StringBuilder rv = new StringBuilder();
+		final String emailAddressLc = emailAddress.toLowerCase(Locale.ROOT);
+		final StringBuilder rv = new StringBuilder(emailAddressLc.length() * 3);
 		for (int i = 0; i < emailAddressLc.length(); ++i) {
-			char c = emailAddressLc.charAt(i);
-			rv.append(c == '@' ? c : String.format("%%%x", (int) c));
+			hexEncode(emailAddressLc.charAt(i), rv);
 		}
 		return rv.toString();
 	}
 
+	/**
+	 * @return The replacement of {@code c} in an obfuscated email address or
+	 *         {@literal null} if {@code c} is kept
+	 */
+	private static String obfuscation(final char c) {
+		switch (c) {
+			case '@':
+			case '\uFF20':
+				return " [AT] ";
+			case '.':
+				return " [DOT] ";
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Appends {@code c} as {@code %} followed by its hex digits without
+	 * leading zeros, an '@' is appended as is.
+	 */
+	private static void hexEncode(final char c, final StringBuilder target) {
+		if (c == '@') {
+			target.append(c);
+			return;
+		}
+		target.append('%');
+		int shift = 12;
+		while (shift > 0 && c >> shift == 0) {
+			shift -= 4;
+		}
+		for (; shift >= 0; shift -= 4) {
+			target.append(HEX_DIGITS[c >> shift & 0xf]);
+		}
+	}
+
+	/**
+	 * Only ASCII email addresses are linked.
+	 */
+	private static boolean isAscii(final CharSequence text, final int start, final int end) {
+		for (int i = start; i < end; ++i) {
+			if (text.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return A new finder for email addresses
+	 */
+	AnchorFinder newAnchorFinder() {
+		return new EmailAddressFinder();
+	}
+
+	/**
+	 * Finds email addresses by their offsets, see {@link AnchorFinder}.
+	 */
+	private final class EmailAddressFinder implements AnchorFinder {
+
+		private final Matcher matcher = VALID_EMAIL_ADRESS_ML.matcher("");
+
+		private final LinkSpan current = new LinkSpan();
+
+		private CharSequence text;
+
+		@Override
+		public void reset(final CharSequence newText) {
+			this.text = newText;
+			this.matcher.reset(newText);
+		}
+
+		@Override
+		public boolean find() {
+			while (matcher.find()) {
+				if (isAscii(text, matcher.start(), matcher.end())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int textEnd() {
+			return matcher.start();
+		}
+
+		@Override
+		public int end() {
+			return matcher.end();
+		}
+
+		@Override
+		public void writeAnchor(final StringBuilder target) {
+			capture(current);
+			writeAnchor(current, target);
+		}
+
+		@Override
+		public void capture(final LinkSpan span) {
+			span.set(matcher.start(), matcher.end());
+		}
+
+		/**
+		 * Writes the same anchor as {@link #createAnchor(ac.simons.autolinker.LinkSpan, java.lang.String)},
+		 * encoding and obfuscating character by character.
+		 */
+		@Override
+		public void writeAnchor(final LinkSpan span, final StringBuilder target) {
+			final int start = span.getStart();
+			final int end = span.getEnd();
+			target.append("<a href=\"mailto:");
+			if (hexEncodeEmailAddress) {
+				for (int i = start; i < end; ++i) {
+					hexEncode(Character.toLowerCase(text.charAt(i)), target);
+				}
+			} else {
+				HtmlWriter.escape(text, start, end, target, true);
+			}
+			target.append('"');
+			renderer.closeStartTag(target);
+			if (obfuscateEmailAddress) {
+				for (int i = start; i < end; ++i) {
+					final char c = Character.toLowerCase(text.charAt(i));
+					final String replacement = obfuscation(c);
+					if (replacement == null) {
+						HtmlWriter.escape(c, target, false);
+					} else {
+						target.append(replacement);
+					}
+				}
+			} else {
+				HtmlWriter.escape(text, start, end, target, false);
+			}
+			target.append("</a>");
+		}
+
+		@Override
+		public Element createAnchor(final LinkSpan span, final String baseUri) {
+			final String emailAddress = text.subSequence(span.getStart(), span.getEnd()).toString();
+			return renderer.createAnchor(
+				baseUri,
+				"mailto:" + (hexEncodeEmailAddress ? hexEncodeEmailAddress(emailAddress) : emailAddress),
+				null,
+				obfuscateEmailAddress ? obfuscateEmailAddress(emailAddress) : emailAddress
+			);
+		}
+
+		@Override
+		public AutoLinkEntity createEntity(final LinkSpan span, final int offset) {
+			final String emailAddress = text.subSequence(span.getStart(), span.getEnd()).toString();
+			return new AutoLinkEntity(AutoLinkEntity.Kind.EMAIL_ADDRESS, offset + span.getStart(), offset + span.getEnd(), "mailto:" + emailAddress);
+		}
+	}
 }
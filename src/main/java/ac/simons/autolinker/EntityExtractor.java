@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the entities of plain text with the finders of the autolinkers,
+ * without writing or creating any anchors. The autolinkers are applied the
+ * same way a {@link LinkingSession} applies them: The ranges of text in
+ * between the entities of an autolinker are handed to the next one. Instances
+ * are reusable but not thread safe.
+ *
+ * @author Michael J. Simons
+ */
+final class EntityExtractor {
+
+	private final List<AutoLinker> autoLinkers;
+
+	private final AnchorFinder[] finders;
+
+	private final TextWindow[] windows;
+
+	private final LinkSpan span = new LinkSpan();
+
+	/**
+	 * Creates a new extractor.
+	 *
+	 * @param autoLinkers The autolinkers, only the ones of this library
+	 *                    are supported
+	 * @throws IllegalStateException If there's an autolinker that isn't
+	 *                               from this library
+	 */
+	EntityExtractor(final List<AutoLinker> autoLinkers) {
+		this.autoLinkers = autoLinkers;
+		this.finders = new AnchorFinder[autoLinkers.size()];
+		this.windows = new TextWindow[finders.length];
+		for (int i = 0; i < finders.length; ++i) {
+			finders[i] = AnchorFinder.of(autoLinkers.get(i));
+			if (finders[i] == null) {
+				throw new IllegalStateException("Cannot extract entities with " + autoLinkers.get(i).getClass().getName());
+			}
+			windows[i] = new TextWindow();
+		}
+	}
+
+	/**
+	 * Extracts all entities of a plain text. A text that overflows the stack
+	 * of the regex engine has no entities, as
+	 * {@link AutoLinkService#addLinksToPlainText(java.lang.CharSequence)}
+	 * leaves it unlinked.
+	 *
+	 * @param text The text to look at
+	 * @return The entities ordered by their start
+	 */
+	List<AutoLinkEntity> extract(final CharSequence text) {
+		final List<AutoLinkEntity> rv = new ArrayList<>();
+		try {
+			extract(0, text, 0, text.length(), rv);
+		} catch (StackOverflowError e) {
+			return List.of();
+		}
+		return rv;
+	}
+
+	/**
+	 * Applies the finder at {@code index} to a range of {@code text}.
+	 */
+	private void extract(final int index, final CharSequence text, final int start, final int end, final List<AutoLinkEntity> target) {
+		if (start == end || index == finders.length) {
+			return;
+		}
+		final TextWindow window = windows[index].reset(text, start, end);
+		if (!autoLinkers.get(index).isCandidate(window)) {
+			extract(index + 1, text, start, end, target);
+			return;
+		}
+		final AnchorFinder finder = finders[index];
+		finder.reset(window);
+		int position = 0;
+		while (finder.find()) {
+			extract(index + 1, text, start + position, start + finder.textEnd(), target);
+			finder.capture(span);
+			target.add(finder.createEntity(span, start));
+			position = finder.end();
+		}
+		extract(index + 1, text, start + position, end, target);
+	}
+}
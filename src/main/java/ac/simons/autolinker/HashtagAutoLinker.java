@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014-2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+/**
+ * Turns #hashtags into anchor elements. Hashtags are recognized the same way
+ * twitter does: A hashtag must contain at least one letter and must not be
+ * directly preceded by a letter or digit, nor followed by another hash sign
+ * or {@code ://}. The label of the anchor always uses the regular hash sign.
+ * <br>
+ * Only the text node is looked at. Chained behind a
+ * {@link TwitterUserAutoLinker}, the hashtag in {@code @foo#bar} is linked,
+ * as nothing precedes it in the text node after the mention. In a
+ * {@link CombinedAutoLinker}, it isn't.
+ *
+ * @author Michael J. Simons
+ */
+public final class HashtagAutoLinker implements AutoLinker {
+
+	/**
+	 * The placeholder for the hashtag in the url template.
+	 */
+	public static final String HASHTAG = "{hashtag}";
+
+	/**
+	 * The default url of a hashtag.
+	 */
+	public static final String DEFAULT_URL_TEMPLATE = "https://twitter.com/hashtag/" + HASHTAG;
+
+	private final LinkTemplate urlTemplate;
+
+	private final TwitterEntityFinder.Kind kind;
+
+	/**
+	 * Instantiates a new hashtag autolinker, linking to twitter.
+	 */
+	public HashtagAutoLinker() {
+		this(DEFAULT_URL_TEMPLATE);
+	}
+
+	/**
+	 * Instantiates a new hashtag autolinker with a custom url.
+	 *
+	 * @param urlTemplate The url of a hashtag, containing the
+	 *                    {@link #HASHTAG} placeholder at least once
+	 */
+	public HashtagAutoLinker(final String urlTemplate) {
+		this(LinkTemplate.compile(urlTemplate, HASHTAG), AnchorRenderer.defaults());
+	}
+
+	private HashtagAutoLinker(final LinkTemplate urlTemplate, final AnchorRenderer renderer) {
+		this.urlTemplate = urlTemplate;
+		this.kind = TwitterEntityFinder.Kind.hashtags(urlTemplate, renderer);
+	}
+
+	/**
+	 * Creates a new autolinker with the same url template, rendering
+	 * anchors with the given renderer.
+	 *
+	 * @param newRenderer The renderer to use
+	 * @return A new autolinker
+	 */
+	public HashtagAutoLinker withRenderer(final AnchorRenderer newRenderer) {
+		return new HashtagAutoLinker(urlTemplate, newRenderer);
+	}
+
+	/**
+	 * Hashtags need a hash sign, either the regular or the full width one.
+	 *
+	 * @return The trigger characters of this autolinker
+	 */
+	@Override
+	public String getTriggerCharacters() {
+		return "#\uFF03";
+	}
+
+	@Override
+	public List<Node> createLinks(final TextNode textNode) {
+		return newAnchorFinder().createLinks(textNode);
+	}
+
+	/**
+	 * @return A new finder for hashtags
+	 */
+	AnchorFinder newAnchorFinder() {
+		return new TwitterEntityFinder(List.of(kind));
+	}
+
+	/**
+	 * @return The hashtags as an entity of a {@link TwitterEntityFinder}
+	 */
+	TwitterEntityFinder.Kind getKind() {
+		return kind;
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.Function;
+
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+
+/**
+ * Links html read from a {@link Reader} and writes the result to a
+ * {@link Writer} without building a document. Markup is tokenized on the fly
+ * and copied as is, only text runs are buffered and handed to the
+ * autolinkers. Text inside anchors, scripts, styles and comments is never
+ * linked.
+ * <br>
+ * Memory use depends on the longest text run, not on the size of the input.
+ * Instances are meant to be used once.
+ *
+ * @author Michael J. Simons
+ */
+final class HtmlStreamLinker {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Longest tag name we care about.
+	 */
+	private static final int MAX_TAG_NAME_LENGTH = 8;
+
+	/**
+	 * Turns a text node into a list of nodes with links.
+	 */
+	private final Function<TextNode, List<Node>> linker;
+
+	private final Reader in;
+
+	private final Writer out;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+
+	private int position;
+
+	private int limit;
+
+	/**
+	 * A single character that has been read but not consumed.
+	 */
+	private int pushedBack = -1;
+
+	/**
+	 * The current text run.
+	 */
+	private final StringBuilder text = new StringBuilder();
+
+	private final StringBuilder tagName = new StringBuilder(MAX_TAG_NAME_LENGTH);
+
+	/**
+	 * Number of currently open anchors.
+	 */
+	private int anchorDepth;
+
+	HtmlStreamLinker(final Function<TextNode, List<Node>> linker, final Reader in, final Writer out) {
+		this.linker = linker;
+		this.in = in;
+		this.out = out;
+	}
+
+	/**
+	 * Reads the whole input and writes the linked html. The writer is
+	 * flushed but not closed.
+	 *
+	 * @throws IOException If reading or writing fails
+	 */
+	void run() throws IOException {
+		int c;
+		while ((c = read()) >= 0) {
+			if (c == '<' && isMarkupStart(peek())) {
+				flushText();
+				out.write('<');
+				copyMarkup();
+			} else {
+				text.append((char) c);
+			}
+		}
+		flushText();
+		out.flush();
+	}
+
+	/**
+	 * Links the current text run. The run is written as is if nothing has
+	 * been linked, otherwise it is decoded, linked and escaped again.
+	 */
+	private void flushText() throws IOException {
+		if (text.length() == 0) {
+			return;
+		}
+		if (anchorDepth > 0) {
+			out.append(text);
+		} else {
+			final String raw = text.toString();
+			final TextNode textNode = new TextNode(raw.indexOf('&') < 0 ? raw : Parser.unescapeEntities(raw, false));
+			final List<Node> nodes = linker.apply(textNode);
+			if (nodes.size() == 1 && nodes.get(0) == textNode) {
+				out.write(raw);
+			} else {
+				final StringBuilder html = new StringBuilder(raw.length() + 64 * nodes.size());
+				HtmlWriter.writeNodes(nodes, html);
+				out.append(html);
+			}
+		}
+		text.setLength(0);
+	}
+
+	/**
+	 * Copies a tag, comment or declaration. The opening angle bracket has
+	 * already been written.
+	 */
+	private void copyMarkup() throws IOException {
+		final int c = read();
+		out.write(c);
+		if (c == '!') {
+			if (copyIfNext('-') && copyIfNext('-')) {
+				copyUntil("-->");
+			} else {
+				copyUntil(">");
+			}
+		} else if (c == '?') {
+			copyUntil(">");
+		} else {
+			final boolean endTag = c == '/';
+			tagName.setLength(0);
+			if (!endTag) {
+				tagName.append(Character.toLowerCase((char) c));
+			}
+			final boolean selfClosing = copyTag();
+			final String name = tagName.toString();
+			if ("a".equals(name)) {
+				if (endTag) {
+					anchorDepth = Math.max(0, anchorDepth - 1);
+				} else if (!selfClosing) {
+					++anchorDepth;
+				}
+			} else if (!endTag && !selfClosing && ("script".equals(name) || "style".equals(name))) {
+				copyRawText(name);
+			}
+		}
+	}
+
+	/**
+	 * Copies the rest of a tag, remembering its name.
+	 *
+	 * @return True if the tag is self closing
+	 */
+	private boolean copyTag() throws IOException {
+		boolean inName = true;
+		int previous = -1;
+		int c;
+		while ((c = read()) >= 0) {
+			out.write(c);
+			if (c == '>') {
+				return previous == '/';
+			}
+			if (inName) {
+				if (Character.isWhitespace(c) || c == '/') {
+					inName = false;
+				} else if (tagName.length() <= MAX_TAG_NAME_LENGTH) {
+					tagName.append(Character.toLowerCase((char) c));
+				}
+			} else if ((c == '"' || c == '\'') && previous == '=') {
+				// Quoted attribute values may contain angle brackets
+				copyUntil(String.valueOf((char) c));
+			}
+			if (!Character.isWhitespace(c)) {
+				previous = c;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Copies the content of a script or style element and its end tag.
+	 *
+	 * @param name The name of the element
+	 */
+	private void copyRawText(final String name) throws IOException {
+		final String endTag = "</" + name;
+		// The characters matched so far, as they have been read
+		final char[] matchedChars = new char[endTag.length()];
+		int matched = 0;
+		int c;
+		while ((c = read()) >= 0) {
+			if (Character.toLowerCase(c) == endTag.charAt(matched)) {
+				matchedChars[matched] = (char) c;
+				if (++matched < endTag.length()) {
+					continue;
+				}
+				final int next = peek();
+				out.write(matchedChars);
+				if (next < 0 || Character.isWhitespace(next) || next == '/' || next == '>') {
+					tagName.setLength(0);
+					copyTag();
+					return;
+				}
+			} else {
+				out.write(matchedChars, 0, matched);
+				if (c == '<') {
+					matchedChars[0] = '<';
+					matched = 1;
+					continue;
+				}
+				out.write(c);
+			}
+			matched = 0;
+		}
+		out.write(matchedChars, 0, matched);
+	}
+
+	private boolean copyIfNext(final char expected) throws IOException {
+		final int c = read();
+		if (c == expected) {
+			out.write(c);
+			return true;
+		}
+		pushedBack = c;
+		return false;
+	}
+
+	/**
+	 * Copies everything up to and including {@code terminator}.
+	 *
+	 * @param terminator The terminator, a handful of characters at most
+	 */
+	private void copyUntil(final String terminator) throws IOException {
+		final int length = terminator.length();
+		final char[] tail = new char[length];
+		int seen = 0;
+		int c;
+		while ((c = read()) >= 0) {
+			out.write(c);
+			System.arraycopy(tail, 1, tail, 0, length - 1);
+			tail[length - 1] = (char) c;
+			if (++seen >= length && endsWith(tail, terminator)) {
+				return;
+			}
+		}
+	}
+
+	private static boolean endsWith(final char[] tail, final String terminator) {
+		for (int i = 0; i < tail.length; ++i) {
+			if (tail[i] != terminator.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int read() throws IOException {
+		if (pushedBack >= 0) {
+			final int rv = pushedBack;
+			pushedBack = -1;
+			return rv;
+		}
+		if (position == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position++];
+	}
+
+	private int peek() throws IOException {
+		final int rv = read();
+		pushedBack = rv;
+		return rv;
+	}
+
+	private static boolean isMarkupStart(final int c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '/' || c == '!' || c == '?';
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+/**
+ * Writes the nodes created by autolinkers as html, without the need of a
+ * surrounding document.
+ *
+ * @author Michael J. Simons
+ */
+final class HtmlWriter {
+
+	private HtmlWriter() {
+	}
+
+	/**
+	 * Writes a list of nodes.
+	 *
+	 * @param nodes  The nodes to write
+	 * @param target The target to write to
+	 */
+	static void writeNodes(final List<Node> nodes, final StringBuilder target) {
+		for (Node node : nodes) {
+			writeNode(node, target);
+		}
+	}
+
+	/**
+	 * Writes a single node. Text is escaped, elements are written with all
+	 * their attributes and children. All other nodes are written as jsoup
+	 * would write them.
+	 *
+	 * @param node   The node to write
+	 * @param target The target to write to
+	 */
+	static void writeNode(final Node node, final StringBuilder target) {
+		if (node instanceof TextNode) {
+			escape(((TextNode) node).getWholeText(), target, false);
+		} else if (node instanceof Element) {
+			final Element element = (Element) node;
+			target.append('<').append(element.tagName());
+			for (Attribute attribute : element.attributes()) {
+				target.append(' ').append(attribute.getKey()).append("=\"");
+				escape(attribute.getValue(), target, true);
+				target.append('"');
+			}
+			target.append('>');
+			writeNodes(element.childNodes(), target);
+			target.append("</").append(element.tagName()).append('>');
+		} else {
+			target.append(node.outerHtml());
+		}
+	}
+
+	/**
+	 * Escapes the html special characters in {@code text}.
+	 *
+	 * @param text        The text to escape
+	 * @param target      The target to write to
+	 * @param inAttribute True if {@code text} is an attribute value and
+	 *                    double quotes must be escaped as well
+	 */
+	static void escape(final CharSequence text, final StringBuilder target, final boolean inAttribute) {
+		escape(text, 0, text.length(), target, inAttribute);
+	}
+
+	/**
+	 * Escapes the html special characters in a range of {@code text}.
+	 *
+	 * @param text        The text to escape
+	 * @param start       Start of the range, inclusive
+	 * @param end         End of the range, exclusive
+	 * @param target      The target to write to
+	 * @param inAttribute True if {@code text} is an attribute value
+	 */
+	static void escape(final CharSequence text, final int start, final int end, final StringBuilder target, final boolean inAttribute) {
+		int unescaped = start;
+		for (int i = start; i < end; ++i) {
+			final String replacement = replacement(text.charAt(i), inAttribute);
+			if (replacement != null) {
+				target.append(text, unescaped, i).append(replacement);
+				unescaped = i + 1;
+			}
+		}
+		target.append(text, unescaped, end);
+	}
+
+	/**
+	 * Escapes a single character.
+	 *
+	 * @param c           The character to escape
+	 * @param target      The target to write to
+	 * @param inAttribute True if {@code c} is part of an attribute value
+	 */
+	static void escape(final char c, final StringBuilder target, final boolean inAttribute) {
+		final String replacement = replacement(c, inAttribute);
+		if (replacement == null) {
+			target.append(c);
+		} else {
+			target.append(replacement);
+		}
+	}
+
+	/**
+	 * Checks if {@code text} contains anything that needs to be escaped.
+	 *
+	 * @param text The text to check
+	 * @return True if {@link #escape(java.lang.CharSequence, java.lang.StringBuilder, boolean)} would change {@code text}
+	 */
+	static boolean needsEscaping(final CharSequence text) {
+		for (int i = 0; i < text.length(); ++i) {
+			if (replacement(text.charAt(i), false) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String replacement(final char c, final boolean inAttribute) {
+		switch (c) {
+			case '&':
+				return "&amp;";
+			case '<':
+				return "&lt;";
+			case '>':
+				return "&gt;";
+			case '"':
+				return inAttribute ? "&quot;" : null;
+			default:
+				return null;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Entities.EscapeMode;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+/**
+ * Links a document that is edited over time, see
+ * {@link AutoLinkService#newIncrementalLinker()}. The top level nodes of the
+ * body are the blocks of a document, usually paragraphs. The linker keeps
+ * the linked html of all blocks of the previous run, keyed by their
+ * original html. On the next run, only blocks that are new or have changed
+ * are handed to the autolinkers, all others are reused. The result is the
+ * same as {@link AutoLinkService#addLinks(java.lang.String, java.lang.String)}.
+ * <br>
+ * The document is still parsed as a whole, but parsing is cheap compared
+ * to running the autolinkers. Blocks are independent of each other, as no
+ * text node spans more than one block. The linker keeps about twice the
+ * html of the previous run. It is not thread safe, keep one per edited
+ * document.
+ *
+ * @author Michael J. Simons
+ */
+public final class IncrementalLinker {
+
+	private final AutoLinkService autoLinkService;
+
+	private final List<AutoLinker> autoLinkers;
+
+	private final AutoLinkListener listener;
+
+	private final AutoLinkBudget budget;
+
+	/**
+	 * Linked html by original html of the blocks of the previous run.
+	 */
+	private Map<String, String> blocks = new HashMap<>();
+
+	private int reusedBlocks;
+
+	private int linkedBlocks;
+
+	IncrementalLinker(final AutoLinkService autoLinkService, final List<AutoLinker> autoLinkers, final AutoLinkListener listener, final AutoLinkBudget budget) {
+		this.autoLinkService = autoLinkService;
+		this.autoLinkers = autoLinkers;
+		this.listener = listener;
+		this.budget = budget;
+	}
+
+	/**
+	 * Applies all autolinkers to the blocks of the given html that have
+	 * changed since the previous call.
+	 *
+	 * @param textWithLinkableStuff The current version of the document
+	 * @param baseUrl               An optional base url for resolving relative urls
+	 * @return The text with all recognizable URLs turned into links
+	 * @see AutoLinkService#addLinks(java.lang.String, java.lang.String)
+	 */
+	public String addLinks(final String textWithLinkableStuff, final String baseUrl) {
+		reusedBlocks = 0;
+		linkedBlocks = 0;
+		if (textWithLinkableStuff == null || textWithLinkableStuff.trim().isEmpty()) {
+			blocks = new HashMap<>();
+			return textWithLinkableStuff;
+		}
+
+		final BudgetTracker tracker = BudgetTracker.start(budget);
+		try {
+			long start = listener == null ? 0 : System.nanoTime();
+			final Document document = Jsoup.parseBodyFragment(textWithLinkableStuff, Optional.ofNullable(baseUrl).orElse(""));
+			// The original html of the blocks is used as key only
+			document
+				.outputSettings()
+				.prettyPrint(false)
+				.escapeMode(EscapeMode.xhtml)
+				.charset(StandardCharsets.UTF_8);
+			if (listener != null) {
+				listener.phaseCompleted(AutoLinkListener.Phase.PARSE, System.nanoTime() - start);
+				start = System.nanoTime();
+			}
+
+			final Map<String, String> newBlocks = new HashMap<>();
+			final StringBuilder html = new StringBuilder(textWithLinkableStuff.length() + 64);
+			for (Node block : document.body().childNodes().toArray(new Node[0])) {
+				final String original = block.outerHtml();
+				String linked = newBlocks.get(original);
+				if (linked == null) {
+					linked = blocks.get(original);
+				}
+				if (linked == null) {
+					linked = link(block);
+					++linkedBlocks;
+					if (!BudgetTracker.isCurrentExceeded()) {
+						newBlocks.put(original, linked);
+					}
+				} else {
+					newBlocks.put(original, linked);
+					++reusedBlocks;
+				}
+				html.append(linked);
+			}
+			blocks = newBlocks;
+
+			final String rv = html.toString().trim();
+			if (listener != null) {
+				listener.phaseCompleted(AutoLinkListener.Phase.LINK, System.nanoTime() - start);
+				listener.outputWritten(rv.length());
+			}
+			return rv;
+		} finally {
+			BudgetTracker.stop(tracker);
+		}
+	}
+
+	/**
+	 * @return Number of blocks reused by the last call to
+	 *         {@link #addLinks(java.lang.String, java.lang.String)}
+	 */
+	public int getReusedBlocks() {
+		return reusedBlocks;
+	}
+
+	/**
+	 * @return Number of blocks linked by the last call to
+	 *         {@link #addLinks(java.lang.String, java.lang.String)}
+	 */
+	public int getLinkedBlocks() {
+		return linkedBlocks;
+	}
+
+	/**
+	 * Links a single block and returns its html without trimming.
+	 */
+	private String link(final Node block) {
+		final StringBuilder rv = new StringBuilder();
+		try {
+			final BodyWriter writer = new BodyWriter(rv, false);
+			if (block instanceof TextNode) {
+				for (Node node : autoLinkService.linkTextNode(autoLinkers, (TextNode) block)) {
+					writer.writeNode(node);
+				}
+			} else {
+				// Anchors are skipped, just as in AutoLinkService#applyAutoLinkers
+				if (block instanceof Element && !((Element) block).tagName().equals("a")) {
+					autoLinkService.applyAutoLinkers(autoLinkers, (Element) block);
+				}
+				writer.writeNode(block);
+			}
+		} catch (IOException e) {
+			// Not thrown by a StringBuilder
+			throw new UncheckedIOException(e);
+		}
+		return rv.toString();
+	}
+}
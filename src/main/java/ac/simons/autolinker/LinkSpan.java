@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+/**
+ * The offsets of a link found by an {@link AnchorFinder}. A span keeps
+ * everything needed to write the anchor of a link after the finder has moved
+ * on. Instances are reusable.
+ *
+ * @author Michael J. Simons
+ */
+final class LinkSpan {
+
+	/**
+	 * Number of additional offsets a finder may store.
+	 */
+	static final int MAX_OFFSETS = 3;
+
+	/**
+	 * Start of the linked text, inclusive.
+	 */
+	private int start;
+
+	/**
+	 * End of the linked text, exclusive.
+	 */
+	private int end;
+
+	/**
+	 * Offsets specific to the finder, for example of groups of a match.
+	 */
+	private final int[] offsets = new int[MAX_OFFSETS];
+
+	/**
+	 * Index of the finder that found this span, used when spans of several
+	 * finders are combined.
+	 */
+	private int source;
+
+	int getStart() {
+		return start;
+	}
+
+	int getEnd() {
+		return end;
+	}
+
+	/**
+	 * Sets the range of the linked text.
+	 *
+	 * @param newStart Start of the linked text, inclusive
+	 * @param newEnd   End of the linked text, exclusive
+	 */
+	void set(final int newStart, final int newEnd) {
+		this.start = newStart;
+		this.end = newEnd;
+	}
+
+	int getOffset(final int index) {
+		return offsets[index];
+	}
+
+	void setOffset(final int index, final int offset) {
+		this.offsets[index] = offset;
+	}
+
+	int getSource() {
+		return source;
+	}
+
+	void setSource(final int newSource) {
+		this.source = newSource;
+	}
+
+	/**
+	 * @param other The span to compare with
+	 * @return True if both spans share at least one character
+	 */
+	boolean overlaps(final LinkSpan other) {
+		return this.start < other.end && other.start < this.end;
+	}
+
+	/**
+	 * Copies all offsets of {@code other} into this span.
+	 *
+	 * @param other The span to copy
+	 */
+	void copyFrom(final LinkSpan other) {
+		this.start = other.start;
+		this.end = other.end;
+		System.arraycopy(other.offsets, 0, this.offsets, 0, MAX_OFFSETS);
+		this.source = other.source;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A precompiled template for hrefs and labels like
+ * {@code https://twitter.com/{username}}. The template is split into its
+ * literal parts once, the literal parts are escaped once, so that applying
+ * the template is just appending.
+ *
+ * @author Michael J. Simons
+ */
+final class LinkTemplate {
+
+	private final String template;
+
+	/**
+	 * The literal parts, one more than there are placeholders.
+	 */
+	private final String[] literals;
+
+	private final String[] escapedLiterals;
+
+	private final String[] escapedAttributeLiterals;
+
+	private LinkTemplate(final String template, final String[] literals) {
+		this.template = template;
+		this.literals = literals;
+		this.escapedLiterals = new String[literals.length];
+		this.escapedAttributeLiterals = new String[literals.length];
+		for (int i = 0; i < literals.length; ++i) {
+			final StringBuilder escaped = new StringBuilder();
+			HtmlWriter.escape(literals[i], escaped, false);
+			this.escapedLiterals[i] = escaped.toString();
+			escaped.setLength(0);
+			HtmlWriter.escape(literals[i], escaped, true);
+			this.escapedAttributeLiterals[i] = escaped.toString();
+		}
+	}
+
+	/**
+	 * Compiles a template.
+	 *
+	 * @param template    The template
+	 * @param placeholder The placeholder, for example {@code {username}}
+	 * @return The compiled template
+	 * @throws IllegalArgumentException If {@code template} doesn't contain
+	 *                                  {@code placeholder}
+	 */
+	static LinkTemplate compile(final String template, final String placeholder) {
+		final List<String> literals = new ArrayList<>();
+		int position = 0;
+		int index;
+		while ((index = template.indexOf(placeholder, position)) >= 0) {
+			literals.add(template.substring(position, index));
+			position = index + placeholder.length();
+		}
+		if (literals.isEmpty()) {
+			throw new IllegalArgumentException("Template '" + template + "' doesn't contain " + placeholder);
+		}
+		literals.add(template.substring(position));
+		return new LinkTemplate(template, literals.toArray(new String[0]));
+	}
+
+	/**
+	 * Replaces all placeholders with {@code value}.
+	 *
+	 * @param value The value of the placeholder
+	 * @return The applied template
+	 */
+	String apply(final CharSequence value) {
+		final StringBuilder rv = new StringBuilder(template.length() + value.length() * (literals.length - 1));
+		rv.append(literals[0]);
+		for (int i = 1; i < literals.length; ++i) {
+			rv.append(value).append(literals[i]);
+		}
+		return rv.toString();
+	}
+
+	/**
+	 * Writes the applied template as html.
+	 *
+	 * @param text        The text containing the value of the placeholder
+	 * @param start       Start of the value, inclusive
+	 * @param end         End of the value, exclusive
+	 * @param target      The target to write to
+	 * @param inAttribute True if the template is written as an attribute value
+	 */
+	void write(final CharSequence text, final int start, final int end, final StringBuilder target, final boolean inAttribute) {
+		final String[] escaped = inAttribute ? escapedAttributeLiterals : escapedLiterals;
+		target.append(escaped[0]);
+		for (int i = 1; i < escaped.length; ++i) {
+			HtmlWriter.escape(text, start, end, target, inAttribute);
+			target.append(escaped[i]);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return template;
+	}
+}
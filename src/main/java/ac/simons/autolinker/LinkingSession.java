@@ -0,0 +1,196 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+
+/**
+ * A reusable session for linking many plain texts on one thread, see
+ * {@link AutoLinkService#newSession()}. The session keeps matchers, scanners
+ * and buffers between calls. As long as all autolinkers are the ones from
+ * this library, texts are linked by offsets and the html is written
+ * directly, without creating any nodes or intermediate strings. The result
+ * is the same as {@link AutoLinkService#addLinksToPlainText(java.lang.CharSequence)}.
+ * <br>
+ * Sessions are not thread safe. Keep one per thread, for example in a
+ * {@link ThreadLocal}.
+ *
+ * @author Michael J. Simons
+ */
+public final class LinkingSession {
+
+	private final AutoLinkService autoLinkService;
+
+	private final List<AutoLinker> autoLinkers;
+
+	/**
+	 * One finder per autolinker or {@literal null} if the session cannot
+	 * take the direct path.
+	 */
+	private final AnchorFinder[] finders;
+
+	/**
+	 * One window per autolinker, the windows of the autolinkers further
+	 * down the list are moved while an autolinker looks at its own window.
+	 */
+	private final TextWindow[] windows;
+
+	private final StringBuilder buffer = new StringBuilder(256);
+
+	private int numberOfAnchors;
+
+	/**
+	 * Created when entities are extracted for the first time.
+	 */
+	private EntityExtractor entityExtractor;
+
+	LinkingSession(final AutoLinkService autoLinkService, final List<AutoLinker> autoLinkers, final boolean direct) {
+		this.autoLinkService = autoLinkService;
+		this.autoLinkers = autoLinkers;
+		this.finders = direct ? createFinders(autoLinkers) : null;
+		this.windows = new TextWindow[finders == null ? 0 : finders.length];
+		for (int i = 0; i < windows.length; ++i) {
+			windows[i] = new TextWindow();
+		}
+	}
+
+	private static AnchorFinder[] createFinders(final List<AutoLinker> autoLinkers) {
+		final AnchorFinder[] rv = new AnchorFinder[autoLinkers.size()];
+		for (int i = 0; i < rv.length; ++i) {
+			rv[i] = AnchorFinder.of(autoLinkers.get(i));
+			if (rv[i] == null) {
+				return null;
+			}
+		}
+		return rv;
+	}
+
+	/**
+	 * @return True if texts are linked without creating nodes
+	 */
+	public boolean isDirect() {
+		return finders != null;
+	}
+
+	/**
+	 * Applies all autolinkers to plain text.
+	 *
+	 * @param plainText A plain text that may contain urls and such
+	 * @return The escaped text with urls turned into anchor tags or
+	 *         {@literal null} if {@code plainText} is {@literal null}
+	 * @see AutoLinkService#addLinksToPlainText(java.lang.CharSequence)
+	 */
+	public String addLinksToPlainText(final CharSequence plainText) {
+		if (plainText == null) {
+			return null;
+		}
+		if (finders == null) {
+			return autoLinkService.addLinksToPlainText(plainText);
+		}
+		buffer.setLength(0);
+		// Nothing linked and nothing to escape
+		if (!link(plainText, buffer) && buffer.length() == plainText.length()) {
+			return plainText.toString();
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Applies all autolinkers to plain text and appends the html to
+	 * {@code target}. Nothing is allocated on the direct path, apart from
+	 * growing {@code target}.
+	 *
+	 * @param plainText A plain text that may contain urls and such
+	 * @param target    The target to append the escaped and linked text to
+	 */
+	public void addLinksToPlainText(final CharSequence plainText, final StringBuilder target) {
+		if (plainText == null) {
+			return;
+		}
+		if (finders == null) {
+			target.append(autoLinkService.addLinksToPlainText(plainText));
+		} else {
+			link(plainText, target);
+		}
+	}
+
+	/**
+	 * Extracts the entities of plain text, reusing the finders of this
+	 * session between calls.
+	 *
+	 * @param plainText A plain text that may contain urls and such
+	 * @return The entities ordered by their start, empty if
+	 *         {@code plainText} is {@literal null}
+	 * @see AutoLinkService#extractEntities(java.lang.CharSequence)
+	 */
+	public List<AutoLinkEntity> extractEntities(final CharSequence plainText) {
+		if (plainText == null) {
+			return List.of();
+		}
+		if (entityExtractor == null) {
+			entityExtractor = new EntityExtractor(autoLinkers);
+		}
+		return entityExtractor.extract(plainText);
+	}
+
+	/**
+	 * @return True if at least one link has been written
+	 */
+	private boolean link(final CharSequence text, final StringBuilder target) {
+		numberOfAnchors = 0;
+		final int mark = target.length();
+		try {
+			link(0, text, 0, text.length(), target);
+		} catch (StackOverflowError e) {
+			// Left unlinked, just like AutoLinkService#linkTextNode does
+			target.setLength(mark);
+			HtmlWriter.escape(text, 0, text.length(), target, false);
+			numberOfAnchors = 0;
+		}
+		return numberOfAnchors > 0;
+	}
+
+	/**
+	 * Applies the autolinker at {@code index} to a range of {@code text}.
+	 * The ranges of text in between its links are handed to the next
+	 * autolinker, just like the text nodes created by an autolinker are
+	 * handed to the next one.
+	 */
+	private void link(final int index, final CharSequence text, final int start, final int end, final StringBuilder target) {
+		if (start == end) {
+			return;
+		}
+		if (index == finders.length) {
+			HtmlWriter.escape(text, start, end, target, false);
+			return;
+		}
+		final TextWindow window = windows[index].reset(text, start, end);
+		if (!autoLinkers.get(index).isCandidate(window)) {
+			link(index + 1, text, start, end, target);
+			return;
+		}
+		final AnchorFinder finder = finders[index];
+		finder.reset(window);
+		int position = 0;
+		while (finder.find()) {
+			link(index + 1, text, start + position, start + finder.textEnd(), target);
+			finder.writeAnchor(target);
+			++numberOfAnchors;
+			position = finder.end();
+		}
+		link(index + 1, text, start + position, end, target);
+	}
+}
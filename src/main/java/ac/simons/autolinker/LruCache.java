@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded, thread safe least recently used cache. The entries are
+ * spread over several segments, each segment is an access ordered
+ * {@link LinkedHashMap} guarded by its own lock, so that threads working on
+ * different keys rarely block each other. Eviction is least recently used
+ * per segment.
+ *
+ * @author Michael J. Simons
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+final class LruCache<K, V> {
+
+	private static final int MAX_SEGMENTS = 16;
+
+	private final List<Segment<K, V>> segments;
+
+	private final int mask;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maximumSize The maximum number of entries, must be positive
+	 */
+	LruCache(final int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("Maximum size must be positive");
+		}
+		int numberOfSegments = 1;
+		while (numberOfSegments < MAX_SEGMENTS && numberOfSegments * 2 * MAX_SEGMENTS <= maximumSize) {
+			numberOfSegments *= 2;
+		}
+		this.segments = new ArrayList<>(numberOfSegments);
+		for (int i = 0; i < numberOfSegments; ++i) {
+			final int capacity = maximumSize / numberOfSegments + (i < maximumSize % numberOfSegments ? 1 : 0);
+			segments.add(new Segment<>(capacity, evictions));
+		}
+		this.mask = numberOfSegments - 1;
+	}
+
+	/**
+	 * @param key The key to look up
+	 * @return The cached value or {@literal null}
+	 */
+	V get(final K key) {
+		final Segment<K, V> segment = segmentFor(key);
+		final V rv;
+		synchronized (segment) {
+			rv = segment.get(key);
+		}
+		(rv == null ? misses : hits).increment();
+		return rv;
+	}
+
+	/**
+	 * Stores a value, possibly evicting the least recently used entry of
+	 * the segment.
+	 *
+	 * @param key   The key
+	 * @param value The value to store
+	 */
+	void put(final K key, final V value) {
+		final Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	/**
+	 * Removes all entries. The statistics are kept.
+	 */
+	void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return The current statistics of this cache
+	 */
+	AutoLinkCache.Statistics getStatistics() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return new AutoLinkCache.Statistics(hits.sum(), misses.sum(), evictions.sum(), size);
+	}
+
+	private Segment<K, V> segmentFor(final K key) {
+		final int hash = key.hashCode();
+		return segments.get((hash ^ (hash >>> 16)) & mask);
+	}
+
+	/**
+	 * A segment of the cache, must only be accessed while holding its lock.
+	 */
+	private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		private final transient LongAdder evictions;
+
+		Segment(final int capacity, final LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
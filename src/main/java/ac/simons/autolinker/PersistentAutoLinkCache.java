@@ -0,0 +1,467 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * A cache for the results of an {@link AutoLinkService} that is stored in a
+ * memory mapped file, see
+ * {@link AutoLinkService#withPersistentCache(ac.simons.autolinker.PersistentAutoLinkCache)}.
+ * The cache survives restarts and can be shared by several JVMs on the same
+ * host.
+ * <br>
+ * The file consists of a header and a fixed number of slots of a fixed size.
+ * Slots are grouped into sets of four, a key can only be stored in one set.
+ * If all slots of a set are taken, the slot written least recently is
+ * overwritten. Results that don't fit into a slot are not cached. Every
+ * slot carries a checksum, corrupt or partially written slots are treated
+ * as missing and overwritten eventually.
+ * <br>
+ * Lookups don't lock anything. Writes lock the set in the file, so that
+ * writers in different JVMs don't interfere, and skip writing if the set is
+ * locked by another cache of the same JVM.
+ * <br>
+ * Unlike {@link AutoLinkCache}, the cache cannot tell services apart. All
+ * keys are prefixed with a namespace, which must be different for services
+ * with differently configured autolinkers. Change the namespace as well
+ * when updating this library, if you want links created by the new version.
+ *
+ * @author Michael J. Simons
+ */
+public final class PersistentAutoLinkCache implements Closeable {
+
+	private static final long MAGIC = 0x4155544f4c4e4b31L;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 64;
+
+	private static final int WAYS = 4;
+
+	/**
+	 * Checksum, key hash, stamp, key length and value length.
+	 */
+	private static final int ENTRY_HEADER_SIZE = 4 + 8 + 8 + 4 + 4;
+
+	private static final int MIN_SLOT_SIZE = 256;
+
+	private static final int NUMBER_OF_LOCKS = 64;
+
+	private static final char KIND_HTML = 'h';
+
+	private static final char KIND_PLAIN_TEXT = 'p';
+
+	private final Path file;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer buffer;
+
+	private final int numberOfSets;
+
+	private final int slotSize;
+
+	private final String namespace;
+
+	/**
+	 * Guard writes to the same set from within this JVM.
+	 */
+	private final Object[] locks = new Object[NUMBER_OF_LOCKS];
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder corruptSlots = new LongAdder();
+
+	private volatile boolean closed;
+
+	private PersistentAutoLinkCache(final Path file, final FileChannel channel, final MappedByteBuffer buffer, final int numberOfSets, final int slotSize, final String namespace) {
+		this.file = file;
+		this.channel = channel;
+		this.buffer = buffer;
+		this.numberOfSets = numberOfSets;
+		this.slotSize = slotSize;
+		this.namespace = namespace;
+		for (int i = 0; i < locks.length; ++i) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * Opens or creates a cache file. A file that doesn't exist is created
+	 * with the given layout, an existing file must have been created with
+	 * the same layout. A file with a corrupt header or from another version
+	 * of this library is replaced by a new file. As other JVMs may still
+	 * have the old file mapped, it is never changed in place: The new file
+	 * is prepared next to it and moved over it, JVMs that have the old file
+	 * open keep using it until they open the cache again.
+	 *
+	 * @param file          The file to use
+	 * @param numberOfSlots The number of slots, rounded up to a multiple of
+	 *                      four
+	 * @param slotSize      The size of a slot in bytes, at least 256. Keys and
+	 *                      values are stored UTF-8 encoded, a result is only
+	 *                      cached if the text, base url, namespace and the
+	 *                      result fit into one slot.
+	 * @param namespace     The namespace of all keys
+	 * @return An open cache
+	 * @throws IOException If the file cannot be opened or has a different
+	 *                     layout
+	 */
+	public static PersistentAutoLinkCache open(final Path file, final int numberOfSlots, final int slotSize, final String namespace) throws IOException {
+		if (numberOfSlots <= 0) {
+			throw new IllegalArgumentException("The number of slots must be positive");
+		}
+		if (slotSize < MIN_SLOT_SIZE) {
+			throw new IllegalArgumentException("Slots must have at least " + MIN_SLOT_SIZE + " bytes");
+		}
+		if (namespace == null) {
+			throw new IllegalArgumentException("A namespace is required");
+		}
+		final int numberOfSets = (numberOfSlots + WAYS - 1) / WAYS;
+		final long size = HEADER_SIZE + (long) numberOfSets * WAYS * slotSize;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A cache file cannot be larger than " + Integer.MAX_VALUE + " bytes");
+		}
+
+		PersistentAutoLinkCache rv = tryOpen(file, numberOfSets, slotSize, size, namespace);
+		if (rv == null) {
+			replaceFile(file, numberOfSets, slotSize, size);
+			rv = tryOpen(file, numberOfSets, slotSize, size, namespace);
+		}
+		if (rv == null) {
+			throw new IOException(file + " has been replaced by an invalid file while opening it");
+		}
+		return rv;
+	}
+
+	/**
+	 * Opens a file with a valid header or creates a new, empty one in place.
+	 *
+	 * @return An open cache or {@literal null} if the file has to be replaced
+	 */
+	private static PersistentAutoLinkCache tryOpen(final Path file, final int numberOfSets, final int slotSize, final long size, final String namespace) throws IOException {
+		final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			boolean replace = false;
+			final FileLock lock = channel.lock(0, HEADER_SIZE, false);
+			try {
+				final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				channel.read(header, 0);
+				header.flip();
+				if (isValidHeader(header)) {
+					if (header.getInt(12) != numberOfSets || header.getInt(16) != slotSize) {
+						throw new IOException(String.format("%s has been created with %d slots of %d bytes", file, header.getInt(12) * WAYS, header.getInt(16)));
+					}
+				} else if (channel.size() == 0) {
+					// Nobody can have mapped an empty file
+					initialize(channel, numberOfSets, slotSize, size);
+				} else {
+					replace = true;
+				}
+			} finally {
+				lock.release();
+			}
+			if (replace) {
+				channel.close();
+				return null;
+			}
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			return new PersistentAutoLinkCache(file, channel, buffer, numberOfSets, slotSize, namespace);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Header: Magic, version, number of sets, slot size and a checksum of
+	 * the former.
+	 */
+	private static boolean isValidHeader(final ByteBuffer header) {
+		if (header.remaining() < HEADER_SIZE || header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+			return false;
+		}
+		final CRC32C crc = new CRC32C();
+		crc.update(header.array(), 0, 20);
+		return header.getInt(20) == (int) crc.getValue();
+	}
+
+	/**
+	 * Writes the header of an empty file and extends it to its size.
+	 */
+	private static void initialize(final FileChannel channel, final int numberOfSets, final int slotSize, final long size) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putLong(MAGIC).putInt(VERSION).putInt(numberOfSets).putInt(slotSize);
+		final CRC32C crc = new CRC32C();
+		crc.update(header.array(), 0, 20);
+		header.putInt((int) crc.getValue());
+		header.clear();
+		channel.write(header, 0);
+		channel.write(ByteBuffer.allocate(1), size - 1);
+	}
+
+	/**
+	 * Replaces a file with a new, empty cache file without touching the
+	 * content of the old one, which may still be mapped by other JVMs.
+	 */
+	private static void replaceFile(final Path file, final int numberOfSets, final int slotSize, final long size) throws IOException {
+		final Path temporaryFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+				initialize(channel, numberOfSets, slotSize, size);
+			}
+			try {
+				Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	/**
+	 * @return The file of this cache
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * @return The namespace of all keys
+	 */
+	public String getNamespace() {
+		return namespace;
+	}
+
+	/**
+	 * Statistics of this instance. The size is the number of occupied slots
+	 * in the file, including the ones written by other JVMs, and is counted
+	 * on every call.
+	 *
+	 * @return Statistics of this instance
+	 */
+	public AutoLinkCache.Statistics getStatistics() {
+		int size = 0;
+		for (int slot = 0; slot < numberOfSets * WAYS; ++slot) {
+			if (buffer.getInt(slotOffset(slot) + 20) != 0) {
+				++size;
+			}
+		}
+		return new AutoLinkCache.Statistics(hits.sum(), misses.sum(), evictions.sum(), size);
+	}
+
+	/**
+	 * @return Number of corrupt or partially written slots found by lookups
+	 *         of this instance
+	 */
+	public long getCorruptSlots() {
+		return corruptSlots.sum();
+	}
+
+	/**
+	 * Writes all changes to the file and closes it. The cache doesn't find
+	 * or store anything afterwards.
+	 *
+	 * @throws IOException If the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		buffer.force();
+		channel.close();
+	}
+
+	String getHtml(final String text, final String baseUrl) {
+		return get(key(KIND_HTML, text, baseUrl));
+	}
+
+	void putHtml(final String text, final String baseUrl, final String html) {
+		put(key(KIND_HTML, text, baseUrl), html);
+	}
+
+	String getPlainText(final String text) {
+		return get(key(KIND_PLAIN_TEXT, text, null));
+	}
+
+	void putPlainText(final String text, final String html) {
+		put(key(KIND_PLAIN_TEXT, text, null), html);
+	}
+
+	/**
+	 * The key consists of the namespace, the kind of result, the base url
+	 * and the text, separated by characters that cannot be part of a url.
+	 */
+	private byte[] key(final char kind, final String text, final String baseUrl) {
+		final StringBuilder rv = new StringBuilder(namespace.length() + text.length() + 8);
+		rv.append(namespace).append('\u0000').append(kind);
+		if (baseUrl != null) {
+			rv.append(baseUrl);
+		}
+		rv.append('\u0000').append(text);
+		return rv.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private String get(final byte[] key) {
+		if (closed || ENTRY_HEADER_SIZE + key.length > slotSize) {
+			return null;
+		}
+		final long hash = hash(key);
+		final int firstSlot = setOf(hash) * WAYS;
+		for (int slot = firstSlot; slot < firstSlot + WAYS; ++slot) {
+			final int offset = slotOffset(slot);
+			if (buffer.getLong(offset + 4) != hash || buffer.getInt(offset + 20) != key.length) {
+				continue;
+			}
+			final byte[] entry = readEntry(offset);
+			if (entry == null) {
+				corruptSlots.increment();
+				continue;
+			}
+			final ByteBuffer view = ByteBuffer.wrap(entry);
+			final int valueLength = view.getInt(24);
+			if (view.getLong(4) == hash && Arrays.equals(entry, ENTRY_HEADER_SIZE, ENTRY_HEADER_SIZE + key.length, key, 0, key.length)) {
+				hits.increment();
+				return new String(entry, ENTRY_HEADER_SIZE + key.length, valueLength, StandardCharsets.UTF_8);
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Copies an entry from the file and checks it.
+	 *
+	 * @return The entry or {@literal null} if its checksum doesn't match
+	 */
+	private byte[] readEntry(final int offset) {
+		final int keyLength = buffer.getInt(offset + 20);
+		final int valueLength = buffer.getInt(offset + 24);
+		if (keyLength <= 0 || valueLength < 0 || (long) ENTRY_HEADER_SIZE + keyLength + valueLength > slotSize) {
+			return null;
+		}
+		final byte[] rv = new byte[ENTRY_HEADER_SIZE + keyLength + valueLength];
+		final ByteBuffer slot = buffer.duplicate();
+		slot.position(offset);
+		slot.get(rv);
+		final CRC32C crc = new CRC32C();
+		crc.update(rv, 4, rv.length - 4);
+		if (ByteBuffer.wrap(rv).getInt(0) != (int) crc.getValue()) {
+			return null;
+		}
+		// The lengths may have changed while copying
+		final ByteBuffer view = ByteBuffer.wrap(rv);
+		return view.getInt(20) == keyLength && view.getInt(24) == valueLength ? rv : null;
+	}
+
+	private void put(final byte[] key, final String value) {
+		final byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+		final int length = ENTRY_HEADER_SIZE + key.length + valueBytes.length;
+		if (closed || length > slotSize) {
+			return;
+		}
+		final long hash = hash(key);
+		final ByteBuffer entry = ByteBuffer.allocate(length);
+		entry.putInt(0).putLong(hash).putLong(System.currentTimeMillis()).putInt(key.length).putInt(valueBytes.length).put(key).put(valueBytes);
+		final CRC32C crc = new CRC32C();
+		crc.update(entry.array(), 4, length - 4);
+		entry.putInt(0, (int) crc.getValue());
+
+		final int set = setOf(hash);
+		final int firstSlot = set * WAYS;
+		synchronized (locks[set % NUMBER_OF_LOCKS]) {
+			try (FileLock lock = channel.tryLock(slotOffset(firstSlot), (long) WAYS * slotSize, false)) {
+				if (lock == null) {
+					return;
+				}
+				final int slot = chooseSlot(firstSlot, hash);
+				final ByteBuffer target = buffer.duplicate();
+				target.position(slotOffset(slot));
+				target.put(entry.array());
+			} catch (OverlappingFileLockException | IOException e) {
+				// Another cache in this JVM is writing the same set or the
+				// file has been closed, not worth waiting for
+			}
+		}
+	}
+
+	/**
+	 * Picks the slot of the same key, an empty slot or the slot written
+	 * least recently.
+	 */
+	private int chooseSlot(final int firstSlot, final long hash) {
+		int empty = -1;
+		int oldestSlot = firstSlot;
+		long oldest = Long.MAX_VALUE;
+		for (int slot = firstSlot; slot < firstSlot + WAYS; ++slot) {
+			final int offset = slotOffset(slot);
+			if (buffer.getLong(offset + 4) == hash) {
+				return slot;
+			}
+			if (buffer.getInt(offset + 20) == 0) {
+				empty = empty < 0 ? slot : empty;
+			} else if (buffer.getLong(offset + 12) < oldest) {
+				oldest = buffer.getLong(offset + 12);
+				oldestSlot = slot;
+			}
+		}
+		if (empty >= 0) {
+			return empty;
+		}
+		evictions.increment();
+		return oldestSlot;
+	}
+
+	private int slotOffset(final int slot) {
+		return HEADER_SIZE + slot * slotSize;
+	}
+
+	private int setOf(final long hash) {
+		return (int) Long.remainderUnsigned(hash, numberOfSets);
+	}
+
+	/**
+	 * 64 bit FNV-1a, stable between JVMs.
+	 */
+	private static long hash(final byte[] key) {
+		long rv = 0xcbf29ce484222325L;
+		for (byte b : key) {
+			rv ^= b & 0xff;
+			rv *= 0x100000001b3L;
+		}
+		return rv;
+	}
+}
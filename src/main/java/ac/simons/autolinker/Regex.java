@@ -15,14 +15,8 @@
  */
 package ac.simons.autolinker;
 
-import java.util.List;
-import java.util.Map;
 import java.util.regex.Pattern;
 
-import org.yaml.snakeyaml.Yaml;
-
-import static java.util.stream.Collectors.joining;
-
 /**
  * All regex are idententical to
  * <a href="https://github.com/twitter/twitter-text/blob/master/java/src/com/twitter/Regex.java">Regex@twitter-text</a>
@@ -33,19 +27,19 @@ import static java.util.stream.Collectors.joining;
  */
 final class Regex {
 
-	private static final Map<String, List<String>> TLDS = (Map<String, List<String>>) new Yaml().load(
-		Regex.class.getResourceAsStream("/ac/simons/autolinker/tld_lib.yml")
-	);
-	private static final List<String> GENERIC_TLDS = TLDS.get("generic");
-	private static final List<String> COUNTRY_TLDS = TLDS.get("country");
+	/**
+	 * All top level domains. The trie is used to create compact alternations
+	 * for the url regex and can be used directly to check candidates.
+	 */
+	static final TldTrie TLDS_TRIE = new TldTrie(Tlds.GENERIC, Tlds.COUNTRY);
 	private static final String URL_VALID_GTLD
-		= "(?:(?:"
-		+ GENERIC_TLDS.stream().collect(joining("|"))
-		+ ")(?=[^\\p{Alnum}@]|$))";
+		= "(?:"
+		+ TLDS_TRIE.toRegex(TldTrie.GENERIC)
+		+ "(?=[^\\p{Alnum}@]|$))";
 	private static final String URL_VALID_CCTLD
-		= "(?:(?:"
-		+ COUNTRY_TLDS.stream().collect(joining("|"))
-		+ ")(?=[^\\p{Alnum}@]|$))";
+		= "(?:"
+		+ TLDS_TRIE.toRegex(TldTrie.COUNTRY)
+		+ "(?=[^\\p{Alnum}@]|$))";
 
 	private static final String UNICODE_SPACES = "["
 		+ "\\u0009-\\u000d" + //  # White_Space # Cc   [5] <control-0009>..<control-000D>
@@ -25,6 +25,44 @@ public final class Strings {
 	private Strings() {
 	}
 
+	/**
+	 * Checks whether {@code in} contains at least one of the given characters.
+	 *
+	 * @param in         The text to check
+	 * @param characters The characters to look for
+	 * @return True, if any of {@code characters} is contained in {@code in}
+	 */
+	public static boolean containsAny(final CharSequence in, final String characters) {
+		for (int i = 0; i < in.length(); ++i) {
+			if (characters.indexOf(in.charAt(i)) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Looks for {@code needle} inside a range of {@code in}.
+	 *
+	 * @param in     The text to search
+	 * @param start  Start of the range, inclusive
+	 * @param end    End of the range, exclusive
+	 * @param needle The text to look for
+	 * @return The index of the first occurrence of {@code needle} or -1
+	 */
+	static int indexOf(final CharSequence in, final int start, final int end, final String needle) {
+		for (int i = start; i <= end - needle.length(); ++i) {
+			int j = 0;
+			while (j < needle.length() && in.charAt(i + j) == needle.charAt(j)) {
+				++j;
+			}
+			if (j == needle.length()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * @param in     The text to truncate
 	 * @param length Length after which strings should be truncated
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+/**
+ * A reusable view on a range of a text. Matching against a window behaves
+ * exactly like matching against the corresponding substring, without
+ * copying the characters.
+ *
+ * @author Michael J. Simons
+ */
+final class TextWindow implements CharSequence {
+
+	private CharSequence text = "";
+
+	private int offset;
+
+	private int length;
+
+	/**
+	 * Moves this window.
+	 *
+	 * @param newText The underlying text
+	 * @param start   Start of the window, inclusive
+	 * @param end     End of the window, exclusive
+	 * @return This window
+	 */
+	TextWindow reset(final CharSequence newText, final int start, final int end) {
+		this.text = newText;
+		this.offset = start;
+		this.length = end - start;
+		return this;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(final int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+		}
+		return text.charAt(offset + index);
+	}
+
+	@Override
+	public CharSequence subSequence(final int start, final int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+		}
+		return text.subSequence(offset + start, offset + end);
+	}
+
+	@Override
+	public String toString() {
+		return text.subSequence(offset, offset + length).toString();
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A trie over the generic and country code top level domains. The trie is
+ * stored in a couple of primitive arrays, lookups don't allocate anything.
+ * <br>
+ * Nodes are stored in breadth first order, the children of a node are stored
+ * consecutively and ordered by their character. Node 0 is the root.
+ *
+ * @author Michael J. Simons
+ */
+final class TldTrie {
+
+	/**
+	 * Flag for generic top level domains.
+	 */
+	static final int GENERIC = 1;
+
+	/**
+	 * Flag for country code top level domains.
+	 */
+	static final int COUNTRY = 2;
+
+	/**
+	 * The character leading into a node.
+	 */
+	private final char[] characters;
+
+	/**
+	 * Index of the first child of a node.
+	 */
+	private final int[] firstChild;
+
+	/**
+	 * Number of children of a node.
+	 */
+	private final int[] childCount;
+
+	/**
+	 * The kinds of top level domains ending in a node.
+	 */
+	private final byte[] kinds;
+
+	/**
+	 * The kinds of top level domains ending in a node or any of its
+	 * descendants.
+	 */
+	private final byte[] subtreeKinds;
+
+	/**
+	 * Creates a new trie from the given lists of top level domains, which are
+	 * expected in lower case.
+	 *
+	 * @param genericTlds Generic top level domains
+	 * @param countryTlds Country code top level domains
+	 */
+	TldTrie(final List<String> genericTlds, final List<String> countryTlds) {
+		final MutableNode root = new MutableNode();
+		genericTlds.forEach(tld -> root.add(tld, GENERIC));
+		countryTlds.forEach(tld -> root.add(tld, COUNTRY));
+
+		final List<MutableNode> nodes = new ArrayList<>();
+		final Deque<MutableNode> queue = new ArrayDeque<>();
+		queue.add(root);
+		while (!queue.isEmpty()) {
+			final MutableNode node = queue.poll();
+			node.index = nodes.size();
+			nodes.add(node);
+			queue.addAll(node.children.values());
+		}
+
+		final int size = nodes.size();
+		this.characters = new char[size];
+		this.firstChild = new int[size];
+		this.childCount = new int[size];
+		this.kinds = new byte[size];
+		this.subtreeKinds = new byte[size];
+		for (int i = size - 1; i >= 0; --i) {
+			final MutableNode node = nodes.get(i);
+			characters[i] = node.character;
+			childCount[i] = node.children.size();
+			kinds[i] = node.kinds;
+			subtreeKinds[i] = node.kinds;
+			for (MutableNode child : node.children.values()) {
+				if (firstChild[i] == 0) {
+					firstChild[i] = child.index;
+				}
+				subtreeKinds[i] |= subtreeKinds[child.index];
+			}
+		}
+	}
+
+	/**
+	 * Looks for a top level domain of the given kinds starting at
+	 * {@code start}. A top level domain must not be followed by an ASCII
+	 * letter or digit or an at sign. The comparison is case insensitive for
+	 * ASCII characters.
+	 *
+	 * @param text  The text to search
+	 * @param start The index at which the top level domain should start
+	 * @param kind  The kinds of top level domains to look for
+	 * @return The length of the longest matching top level domain or -1
+	 */
+	int match(final CharSequence text, final int start, final int kind) {
+		int rv = -1;
+		int node = 0;
+		for (int i = start; i < text.length(); ++i) {
+			node = child(node, toLowerCase(text.charAt(i)));
+			if (node < 0 || (subtreeKinds[node] & kind) == 0) {
+				break;
+			}
+			if ((kinds[node] & kind) != 0 && isBoundary(text, i + 1)) {
+				rv = i + 1 - start;
+			}
+		}
+		return rv;
+	}
+
+	/**
+	 * Creates a regular expression matching all top level domains of the
+	 * given kind. The alternation follows the structure of the trie, so that
+	 * the regex engine doesn't have to try every top level domain on its own.
+	 *
+	 * @param kind The kind of top level domains
+	 * @return A regular expression, not enclosed in a group
+	 */
+	String toRegex(final int kind) {
+		final StringBuilder rv = new StringBuilder();
+		appendRegex(rv, 0, kind);
+		return rv.toString();
+	}
+
+	private void appendRegex(final StringBuilder target, final int node, final int kind) {
+		final int from = firstChild[node];
+		final int to = from + childCount[node];
+		int alternatives = 0;
+		for (int child = from; child < to; ++child) {
+			if ((subtreeKinds[child] & kind) != 0) {
+				++alternatives;
+			}
+		}
+		if (alternatives == 0) {
+			return;
+		}
+
+		final boolean optional = (kinds[node] & kind) != 0;
+		final boolean grouped = optional || alternatives > 1;
+		if (grouped) {
+			target.append("(?:");
+		}
+		boolean first = true;
+		for (int child = from; child < to; ++child) {
+			if ((subtreeKinds[child] & kind) == 0) {
+				continue;
+			}
+			if (!first) {
+				target.append('|');
+			}
+			first = false;
+			appendLiteral(target, characters[child]);
+			appendRegex(target, child, kind);
+		}
+		if (grouped) {
+			target.append(')');
+		}
+		if (optional) {
+			target.append('?');
+		}
+	}
+
+	private int child(final int node, final char c) {
+		final int from = firstChild[node];
+		final int to = from + childCount[node];
+		for (int child = from; child < to; ++child) {
+			if (characters[child] == c) {
+				return child;
+			} else if (characters[child] > c) {
+				break;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isBoundary(final CharSequence text, final int index) {
+		if (index >= text.length()) {
+			return true;
+		}
+		final char c = text.charAt(index);
+		return !(c == '@' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9');
+	}
+
+	private static char toLowerCase(final char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	private static void appendLiteral(final StringBuilder target, final char c) {
+		if (Character.isLetterOrDigit(c)) {
+			target.append(c);
+		} else {
+			target.append(String.format("\\x{%x}", (int) c));
+		}
+	}
+
+	/**
+	 * Used only while building the trie.
+	 */
+	private static final class MutableNode {
+
+		private final Map<Character, MutableNode> children = new TreeMap<>();
+
+		private char character;
+
+		private byte kinds;
+
+		private int index;
+
+		void add(final String tld, final int kind) {
+			MutableNode node = this;
+			for (int i = 0; i < tld.length(); ++i) {
+				final char c = tld.charAt(i);
+				node = node.children.computeIfAbsent(c, k -> new MutableNode());
+				node.character = c;
+			}
+			node.kinds |= kind;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+
+/**
+ * Top level domains as published by
+ * <a href="https://github.com/twitter/twitter-text">twitter-text</a> in
+ * {@code tld_lib.yml}. Generated by {@code TldsGenerator} from the test
+ * sources, don't edit by hand.
+ *
+ * @author Michael J. Simons
+ */
+final class Tlds {
+
+	/**
+	 * Generic top level domains.
+	 */
+	static final List<String> GENERIC = split(""
+		+ "abogado|academy|accountants|active|actor|adult|aero|agency|airforce|allfinanz|alsace"
+		+ "|android|aquarelle|archi|army|arpa|asia|associates|attorney|auction|audio|autos|axa"
+		+ "|band|bar|bargains|bayern|beer|berlin|best|bid|bike|bio|biz|black|blackfriday|bloomberg"
+		+ "|blue|bmw|bnpparibas|boo|boutique|brussels|budapest|build|builders|business|buzz"
+		+ "|bzh|cab|cal|camera|camp|cancerresearch|capetown|capital|caravan|cards|care|career"
+		+ "|careers|cartier|casa|cash|cat|catering|center|ceo|cern|channel|cheap|christmas|chrome"
+		+ "|church|citic|city|claims|cleaning|click|clinic|clothing|club|coach|codes|coffee"
+		+ "|college|cologne|com|community|company|computer|condos|construction|consulting|contractors"
+		+ "|cooking|cool|coop|country|credit|creditcard|cricket|crs|cruises|cuisinella|cymru"
+		+ "|dad|dance|dating|day|deals|degree|delivery|democrat|dental|dentist|desi|diamonds"
+		+ "|diet|digital|direct|directory|discount|dnp|domains|durban|dvag|eat|edu|education"
+		+ "|email|emerck|energy|engineer|engineering|enterprises|equipment|esq|estate|eurovision"
+		+ "|eus|events|everbank|exchange|expert|exposed|fail|farm|fashion|feedback|finance|financial"
+		+ "|firmdale|fish|fishing|fitness|flights|florist|flsmidth|fly|foo|forsale|foundation"
+		+ "|frl|frogans|fund|furniture|futbol|gal|gallery|gbiz|gent|gift|gifts|gives|glass|gle"
+		+ "|global|globo|gmail|gmo|gmx|google|gop|gov|graphics|gratis|green|gripe|guide|guitars"
+		+ "|guru|hamburg|haus|healthcare|help|here|hiphop|hiv|holdings|holiday|homes|horse|host"
+		+ "|hosting|house|how|ibm|immo|immobilien|industries|info|ing|ink|institute|insure|int"
+		+ "|international|investments|irish|jetzt|jobs|joburg|juegos|kaufen|kim|kitchen|kiwi"
+		+ "|koeln|krd|kred|lacaixa|land|latrobe|lawyer|lds|lease|legal|lgbt|life|lighting|limited"
+		+ "|limo|link|loans|london|lotto|ltda|luxe|luxury|madrid|maison|management|mango|market"
+		+ "|marketing|media|meet|melbourne|meme|memorial|menu|miami|mil|mini|mobi|moda|moe|monash"
+		+ "|money|mormon|mortgage|moscow|motorcycles|mov|museum|nagoya|name|navy|net|network"
+		+ "|neustar|new|nexus|ngo|nhk|ninja|nra|nrw|nyc|okinawa|ong|onl|ooo|org|organic|otsuka"
+		+ "|ovh|paris|partners|parts|party|pharmacy|photo|photography|photos|physio|pics|pictures"
+		+ "|pink|pizza|place|plumbing|pohl|poker|porn|post|praxi|press|pro|prod|productions"
+		+ "|prof|properties|property|pub|qpon|quebec|realtor|recipes|red|rehab|reise|reisen"
+		+ "|reit|ren|rentals|repair|report|republican|rest|restaurant|reviews|rich|rio|rip|rocks"
+		+ "|rodeo|rsvp|ruhr|ryukyu|saarland|samsung|sarl|sca|scb|schmidt|schule|science|scot"
+		+ "|services|sexy|shiksha|shoes|singles|social|software|sohu|solar|solutions|soy|space"
+		+ "|spiegel|supplies|supply|support|surf|surgery|suzuki|sydney|systems|taipei|tatar"
+		+ "|tattoo|tax|technology|tel|tienda|tips|tirol|today|tokyo|tools|top|town|toys|trade"
+		+ "|training|travel|trust|tui|university|uno|uol|vacations|vegas|ventures|verm\u00f6gensberater"
+		+ "|verm\u00f6gensberatung|versicherung|vet|viajes|villas|vision|vlaanderen|vodka|vote"
+		+ "|voting|voto|voyage|wales|wang|watch|webcam|website|wed|wedding|whoswho|wien|wiki"
+		+ "|williamhill|wme|work|works|world|wtc|wtf|xxx|xyz|yachts|yandex|yoga|yokohama|youtube"
+		+ "|zip|zone|\u0434\u0435\u0442\u0438|\u043c\u043e\u0441\u043a\u0432\u0430|\u043e\u043d\u043b\u0430\u0439\u043d"
+		+ "|\u043e\u0440\u0433|\u0440\u0443\u0441|\u0441\u0430\u0439\u0442|\u0628\u0627\u0632\u0627\u0631"
+		+ "|\u0634\u0628\u0643\u0629|\u0645\u0648\u0642\u0639|\u0938\u0902\u0917\u0920\u0928"
+		+ "|\u307f\u3093\u306a|\u30b0\u30fc\u30b0\u30eb|\u4e16\u754c|\u4e2d\u4fe1|\u4e2d\u6587\u7f51"
+		+ "|\u4f01\u4e1a|\u4f5b\u5c71|\u516b\u5366|\u516c\u53f8|\u516c\u76ca|\u5546\u57ce|\u5546\u5e97"
+		+ "|\u5546\u6807|\u5728\u7ebf|\u5e7f\u4e1c|\u6211\u7231\u4f60|\u624b\u673a|\u653f\u52a1"
+		+ "|\u673a\u6784|\u6e38\u620f|\u79fb\u52a8|\u7ec4\u7ec7\u673a\u6784|\u7f51\u5740|\u7f51\u5e97"
+		+ "|\u7f51\u7edc|\u8c37\u6b4c|\u96c6\u56e2|\uc0bc\uc131|onion");
+
+	/**
+	 * Country code top level domains.
+	 */
+	static final List<String> COUNTRY = split(""
+		+ "ac|ad|ae|af|ag|ai|al|am|an|ao|aq|ar|as|at|au|aw|ax|az|ba|bb|bd|be|bf|bg|bh|bi|bj"
+		+ "|bl|bm|bn|bo|bq|br|bs|bt|bv|bw|by|bz|ca|cc|cd|cf|cg|ch|ci|ck|cl|cm|cn|co|cr|cu|cv"
+		+ "|cw|cx|cy|cz|de|dj|dk|dm|do|dz|ec|ee|eg|eh|er|es|et|eu|fi|fj|fk|fm|fo|fr|ga|gb|gd"
+		+ "|ge|gf|gg|gh|gi|gl|gm|gn|gp|gq|gr|gs|gt|gu|gw|gy|hk|hm|hn|hr|ht|hu|id|ie|il|im|in"
+		+ "|io|iq|ir|is|it|je|jm|jo|jp|ke|kg|kh|ki|km|kn|kp|kr|kw|ky|kz|la|lb|lc|li|lk|lr|ls"
+		+ "|lt|lu|lv|ly|ma|mc|md|me|mf|mg|mh|mk|ml|mm|mn|mo|mp|mq|mr|ms|mt|mu|mv|mw|mx|my|mz"
+		+ "|na|nc|ne|nf|ng|ni|nl|no|np|nr|nu|nz|om|pa|pe|pf|pg|ph|pk|pl|pm|pn|pr|ps|pt|pw|py"
+		+ "|qa|re|ro|rs|ru|rw|sa|sb|sc|sd|se|sg|sh|si|sj|sk|sl|sm|sn|so|sr|ss|st|su|sv|sx|sy"
+		+ "|sz|tc|td|tf|tg|th|tj|tk|tl|tm|tn|to|tp|tr|tt|tv|tw|tz|ua|ug|uk|um|us|uy|uz|va|vc"
+		+ "|ve|vg|vi|vn|vu|wf|ws|ye|yt|za|zm|zw|\u0431\u0435\u043b|\u043c\u043a\u0434|\u043c\u043e\u043d"
+		+ "|\u0440\u0444|\u0441\u0440\u0431|\u0443\u043a\u0440|\u049b\u0430\u0437|\u0570\u0561\u0575"
+		+ "|\u0627\u0644\u0627\u0631\u062f\u0646|\u0627\u0644\u062c\u0632\u0627\u0626\u0631"
+		+ "|\u0627\u0644\u0633\u0639\u0648\u062f\u064a\u0629|\u0627\u0644\u0645\u063a\u0631\u0628"
+		+ "|\u0627\u0645\u0627\u0631\u0627\u062a|\u0627\u06cc\u0631\u0627\u0646|\u0628\u06be\u0627\u0631\u062a"
+		+ "|\u062a\u0648\u0646\u0633|\u0633\u0648\u062f\u0627\u0646|\u0633\u0648\u0631\u064a\u0629"
+		+ "|\u0639\u0631\u0627\u0642|\u0639\u0645\u0627\u0646|\u0641\u0644\u0633\u0637\u064a\u0646"
+		+ "|\u0642\u0637\u0631|\u0645\u0635\u0631|\u0645\u0644\u064a\u0633\u064a\u0627|\u067e\u0627\u06a9\u0633\u062a\u0627\u0646"
+		+ "|\u092d\u093e\u0930\u0924|\u09ac\u09be\u0982\u09b2\u09be|\u09ad\u09be\u09b0\u09a4"
+		+ "|\u0a2d\u0a3e\u0a30\u0a24|\u0aad\u0abe\u0ab0\u0aa4|\u0b87\u0ba8\u0bcd\u0ba4\u0bbf\u0baf\u0bbe"
+		+ "|\u0b87\u0bb2\u0b99\u0bcd\u0b95\u0bc8|\u0b9a\u0bbf\u0b99\u0bcd\u0b95\u0baa\u0bcd\u0baa\u0bc2\u0bb0\u0bcd"
+		+ "|\u0c2d\u0c3e\u0c30\u0c24\u0c4d|\u0dbd\u0d82\u0d9a\u0dcf|\u0e44\u0e17\u0e22|\u10d2\u10d4"
+		+ "|\u4e2d\u56fd|\u4e2d\u570b|\u53f0\u6e7e|\u53f0\u7063|\u65b0\u52a0\u5761|\u9999\u6e2f"
+		+ "|\ud55c\uad6d");
+
+	private Tlds() {
+	}
+
+	private static List<String> split(final String tlds) {
+		return List.of(tlds.split("\\|"));
+	}
+}
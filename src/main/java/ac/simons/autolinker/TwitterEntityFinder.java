@@ -0,0 +1,272 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jsoup.nodes.Element;
+
+/**
+ * Finds mentions, hashtags and cashtags in one pass over a text, see
+ * {@link AnchorFinder}. The text is only scanned for the signs of the
+ * entities, the pattern of an entity is only tried directly in front of one
+ * of its signs. As no pattern looks back more than a few characters in front
+ * of the sign, the links found are the same as if each pattern would look
+ * through the whole text on its own.
+ * <br>
+ * Entities of different kinds never overlap, as none of them contains the
+ * sign of another kind, so they need no overlap resolution.
+ *
+ * @author Michael J. Simons
+ */
+final class TwitterEntityFinder implements AnchorFinder {
+
+	private static final int VALUE_START = 0;
+
+	private static final int VALUE_END = 1;
+
+	private static final int KIND = 2;
+
+	private final Kind[] kinds;
+
+	private final Matcher[] matchers;
+
+	/**
+	 * Matchers for the text following a match, {@literal null} for kinds
+	 * that don't check it.
+	 */
+	private final Matcher[] endMatchers;
+
+	/**
+	 * End of the previous match for each kind. Matches of the same kind
+	 * don't overlap, not even with the text in front of their sign.
+	 */
+	private final int[] ends;
+
+	private final LinkSpan current = new LinkSpan();
+
+	private CharSequence text;
+
+	/**
+	 * The next character to look at.
+	 */
+	private int position;
+
+	/**
+	 * Index of the kind of the current link.
+	 */
+	private int currentKind;
+
+	/**
+	 * Creates a new finder.
+	 *
+	 * @param newKinds The kinds of entities to look for, their signs must
+	 *                 be distinct
+	 */
+	TwitterEntityFinder(final List<Kind> newKinds) {
+		this.kinds = newKinds.toArray(new Kind[0]);
+		this.matchers = new Matcher[kinds.length];
+		this.endMatchers = new Matcher[kinds.length];
+		this.ends = new int[kinds.length];
+		for (int i = 0; i < kinds.length; ++i) {
+			// Matching starts just in front of a sign, but anchors and
+			// lookaheads must see the whole text
+			this.matchers[i] = kinds[i].pattern.matcher("").useAnchoringBounds(false).useTransparentBounds(true);
+			if (kinds[i].invalidMatchEnd != null) {
+				this.endMatchers[i] = kinds[i].invalidMatchEnd.matcher("");
+			}
+		}
+	}
+
+	/**
+	 * @param autoLinker An autolinker
+	 * @return The kind of entity {@code autoLinker} links or {@literal null}
+	 *         if it doesn't link entities of this finder
+	 */
+	static Kind kindOf(final AutoLinker autoLinker) {
+		if (autoLinker instanceof TwitterUserAutoLinker) {
+			return ((TwitterUserAutoLinker) autoLinker).getKind();
+		} else if (autoLinker instanceof HashtagAutoLinker) {
+			return ((HashtagAutoLinker) autoLinker).getKind();
+		} else if (autoLinker instanceof CashtagAutoLinker) {
+			return ((CashtagAutoLinker) autoLinker).getKind();
+		}
+		return null;
+	}
+
+	@Override
+	public void reset(final CharSequence newText) {
+		this.text = newText;
+		this.position = 0;
+		for (int i = 0; i < kinds.length; ++i) {
+			matchers[i].reset(newText);
+			if (endMatchers[i] != null) {
+				endMatchers[i].reset(newText);
+			}
+			ends[i] = 0;
+		}
+	}
+
+	@Override
+	public boolean find() {
+		final int length = text.length();
+		while (position < length) {
+			final char c = text.charAt(position++);
+			for (int i = 0; i < kinds.length; ++i) {
+				if (kinds[i].signs.indexOf(c) >= 0 && position > ends[i] && matchAt(i, position - 1)) {
+					currentKind = i;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tries the pattern of a kind at all starts in front of a sign, the
+	 * leftmost start first, as {@link Matcher#find()} would do.
+	 *
+	 * @param index Index of the kind
+	 * @param sign  Index of the sign
+	 * @return True if there is a valid match
+	 */
+	private boolean matchAt(final int index, final int sign) {
+		final Kind kind = kinds[index];
+		final Matcher matcher = matchers[index];
+		final int length = text.length();
+		for (int start = Math.max(ends[index], sign - kind.maxBeforeLength); start <= sign; ++start) {
+			matcher.region(start, length);
+			if (matcher.lookingAt()) {
+				ends[index] = matcher.end();
+				return endMatchers[index] == null || !endMatchers[index].region(ends[index], length).lookingAt();
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int textEnd() {
+		return matchers[currentKind].end(kinds[currentKind].groupBefore);
+	}
+
+	@Override
+	public int end() {
+		return matchers[currentKind].end();
+	}
+
+	@Override
+	public void writeAnchor(final StringBuilder target) {
+		capture(current);
+		writeAnchor(current, target);
+	}
+
+	@Override
+	public void capture(final LinkSpan span) {
+		final Matcher matcher = matchers[currentKind];
+		final int groupValue = kinds[currentKind].groupValue;
+		span.set(textEnd(), end());
+		span.setOffset(VALUE_START, matcher.start(groupValue));
+		span.setOffset(VALUE_END, matcher.end(groupValue));
+		span.setOffset(KIND, currentKind);
+	}
+
+	@Override
+	public void writeAnchor(final LinkSpan span, final StringBuilder target) {
+		final Kind kind = kinds[span.getOffset(KIND)];
+		final int start = span.getOffset(VALUE_START);
+		final int end = span.getOffset(VALUE_END);
+		target.append("<a href=\"");
+		kind.urlTemplate.write(text, start, end, target, true);
+		target.append('"');
+		kind.renderer.closeStartTag(target);
+		kind.label.write(text, start, end, target, false);
+		target.append("</a>");
+	}
+
+	@Override
+	public Element createAnchor(final LinkSpan span, final String baseUri) {
+		final Kind kind = kinds[span.getOffset(KIND)];
+		final String value = text.subSequence(span.getOffset(VALUE_START), span.getOffset(VALUE_END)).toString();
+		return kind.renderer.createAnchor(baseUri, kind.urlTemplate.apply(value), null, kind.label.apply(value));
+	}
+
+	@Override
+	public AutoLinkEntity createEntity(final LinkSpan span, final int offset) {
+		final Kind kind = kinds[span.getOffset(KIND)];
+		final String value = text.subSequence(span.getOffset(VALUE_START), span.getOffset(VALUE_END)).toString();
+		return new AutoLinkEntity(kind.entityKind, offset + span.getStart(), offset + span.getEnd(), kind.urlTemplate.apply(value));
+	}
+
+	/**
+	 * A kind of entity, its pattern and how its anchors look like. Immutable.
+	 */
+	static final class Kind {
+
+		private final AutoLinkEntity.Kind entityKind;
+
+		private final Pattern pattern;
+
+		private final int groupBefore;
+
+		private final int groupValue;
+
+		/**
+		 * The maximum length of the text in front of the sign that is part
+		 * of a match, {@code RT:} for mentions.
+		 */
+		private final int maxBeforeLength;
+
+		private final String signs;
+
+		/**
+		 * Text following a match that makes it invalid, may be {@literal null}.
+		 */
+		private final Pattern invalidMatchEnd;
+
+		private final LinkTemplate urlTemplate;
+
+		private final LinkTemplate label;
+
+		private final AnchorRenderer renderer;
+
+		private Kind(final AutoLinkEntity.Kind entityKind, final Pattern pattern, final int groupBefore, final int groupValue, final int maxBeforeLength, final String signs, final Pattern invalidMatchEnd, final LinkTemplate urlTemplate, final LinkTemplate label, final AnchorRenderer renderer) {
+			this.entityKind = entityKind;
+			this.pattern = pattern;
+			this.groupBefore = groupBefore;
+			this.groupValue = groupValue;
+			this.maxBeforeLength = maxBeforeLength;
+			this.signs = signs;
+			this.invalidMatchEnd = invalidMatchEnd;
+			this.urlTemplate = urlTemplate;
+			this.label = label;
+			this.renderer = renderer;
+		}
+
+		static Kind mentions(final LinkTemplate urlTemplate, final AnchorRenderer renderer) {
+			return new Kind(AutoLinkEntity.Kind.MENTION, Regex.VALID_MENTION_OR_LIST, Regex.VALID_MENTION_OR_LIST_GROUP_BEFORE, Regex.VALID_MENTION_OR_LIST_GROUP_USERNAME, 3, "@\uFF20", null, urlTemplate, LinkTemplate.compile("@" + TwitterUserAutoLinker.USERNAME, TwitterUserAutoLinker.USERNAME), renderer);
+		}
+
+		static Kind hashtags(final LinkTemplate urlTemplate, final AnchorRenderer renderer) {
+			return new Kind(AutoLinkEntity.Kind.HASHTAG, Regex.VALID_HASHTAG, Regex.VALID_HASHTAG_GROUP_BEFORE, Regex.VALID_HASHTAG_GROUP_TAG, 1, "#\uFF03", Regex.INVALID_HASHTAG_MATCH_END, urlTemplate, LinkTemplate.compile("#" + HashtagAutoLinker.HASHTAG, HashtagAutoLinker.HASHTAG), renderer);
+		}
+
+		static Kind cashtags(final LinkTemplate urlTemplate, final AnchorRenderer renderer) {
+			return new Kind(AutoLinkEntity.Kind.CASHTAG, Regex.VALID_CASHTAG, Regex.VALID_CASHTAG_GROUP_BEFORE, Regex.VALID_CASHTAG_GROUP_CASHTAG, 1, "$", null, urlTemplate, LinkTemplate.compile("$" + CashtagAutoLinker.CASHTAG, CashtagAutoLinker.CASHTAG), renderer);
+		}
+	}
+}
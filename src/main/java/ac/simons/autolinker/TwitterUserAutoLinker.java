@@ -15,51 +15,94 @@
  */
 package ac.simons.autolinker;
 
-import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
-import org.jsoup.parser.Tag;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 
 /**
- * Turns @mentions into anchor elements.
+ * Turns @mentions into anchor elements. Combined with a
+ * {@link HashtagAutoLinker} and a {@link CashtagAutoLinker} next to it in a
+ * {@link CombinedAutoLinker}, all of them are found in one pass over the
+ * text.
  *
  * @author Michael J. Simons, 2014-12-27
  */
 public final class TwitterUserAutoLinker implements AutoLinker {
 
-	@Override
-	public List<Node> createLinks(final TextNode textNode) {
+	/**
+	 * The placeholder for the username in the url template.
+	 */
+	public static final String USERNAME = "{username}";
+
+	/**
+	 * The default url of a mention.
+	 */
+	public static final String DEFAULT_URL_TEMPLATE = "https://twitter.com/" + USERNAME;
+
+	private final LinkTemplate urlTemplate;
+
+	private final TwitterEntityFinder.Kind kind;
+
+	/**
+	 * Instantiates a new mention autolinker, linking to twitter.
+	 */
+	public TwitterUserAutoLinker() {
+		this(DEFAULT_URL_TEMPLATE);
+	}
+
+	/**
+	 * Instantiates a new mention autolinker with a custom url.
+	 *
+	 * @param urlTemplate The url of a mention, containing the
+	 *                    {@link #USERNAME} placeholder at least once
+	 */
+	public TwitterUserAutoLinker(final String urlTemplate) {
+		this(LinkTemplate.compile(urlTemplate, USERNAME), AnchorRenderer.defaults());
+	}
 
-		final List<Node> rv = new ArrayList<>();
+	private TwitterUserAutoLinker(final LinkTemplate urlTemplate, final AnchorRenderer renderer) {
+		this.urlTemplate = urlTemplate;
+		this.kind = TwitterEntityFinder.Kind.mentions(urlTemplate, renderer);
+	}
 
-		int start = 0;
+	/**
+	 * Creates a new autolinker with the same url template, rendering
+	 * anchors with the given renderer.
+	 *
+	 * @param newRenderer The renderer to use
+	 * @return A new autolinker
+	 */
+	public TwitterUserAutoLinker withRenderer(final AnchorRenderer newRenderer) {
+		return new TwitterUserAutoLinker(urlTemplate, newRenderer);
+	}
 
-		final String nodeText = textNode.getWholeText();
-		final String baseUri = textNode.baseUri();
-		final Matcher matcher = Regex.VALID_MENTION_OR_LIST.matcher(nodeText);
+	/**
+	 * Mentions need an at sign, either the regular or the full width one.
+	 *
+	 * @return The trigger characters of this autolinker
+	 */
+	@Override
+	public String getTriggerCharacters() {
+		return "@\uFF20";
+	}
 
-		while (matcher.find()) {
-			// Add a new textnode for everything before the url
-			final String textBefore = String.format("%s%s", nodeText.substring(start, matcher.start()), matcher.group(1));
-			if (!textBefore.isEmpty()) {
-				rv.add(new TextNode(textBefore));
-			}
-			final Element newAnchor = new Element(Tag.valueOf("a"), baseUri);
-			newAnchor.attr("href", String.format("https://twitter.com/%s", matcher.group(Regex.VALID_MENTION_OR_LIST_GROUP_USERNAME)));
-			newAnchor.appendChild(new TextNode(String.format("@%s", matcher.group(Regex.VALID_MENTION_OR_LIST_GROUP_USERNAME))));
-			rv.add(newAnchor);
-			start = matcher.end();
-		}
+	@Override
+	public List<Node> createLinks(final TextNode textNode) {
+		return newAnchorFinder().createLinks(textNode);
+	}
+
+	/**
+	 * @return A new finder for mentions
+	 */
+	AnchorFinder newAnchorFinder() {
+		return new TwitterEntityFinder(List.of(kind));
+	}
 
-		// Add a new textnode for everything after
-		final String textAfter = nodeText.substring(start);
-		if (!textAfter.isEmpty()) {
-			rv.add(new TextNode(textAfter));
-		}
-		return rv;
+	/**
+	 * @return The mentions as an entity of a {@link TwitterEntityFinder}
+	 */
+	TwitterEntityFinder.Kind getKind() {
+		return kind;
 	}
 }
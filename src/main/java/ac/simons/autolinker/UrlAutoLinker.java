@@ -18,13 +18,10 @@ package ac.simons.autolinker;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
-import org.jsoup.parser.Tag;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Turns all kinds of plain text urls into anchor elements. If no protocol is
@@ -34,53 +31,277 @@ import java.util.regex.Pattern;
  */
 public final class UrlAutoLinker implements AutoLinker {
 
+	/**
+	 * Assumed if an url has no protocol and removed from all labels.
+	 */
+	private static final String DEFAULT_PROTOCOL = "http://";
+
+	/**
+	 * The ellipsis used by {@link Strings#truncate(java.lang.String, int)}.
+	 */
+	private static final String ELLIPSIS = "\u2026";
+
+	/**
+	 * The engines available for finding urls. Both engines find the same
+	 * urls.
+	 */
+	public enum Engine {
+
+		/**
+		 * Uses the regular expression derived from twitter-text.
+		 */
+		REGEX,
+
+		/**
+		 * Uses a hand written scanner that looks at every character only a
+		 * constant number of times.
+		 */
+		SCANNER
+	}
+
 	/**
 	 * Maximum length of the anchor text until it gets truncated.
 	 */
 	private final int maxLabelLength;
 
 	/**
-	 * Instantiate a new URL autolinker with a given maximum label length.
+	 * The engine used for finding urls.
+	 */
+	private final Engine engine;
+
+	/**
+	 * The renderer of the anchors.
+	 */
+	private final AnchorRenderer renderer;
+
+	/**
+	 * Instantiate a new URL autolinker with a given maximum label length,
+	 * using the regex engine.
 	 *
 	 * @param maxLabelLength Maximum length of the anchor text until it gets
 	 *                       truncated
 	 */
 	public UrlAutoLinker(final int maxLabelLength) {
+		this(maxLabelLength, Engine.REGEX);
+	}
+
+	/**
+	 * Instantiate a new URL autolinker with a given maximum label length and
+	 * the given engine.
+	 *
+	 * @param maxLabelLength Maximum length of the anchor text until it gets
+	 *                       truncated
+	 * @param engine         The engine used for finding urls
+	 */
+	public UrlAutoLinker(final int maxLabelLength, final Engine engine) {
+		this(maxLabelLength, engine, AnchorRenderer.defaults());
+	}
+
+	private UrlAutoLinker(final int maxLabelLength, final Engine engine, final AnchorRenderer renderer) {
 		this.maxLabelLength = maxLabelLength;
+		this.engine = engine;
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Creates a new autolinker with the same label length and engine,
+	 * rendering anchors with the given renderer.
+	 *
+	 * @param newRenderer The renderer to use
+	 * @return A new autolinker
+	 */
+	public UrlAutoLinker withRenderer(final AnchorRenderer newRenderer) {
+		return new UrlAutoLinker(maxLabelLength, engine, newRenderer);
+	}
+
+	/**
+	 * Urls need at least a dot between domain and top level domain.
+	 *
+	 * @return The trigger characters of this autolinker
+	 */
+	@Override
+	public String getTriggerCharacters() {
+		return ".";
+	}
+
+	/**
+	 * A text can only contain urls if there's a dot followed by a valid top
+	 * level domain or a punycode domain.
+	 *
+	 * @param text The text which may contain urls
+	 * @return True, if {@code text} may contain urls
+	 */
+	@Override
+	public boolean isCandidate(final CharSequence text) {
+		for (int i = 0; i < text.length() - 1; ++i) {
+			if (text.charAt(i) == '.' && (Regex.TLDS_TRIE.match(text, i + 1, TldTrie.GENERIC | TldTrie.COUNTRY) > 0 || isPunycodePrefix(text, i + 1))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isPunycodePrefix(final CharSequence text, final int start) {
+		final String prefix = "xn--";
+		if (text.length() - start < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); ++i) {
+			if (Character.toLowerCase(text.charAt(start + i)) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
 	public List<Node> createLinks(final TextNode textNode) {
+		return newAnchorFinder().createLinks(textNode);
+	}
 
-		final List<Node> rv = new ArrayList<>();
+	/**
+	 * @return A new finder for urls
+	 */
+	AnchorFinder newAnchorFinder() {
+		return new UrlFinder();
+	}
 
-		int start = 0;
-		final String nodeText = textNode.getWholeText();
-		final String baseUri = textNode.baseUri();
+	/**
+	 * Finds urls by their offsets with the configured engine, see
+	 * {@link AnchorFinder}.
+	 */
+	private final class UrlFinder implements AnchorFinder {
 
-		final Matcher matcher = Regex.VALID_URL.matcher(nodeText);
-		while (matcher.find()) {
-			// Add a new textnode for everything before the url
-			final String textBefore = String.format("%s%s", nodeText.substring(start, matcher.start()), matcher.group(Regex.VALID_URL_GROUP_BEFORE));
-			if (!textBefore.isEmpty()) {
-				rv.add(new TextNode(textBefore));
+		private static final int URL_END = 0;
+
+		private static final int PROTOCOL_END = 1;
+
+		private final Matcher regexMatcher = engine == Engine.REGEX ? Regex.VALID_URL.matcher("") : null;
+
+		private final UrlScanner scanner = engine == Engine.SCANNER ? new UrlScanner("") : null;
+
+		private final MatchResult matcher = regexMatcher == null ? scanner : regexMatcher;
+
+		private final LinkSpan current = new LinkSpan();
+
+		private CharSequence text;
+
+		@Override
+		public void reset(final CharSequence newText) {
+			this.text = newText;
+			if (regexMatcher == null) {
+				scanner.reset(newText);
+			} else {
+				regexMatcher.reset(newText);
 			}
-			final Optional<String> protocol = Optional.ofNullable(matcher.group(Regex.VALID_URL_GROUP_PROTOCOL));
+		}
 
-			final Element newAnchor = new Element(Tag.valueOf("a"), baseUri);
-			final String url = String.format("%s%s", protocol.isPresent() ? "" : "http://", matcher.group(Regex.VALID_URL_GROUP_URL));
-			newAnchor.attr("href", url);
-			newAnchor.attr("title", url);
+		@Override
+		public boolean find() {
+			return regexMatcher == null ? scanner.find() : regexMatcher.find();
+		}
+
+		@Override
+		public int textEnd() {
+			return matcher.start(Regex.VALID_URL_GROUP_URL);
+		}
 
-			newAnchor.appendChild(new TextNode(Strings.truncate(matcher.group(Regex.VALID_URL_GROUP_URL).replaceFirst(Pattern.quote(protocol.orElse("http://")), ""), maxLabelLength)));
-			rv.add(newAnchor);
-			start = matcher.end();
+		@Override
+		public int end() {
+			return matcher.end();
 		}
-		// Add a new textnode for everything after
-		final String textAfter = nodeText.substring(start);
-		if (!textAfter.isEmpty()) {
-			rv.add(new TextNode(textAfter));
+
+		@Override
+		public void writeAnchor(final StringBuilder target) {
+			capture(current);
+			writeAnchor(current, target);
+		}
+
+		@Override
+		public void capture(final LinkSpan span) {
+			span.set(textEnd(), end());
+			span.setOffset(URL_END, matcher.end(Regex.VALID_URL_GROUP_URL));
+			span.setOffset(PROTOCOL_END, matcher.end(Regex.VALID_URL_GROUP_PROTOCOL));
+		}
+
+		@Override
+		public void writeAnchor(final LinkSpan span, final StringBuilder target) {
+			final int urlStart = span.getStart();
+			final int urlEnd = span.getOffset(URL_END);
+			final int protocolEnd = span.getOffset(PROTOCOL_END);
+
+			target.append("<a href=\"");
+			writeUrl(urlStart, urlEnd, protocolEnd, target);
+			target.append("\" title=\"");
+			writeUrl(urlStart, urlEnd, protocolEnd, target);
+			target.append('"');
+			renderer.closeStartTag(target);
+
+			// The label is the url without its protocol, see createAnchor
+			int removedStart = urlStart;
+			int removedEnd = protocolEnd;
+			if (protocolEnd < 0) {
+				removedStart = Strings.indexOf(text, urlStart, urlEnd, DEFAULT_PROTOCOL);
+				removedEnd = removedStart < 0 ? urlStart : removedStart + DEFAULT_PROTOCOL.length();
+				removedStart = Math.max(removedStart, urlStart);
+			}
+			writeLabel(urlStart, removedStart, removedEnd, urlEnd, target);
+			target.append("</a>");
+		}
+
+		@Override
+		public Element createAnchor(final LinkSpan span, final String baseUri) {
+			final int protocolEnd = span.getOffset(PROTOCOL_END);
+			final String protocol = protocolEnd < 0 ? null : text.subSequence(span.getStart(), protocolEnd).toString();
+			final String urlText = text.subSequence(span.getStart(), span.getOffset(URL_END)).toString();
+
+			final String url = protocol == null ? DEFAULT_PROTOCOL + urlText : urlText;
+
+			// The label is the url without its protocol
+			final String removed = protocol == null ? DEFAULT_PROTOCOL : protocol;
+			final int removedStart = urlText.indexOf(removed);
+			final String label = removedStart < 0 ? urlText : urlText.substring(0, removedStart) + urlText.substring(removedStart + removed.length());
+			return renderer.createAnchor(baseUri, url, url, Strings.truncate(label, maxLabelLength));
+		}
+
+		@Override
+		public AutoLinkEntity createEntity(final LinkSpan span, final int offset) {
+			final String urlText = text.subSequence(span.getStart(), span.getOffset(URL_END)).toString();
+			final String url = span.getOffset(PROTOCOL_END) < 0 ? DEFAULT_PROTOCOL + urlText : urlText;
+			return new AutoLinkEntity(AutoLinkEntity.Kind.URL, offset + span.getStart(), offset + span.getEnd(), url);
+		}
+
+		private void writeUrl(final int urlStart, final int urlEnd, final int protocolEnd, final StringBuilder target) {
+			if (protocolEnd < 0) {
+				target.append(DEFAULT_PROTOCOL);
+			}
+			HtmlWriter.escape(text, urlStart, urlEnd, target, true);
+		}
+
+		/**
+		 * Writes the label consisting of the two ranges
+		 * {@code [start, removedStart)} and {@code [removedEnd, end)},
+		 * truncated like {@link Strings#truncate(java.lang.String, int, java.lang.String)}.
+		 */
+		private void writeLabel(final int start, final int removedStart, final int removedEnd, final int end, final StringBuilder target) {
+			if (maxLabelLength < 1) {
+				throw new IllegalArgumentException("Cannot truncate string to length < 0");
+			}
+			final int length = Character.codePointCount(text, start, removedStart) + Character.codePointCount(text, removedEnd, end);
+			if (length <= maxLabelLength) {
+				HtmlWriter.escape(text, start, removedStart, target, false);
+				HtmlWriter.escape(text, removedEnd, end, target, false);
+				return;
+			}
+			final int maxLength = maxLabelLength - 1;
+			final int firstLength = Character.codePointCount(text, start, removedStart);
+			if (maxLength <= firstLength) {
+				HtmlWriter.escape(text, start, Character.offsetByCodePoints(text, start, maxLength), target, false);
+			} else {
+				HtmlWriter.escape(text, start, removedStart, target, false);
+				HtmlWriter.escape(text, removedEnd, Character.offsetByCodePoints(text, removedEnd, maxLength - firstLength), target, false);
+			}
+			target.append(ELLIPSIS);
 		}
-		return rv;
 	}
 }
@@ -0,0 +1,637 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.Arrays;
+import java.util.regex.MatchResult;
+
+/**
+ * A hand written scanner for urls that implements the same grammar as
+ * {@link Regex#VALID_URL} without any backtracking. Matches are reported with
+ * the same groups as the regular expression, so that a scanner can be used
+ * wherever a {@link java.util.regex.Matcher} over {@code VALID_URL} has been
+ * used before.
+ * <br>
+ * The scanner remembers the last run of domain label characters and the last
+ * chain of subdomains it has looked at. Labels and chains are shared by all
+ * positions inside them, so every character is only examined a constant
+ * number of times.
+ * <br>
+ * Instances are not thread safe, create a new one for every text or
+ * {@link #reset(java.lang.CharSequence) reset} an existing one.
+ *
+ * @author Michael J. Simons
+ */
+final class UrlScanner implements MatchResult {
+
+	private static final int VALID_CHAR = 1;
+	private static final int GENERAL_PATH_CHAR = 2;
+	private static final int PATH_ENDING_CHAR = 4;
+	private static final int QUERY_CHAR = 8;
+	private static final int QUERY_ENDING_CHAR = 16;
+	private static final int PUNCTUATION = 32;
+	private static final int INVALID_PRECEDING_CHAR = 64;
+
+	/**
+	 * Character classes of all ASCII characters.
+	 */
+	private static final byte[] ASCII_CLASSES = new byte[128];
+
+	static {
+		final String alphaNumeric = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+		mark(alphaNumeric, VALID_CHAR | GENERAL_PATH_CHAR | PATH_ENDING_CHAR | QUERY_CHAR | QUERY_ENDING_CHAR | INVALID_PRECEDING_CHAR);
+		mark("!*';:=+,.$/%#[]-_~|&@", GENERAL_PATH_CHAR);
+		mark("=_#/-+", PATH_ENDING_CHAR);
+		mark("!?*'();:&=+$/%#[]-_.,~|@", QUERY_CHAR);
+		mark("_&=#/", QUERY_ENDING_CHAR);
+		mark("!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~", PUNCTUATION);
+		mark("@$#", INVALID_PRECEDING_CHAR);
+	}
+
+	private static final int GROUP_COUNT = Regex.VALID_URL_GROUP_QUERY_STRING;
+
+	private CharSequence text;
+
+	private int length;
+
+	/**
+	 * Index of the last dot in {@link #text}. Urls cannot start behind it.
+	 */
+	private int lastDot;
+
+	/**
+	 * Start and end indexes of all groups of the current match.
+	 */
+	private final int[] groups = new int[(GROUP_COUNT + 1) * 2];
+
+	/**
+	 * Index at which the next call to {@link #find()} starts.
+	 */
+	private int position;
+
+	private boolean matched;
+
+	/**
+	 * The last run of characters valid in domain labels, including dashes and
+	 * underscores.
+	 */
+	private int runStart = -1;
+
+	private int runEnd = -1;
+
+	private int lastUnderscoreInRun = -1;
+
+	/**
+	 * The first and last label of the last chain of subdomains and the
+	 * start and end of the last label in that chain that is followed by a
+	 * valid top level domain.
+	 */
+	private int chainFirst = -1;
+
+	private int chainLast = -1;
+
+	private int chainDomain = -1;
+
+	private int chainDomainEnd = -1;
+
+	/**
+	 * Creates a new scanner for the given text.
+	 *
+	 * @param text The text to scan for urls
+	 */
+	UrlScanner(final CharSequence text) {
+		reset(text);
+	}
+
+	/**
+	 * Starts scanning a new text, forgetting everything about the previous
+	 * one.
+	 *
+	 * @param newText The text to scan for urls
+	 */
+	void reset(final CharSequence newText) {
+		this.text = newText;
+		this.length = newText.length();
+		int dot = length - 1;
+		while (dot >= 0 && newText.charAt(dot) != '.') {
+			--dot;
+		}
+		this.lastDot = dot;
+		this.position = 0;
+		this.matched = false;
+		this.runStart = -1;
+		this.runEnd = -1;
+		this.lastUnderscoreInRun = -1;
+		this.chainFirst = -1;
+		this.chainLast = -1;
+		this.chainDomain = -1;
+		this.chainDomainEnd = -1;
+	}
+
+	/**
+	 * Looks for the next url, starting after the end of the previous one.
+	 *
+	 * @return True if an url was found
+	 */
+	boolean find() {
+		matched = false;
+		for (int i = position; i < lastDot; ++i) {
+			final char c = text.charAt(i);
+			if (isValidPrecedingChar(c)) {
+				int urlStart = i + 1;
+				if (Character.isHighSurrogate(c) && urlStart < length && Character.isLowSurrogate(text.charAt(urlStart))) {
+					++urlStart;
+				}
+				if (matchUrl(i, urlStart)) {
+					return true;
+				}
+			}
+			if (i == 0 && matchUrl(0, 0)) {
+				return true;
+			}
+		}
+		position = length;
+		return false;
+	}
+
+	private boolean matchUrl(final int matchStart, final int urlStart) {
+		final int protocolLength = protocolLength(urlStart);
+		int domainStart = urlStart + protocolLength;
+		int domainEnd = matchDomain(domainStart);
+		if (domainEnd < 0 && protocolLength > 0) {
+			domainStart = urlStart;
+			domainEnd = matchDomain(domainStart);
+		}
+		if (domainEnd < 0) {
+			return false;
+		}
+
+		Arrays.fill(groups, -1);
+		setGroup(Regex.VALID_URL_GROUP_BEFORE, matchStart, urlStart);
+		if (domainStart > urlStart) {
+			setGroup(Regex.VALID_URL_GROUP_PROTOCOL, urlStart, domainStart);
+		}
+		setGroup(Regex.VALID_URL_GROUP_DOMAIN, domainStart, domainEnd);
+
+		int end = domainEnd;
+		if (end + 1 < length && text.charAt(end) == ':' && isDigit(text.charAt(end + 1))) {
+			int portEnd = end + 1;
+			while (portEnd < length && isDigit(text.charAt(portEnd))) {
+				++portEnd;
+			}
+			setGroup(Regex.VALID_URL_GROUP_PORT, end + 1, portEnd);
+			end = portEnd;
+		}
+		if (end < length && text.charAt(end) == '/') {
+			final int pathEnd = scanPath(end + 1);
+			setGroup(Regex.VALID_URL_GROUP_PATH, end, pathEnd);
+			end = pathEnd;
+		}
+		if (end < length && text.charAt(end) == '?') {
+			final int queryEnd = scanQuery(end + 1);
+			if (queryEnd > 0) {
+				setGroup(Regex.VALID_URL_GROUP_QUERY_STRING, end, queryEnd);
+				end = queryEnd;
+			}
+		}
+
+		setGroup(0, matchStart, end);
+		setGroup(Regex.VALID_URL_GROUP_ALL, matchStart, end);
+		setGroup(Regex.VALID_URL_GROUP_URL, urlStart, end);
+		position = end;
+		matched = true;
+		return true;
+	}
+
+	/**
+	 * Tries the alternatives of the domain part in the same order as the
+	 * regular expression does.
+	 *
+	 * @param start Start of the domain
+	 * @return End of the domain or -1
+	 */
+	private int matchDomain(final int start) {
+		// Subdomains, domain and top level domain, e.g. www.twitter.com, foo.co.jp, bar.co.uk
+		int rv = matchSubdomains(start);
+		// Domain, generic top level domain and some country code top level domains, e.g. twitter.com
+		if (rv < 0) {
+			final int dot = labelEnd(start, false);
+			if (dot > 0) {
+				rv = matchTld(dot + 1, TldTrie.GENERIC);
+				if (rv < 0) {
+					rv = matchPunycode(dot + 1);
+				}
+				if (rv < 0) {
+					rv = matchSpecialCountryTld(dot + 1);
+				}
+			}
+		}
+		// Protocol, domain and country code top level domain or unicode domain
+		if (rv < 0 && isPrecededByProtocol(start)) {
+			final int dot = labelEnd(start, false);
+			if (dot > 0) {
+				rv = matchTld(dot + 1, TldTrie.COUNTRY);
+			}
+			if (rv < 0) {
+				rv = matchUnicodeDomain(start);
+			}
+		}
+		// Domain and country code top level domain followed by a slash, e.g. t.co/
+		if (rv < 0) {
+			final int dot = labelEnd(start, false);
+			if (dot > 0) {
+				rv = matchTld(dot + 1, TldTrie.COUNTRY);
+				if (rv >= length || rv > 0 && text.charAt(rv) != '/') {
+					rv = -1;
+				}
+			}
+		}
+		return rv;
+	}
+
+	/**
+	 * One or more subdomains followed by a domain and a top level domain.
+	 * The regex engine takes as many subdomains as possible, so the last
+	 * label in the chain of subdomains that is followed by a top level domain
+	 * wins.
+	 *
+	 * @param start Start of the first subdomain
+	 * @return End of the domain or -1
+	 */
+	private int matchSubdomains(final int start) {
+		final int firstDot = labelEnd(start, true);
+		if (firstDot < 0) {
+			return -1;
+		}
+		final int next = firstDot + 1;
+		final boolean onChain = chainFirst >= 0 && next >= chainFirst && next <= chainLast;
+		if (!onChain) {
+			chainFirst = next;
+			chainDomain = -1;
+			chainDomainEnd = -1;
+			int label = next;
+			while (true) {
+				final int dot = labelEnd(label, false);
+				final int end = dot < 0 ? -1 : matchTldOrPunycode(dot + 1);
+				if (end > 0) {
+					chainDomain = label;
+					chainDomainEnd = end;
+				}
+				chainLast = label;
+				final int subdomainDot = labelEnd(label, true);
+				if (subdomainDot < 0) {
+					break;
+				}
+				label = subdomainDot + 1;
+			}
+		}
+		return chainDomain >= next ? chainDomainEnd : -1;
+	}
+
+	private int matchTldOrPunycode(final int start) {
+		int rv = matchTld(start, TldTrie.GENERIC);
+		if (rv < 0) {
+			rv = matchTld(start, TldTrie.COUNTRY);
+		}
+		if (rv < 0) {
+			rv = matchPunycode(start);
+		}
+		return rv;
+	}
+
+	/**
+	 * Any non space, non punctuation characters including dots, followed by
+	 * a dot and a top level domain. Only valid directly after a protocol.
+	 *
+	 * @param start Start of the domain
+	 * @return End of the domain or -1
+	 */
+	private int matchUnicodeDomain(final int start) {
+		int end = start;
+		while (end < length && isUnicodeDomainChar(text.charAt(end))) {
+			++end;
+		}
+		for (int dot = end - 1; dot > start; --dot) {
+			if (text.charAt(dot) == '.') {
+				int rv = matchTld(dot + 1, TldTrie.GENERIC);
+				if (rv < 0) {
+					rv = matchTld(dot + 1, TldTrie.COUNTRY);
+				}
+				if (rv > 0) {
+					return rv;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Computes the end of a domain label starting at {@code start}. A label
+	 * consists of valid characters, dashes and optionally underscores, must
+	 * start and end with a valid character and must be followed by a dot.
+	 *
+	 * @param start            Start of the label
+	 * @param allowUnderscores True if the label may contain underscores
+	 * @return The index of the dot following the label or -1
+	 */
+	private int labelEnd(final int start, final boolean allowUnderscores) {
+		if (start >= length || !isValidChar(text.charAt(start))) {
+			return -1;
+		}
+		if (start < runStart || start >= runEnd) {
+			runStart = start;
+			lastUnderscoreInRun = -1;
+			int i = start;
+			while (i < length) {
+				final char c = text.charAt(i);
+				if (c == '_') {
+					lastUnderscoreInRun = i;
+				} else if (c != '-' && !isValidChar(c)) {
+					break;
+				}
+				++i;
+			}
+			runEnd = i;
+		}
+		if (runEnd >= length || text.charAt(runEnd) != '.' || !isValidChar(text.charAt(runEnd - 1)) || !allowUnderscores && lastUnderscoreInRun >= start) {
+			return -1;
+		}
+		return runEnd;
+	}
+
+	private int matchTld(final int start, final int kind) {
+		final int tldLength = Regex.TLDS_TRIE.match(text, start, kind);
+		return tldLength < 0 ? -1 : start + tldLength;
+	}
+
+	private int matchPunycode(final int start) {
+		if (!regionMatches(start, "xn--")) {
+			return -1;
+		}
+		int rv = start + 4;
+		while (rv < length && text.charAt(rv) < 128 && isValidChar(text.charAt(rv))) {
+			++rv;
+		}
+		return rv > start + 4 ? rv : -1;
+	}
+
+	private int matchSpecialCountryTld(final int start) {
+		if ((regionMatches(start, "co") || regionMatches(start, "tv")) && isTldBoundary(start + 2)) {
+			return start + 2;
+		}
+		return -1;
+	}
+
+	/**
+	 * The path consists of segments. A segment is either a run of path
+	 * characters and balanced parentheses up to the last valid path ending
+	 * character or a single pair of balanced parentheses.
+	 *
+	 * @param start Start of the path behind the leading slash
+	 * @return End of the path
+	 */
+	private int scanPath(final int start) {
+		int rv = start;
+		// End of the last run without any path ending character
+		int exhaustedUntil = -1;
+		while (rv < length) {
+			if (rv >= exhaustedUntil) {
+				int lastEndingChar = -1;
+				int i = rv;
+				while (i < length) {
+					final char c = text.charAt(i);
+					if (c == '(') {
+						final int parensEnd = balancedParensEnd(i);
+						if (parensEnd < 0) {
+							break;
+						}
+						i = parensEnd;
+					} else if (hasClass(c, GENERAL_PATH_CHAR)) {
+						++i;
+						if (hasClass(c, PATH_ENDING_CHAR)) {
+							lastEndingChar = i;
+						}
+					} else {
+						break;
+					}
+				}
+				if (lastEndingChar > 0) {
+					rv = lastEndingChar;
+					continue;
+				}
+				exhaustedUntil = i;
+			}
+			final int parensEnd = text.charAt(rv) == '(' ? balancedParensEnd(rv) : -1;
+			if (parensEnd < 0) {
+				break;
+			}
+			rv = parensEnd;
+		}
+		return rv;
+	}
+
+	/**
+	 * Up to two levels of balanced parentheses, containing general path
+	 * characters.
+	 *
+	 * @param start Index of the opening parenthesis
+	 * @return Index behind the closing parenthesis or -1
+	 */
+	private int balancedParensEnd(final int start) {
+		final int content = skipGeneralPathChars(start + 1);
+		if (content < length && text.charAt(content) == ')' && content > start + 1) {
+			return content + 1;
+		}
+		if (content < length && text.charAt(content) == '(') {
+			final int nestedContent = skipGeneralPathChars(content + 1);
+			if (nestedContent > content + 1 && nestedContent < length && text.charAt(nestedContent) == ')') {
+				final int rest = skipGeneralPathChars(nestedContent + 1);
+				if (rest < length && text.charAt(rest) == ')') {
+					return rest + 1;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private int skipGeneralPathChars(final int start) {
+		int rv = start;
+		while (rv < length && hasClass(text.charAt(rv), GENERAL_PATH_CHAR)) {
+			++rv;
+		}
+		return rv;
+	}
+
+	/**
+	 * Query characters up to the last valid query ending character.
+	 *
+	 * @param start Start of the query behind the question mark
+	 * @return End of the query or -1 if there is no valid query
+	 */
+	private int scanQuery(final int start) {
+		int rv = -1;
+		for (int i = start; i < length; ++i) {
+			final char c = text.charAt(i);
+			if (c >= 128 || (ASCII_CLASSES[c] & QUERY_CHAR) == 0) {
+				break;
+			}
+			if ((ASCII_CLASSES[c] & QUERY_ENDING_CHAR) != 0) {
+				rv = i + 1;
+			}
+		}
+		return rv;
+	}
+
+	private int protocolLength(final int start) {
+		if (!regionMatches(start, "http")) {
+			return 0;
+		}
+		int i = start + 4;
+		if (i < length && Character.toLowerCase(text.charAt(i)) == 's') {
+			++i;
+		}
+		return regionMatches(i, "://") ? i + 3 - start : 0;
+	}
+
+	private boolean isPrecededByProtocol(final int start) {
+		return start >= 7 && regionMatches(start - 7, "http://") || start >= 8 && regionMatches(start - 8, "https://");
+	}
+
+	/**
+	 * Case insensitive comparison against a lower case ASCII string.
+	 */
+	private boolean regionMatches(final int start, final String lowerCase) {
+		if (start < 0 || length - start < lowerCase.length()) {
+			return false;
+		}
+		for (int i = 0; i < lowerCase.length(); ++i) {
+			char c = text.charAt(start + i);
+			if (c >= 'A' && c <= 'Z') {
+				c = (char) (c + ('a' - 'A'));
+			}
+			if (c != lowerCase.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isTldBoundary(final int index) {
+		if (index >= length) {
+			return true;
+		}
+		final char c = text.charAt(index);
+		return c >= 128 || c != '@' && (ASCII_CLASSES[c] & VALID_CHAR) == 0;
+	}
+
+	private void setGroup(final int group, final int start, final int end) {
+		groups[group * 2] = start;
+		groups[group * 2 + 1] = end;
+	}
+
+	private static void mark(final String characters, final int characterClass) {
+		for (int i = 0; i < characters.length(); ++i) {
+			ASCII_CLASSES[characters.charAt(i)] |= characterClass;
+		}
+	}
+
+	private static boolean hasClass(final char c, final int characterClass) {
+		if (c < 128) {
+			return (ASCII_CLASSES[c] & characterClass) != 0;
+		}
+		return (characterClass & (VALID_CHAR | GENERAL_PATH_CHAR | PATH_ENDING_CHAR)) != 0 && isLatinAccent(c);
+	}
+
+	private static boolean isValidChar(final char c) {
+		return hasClass(c, VALID_CHAR);
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isValidPrecedingChar(final char c) {
+		if (c < 128) {
+			return (ASCII_CLASSES[c] & INVALID_PRECEDING_CHAR) == 0;
+		}
+		return !(c == '\uff20' || c == '\uff03' || c >= '\u202a' && c <= '\u202e');
+	}
+
+	/**
+	 * Anything but punctuation, whitespace and separators. Dots are allowed.
+	 */
+	private static boolean isUnicodeDomainChar(final char c) {
+		if (c < 128) {
+			return c == '.' || (ASCII_CLASSES[c] & PUNCTUATION) == 0 && !(c == ' ' || c >= '\t' && c <= '\r');
+		}
+		final int type = Character.getType(c);
+		return !(type == Character.SPACE_SEPARATOR || type == Character.LINE_SEPARATOR || type == Character.PARAGRAPH_SEPARATOR || c >= '\u2000' && c <= '\u206f');
+	}
+
+	/**
+	 * @see Regex#LATIN_ACCENTS_CHARS
+	 */
+	private static boolean isLatinAccent(final char c) {
+		return c >= '\u00c0' && c <= '\u00d6' || c >= '\u00d8' && c <= '\u00f6' || c >= '\u00f8' && c <= '\u024f'
+			|| c == '\u0253' || c == '\u0254' || c == '\u0256' || c == '\u0257' || c == '\u0259' || c == '\u025b'
+			|| c == '\u0263' || c == '\u0268' || c == '\u026f' || c == '\u0272' || c == '\u0289' || c == '\u028b'
+			|| c == '\u02bb' || c >= '\u0300' && c <= '\u036f' || c >= '\u1e00' && c <= '\u1eff';
+	}
+
+	private void checkMatch() {
+		if (!matched) {
+			throw new IllegalStateException("No match available");
+		}
+	}
+
+	@Override
+	public int start() {
+		return start(0);
+	}
+
+	@Override
+	public int start(final int group) {
+		checkMatch();
+		return groups[group * 2];
+	}
+
+	@Override
+	public int end() {
+		return end(0);
+	}
+
+	@Override
+	public int end(final int group) {
+		checkMatch();
+		return groups[group * 2 + 1];
+	}
+
+	@Override
+	public String group() {
+		return group(0);
+	}
+
+	@Override
+	public String group(final int group) {
+		final int start = start(group);
+		return start < 0 ? null : text.subSequence(start, end(group)).toString();
+	}
+
+	@Override
+	public int groupCount() {
+		return GROUP_COUNT;
+	}
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+
+/**
+ * Links UTF-8 encoded html without decoding it as a whole. The markup is
+ * tokenized the same way {@link HtmlStreamLinker} does, but as markup is
+ * never changed, the tokenizer only has to find the text runs. Everything
+ * but text runs that have been linked is copied byte by byte. Text runs are
+ * only decoded if they contain one of the trigger characters of the
+ * autolinkers or an entity, which could be one.
+ * <br>
+ * This works because all characters relevant to markup are ASCII and bytes
+ * of multibyte sequences in UTF-8 are never ASCII. Instances are meant to be
+ * used once.
+ *
+ * @author Michael J. Simons
+ */
+final class Utf8HtmlLinker {
+
+	/**
+	 * Longest tag name we care about.
+	 */
+	private static final int MAX_TAG_NAME_LENGTH = 8;
+
+	private static final int REPLACEMENT_CHARACTER = 0xfffd;
+
+	/**
+	 * Turns a text node into a list of nodes with links.
+	 */
+	private final Function<TextNode, List<Node>> linker;
+
+	private final Triggers triggers;
+
+	private final ByteBuffer in;
+
+	private final int limit;
+
+	private ByteBuffer out;
+
+	/**
+	 * Everything before this index has been written.
+	 */
+	private int copied;
+
+	private final StringBuilder tagName = new StringBuilder(MAX_TAG_NAME_LENGTH);
+
+	/**
+	 * Set by {@link #skipTag(int)}.
+	 */
+	private boolean selfClosing;
+
+	/**
+	 * Number of bytes of the last code point decoded by
+	 * {@link #codePointAt(int)}.
+	 */
+	private int codePointLength;
+
+	/**
+	 * Number of currently open anchors.
+	 */
+	private int anchorDepth;
+
+	Utf8HtmlLinker(final Triggers triggers, final Function<TextNode, List<Node>> linker, final ByteBuffer in, final ByteBuffer out) {
+		this.triggers = triggers;
+		this.linker = linker;
+		this.in = in;
+		this.limit = in.limit();
+		this.out = out;
+		this.copied = in.position();
+	}
+
+	/**
+	 * Reads the input from its position to its limit and writes the linked
+	 * html. The position of the input is moved to its limit.
+	 *
+	 * @return The buffer containing the result, either the original target
+	 *         or a larger copy of it
+	 */
+	ByteBuffer run() {
+		int position = in.position();
+		int textStart = position;
+		while (position < limit) {
+			if (in.get(position) == '<' && position + 1 < limit && isMarkupStart(in.get(position + 1))) {
+				linkText(textStart, position);
+				position = skipMarkup(position + 1);
+				textStart = position;
+			} else {
+				++position;
+			}
+		}
+		linkText(textStart, limit);
+		copyInput(limit);
+		in.position(limit);
+		return out;
+	}
+
+	/**
+	 * Links the text run between {@code start} and {@code end}. Runs that are
+	 * not linked are left in the input, to be copied with the surrounding
+	 * markup.
+	 */
+	private void linkText(final int start, final int end) {
+		if (start == end || anchorDepth > 0 || !triggers.mayContainLinks(in, start, end)) {
+			return;
+		}
+		final ByteBuffer run = in.duplicate();
+		run.limit(end).position(start);
+		final String raw = StandardCharsets.UTF_8.decode(run).toString();
+		final TextNode textNode = new TextNode(raw.indexOf('&') < 0 ? raw : Parser.unescapeEntities(raw, false));
+		final List<Node> nodes = linker.apply(textNode);
+		if (nodes.size() == 1 && nodes.get(0) == textNode) {
+			return;
+		}
+		final StringBuilder html = new StringBuilder(raw.length() + 64 * nodes.size());
+		HtmlWriter.writeNodes(nodes, html);
+		copyInput(start);
+		write(html.toString().getBytes(StandardCharsets.UTF_8));
+		copied = end;
+	}
+
+	/**
+	 * Skips a tag, comment or declaration.
+	 *
+	 * @param start Index after the opening angle bracket
+	 * @return Index after the markup
+	 */
+	private int skipMarkup(final int start) {
+		final byte c = in.get(start);
+		if (c == '!') {
+			if (start + 2 < limit && in.get(start + 1) == '-' && in.get(start + 2) == '-') {
+				return skipPast("-->", start + 3);
+			}
+			return skipPast(">", start + 1);
+		} else if (c == '?') {
+			return skipPast(">", start + 1);
+		}
+		final boolean endTag = c == '/';
+		tagName.setLength(0);
+		if (!endTag) {
+			tagName.append(Character.toLowerCase((char) c));
+		}
+		int position = skipTag(start + 1);
+		final String name = tagName.toString();
+		if ("a".equals(name)) {
+			if (endTag) {
+				anchorDepth = Math.max(0, anchorDepth - 1);
+			} else if (!selfClosing) {
+				++anchorDepth;
+			}
+		} else if (!endTag && !selfClosing && ("script".equals(name) || "style".equals(name))) {
+			position = skipRawText(name, position);
+		}
+		return position;
+	}
+
+	/**
+	 * Skips the rest of a tag, remembering its name and whether it is self
+	 * closing.
+	 *
+	 * @param start Index after the first character of the tag
+	 * @return Index after the tag
+	 */
+	private int skipTag(final int start) {
+		boolean inName = true;
+		int previous = -1;
+		int position = start;
+		while (position < limit) {
+			final int c = codePointAt(position);
+			position += codePointLength;
+			if (c == '>') {
+				selfClosing = previous == '/';
+				return position;
+			}
+			if (inName) {
+				if (Character.isWhitespace(c) || c == '/') {
+					inName = false;
+				} else if (tagName.length() <= MAX_TAG_NAME_LENGTH) {
+					tagName.appendCodePoint(Character.isBmpCodePoint(c) ? Character.toLowerCase(c) : c);
+				}
+			} else if ((c == '"' || c == '\'') && previous == '=') {
+				// Quoted attribute values may contain angle brackets
+				position = skipPast(c == '"' ? "\"" : "'", position);
+			}
+			if (!Character.isWhitespace(c)) {
+				previous = c;
+			}
+		}
+		selfClosing = false;
+		return limit;
+	}
+
+	/**
+	 * Skips the content of a script or style element and its end tag.
+	 *
+	 * @param name  The name of the element
+	 * @param start Index after the start tag
+	 * @return Index after the end tag
+	 */
+	private int skipRawText(final String name, final int start) {
+		final String endTag = "</" + name;
+		int matched = 0;
+		int position = start;
+		while (position < limit) {
+			final int c = codePointAt(position);
+			position += codePointLength;
+			if (Character.toLowerCase(c) == endTag.charAt(matched)) {
+				if (++matched < endTag.length()) {
+					continue;
+				}
+				final int next = position < limit ? codePointAt(position) : -1;
+				if (next < 0 || Character.isWhitespace(next) || next == '/' || next == '>') {
+					tagName.setLength(0);
+					return skipTag(position);
+				}
+			} else if (c == '<') {
+				matched = 1;
+				continue;
+			}
+			matched = 0;
+		}
+		return limit;
+	}
+
+	/**
+	 * Skips everything up to and including {@code terminator}.
+	 *
+	 * @param terminator An ASCII terminator
+	 * @param start      Index to start searching at
+	 * @return Index after the terminator
+	 */
+	private int skipPast(final String terminator, final int start) {
+		final int last = limit - terminator.length();
+		outer:
+		for (int position = start; position <= last; ++position) {
+			for (int i = 0; i < terminator.length(); ++i) {
+				if (in.get(position + i) != terminator.charAt(i)) {
+					continue outer;
+				}
+			}
+			return position + terminator.length();
+		}
+		return limit;
+	}
+
+	/**
+	 * Decodes the code point at {@code index}. Malformed sequences are
+	 * treated as a single replacement character, as a decoder would do.
+	 */
+	private int codePointAt(final int index) {
+		final int b = in.get(index) & 0xff;
+		codePointLength = 1;
+		if (b < 0x80) {
+			return b;
+		}
+		final int length = b >= 0xf8 ? 0 : b >= 0xf0 ? 4 : b >= 0xe0 ? 3 : b >= 0xc0 ? 2 : 0;
+		if (length == 0 || index + length > limit) {
+			return REPLACEMENT_CHARACTER;
+		}
+		int rv = b & 0x3f >> length - 1;
+		for (int i = 1; i < length; ++i) {
+			final int next = in.get(index + i) & 0xff;
+			if ((next & 0xc0) != 0x80) {
+				return REPLACEMENT_CHARACTER;
+			}
+			rv = rv << 6 | next & 0x3f;
+		}
+		codePointLength = length;
+		return rv;
+	}
+
+	/**
+	 * Copies the input that hasn't been written yet up to {@code end}.
+	 */
+	private void copyInput(final int end) {
+		if (end == copied) {
+			return;
+		}
+		final ByteBuffer bytes = in.duplicate();
+		bytes.limit(end).position(copied);
+		ensureRemaining(bytes.remaining());
+		out.put(bytes);
+		copied = end;
+	}
+
+	private void write(final byte[] bytes) {
+		ensureRemaining(bytes.length);
+		out.put(bytes);
+	}
+
+	/**
+	 * Replaces the target with a larger copy if it's too small.
+	 */
+	private void ensureRemaining(final int required) {
+		if (out.remaining() >= required) {
+			return;
+		}
+		final int capacity = Math.max(out.capacity() * 2, out.position() + required);
+		final ByteBuffer larger = out.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+		larger.order(out.order());
+		out.flip();
+		larger.put(out);
+		out = larger;
+	}
+
+	private static boolean isMarkupStart(final int c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '/' || c == '!' || c == '?';
+	}
+
+	/**
+	 * The bytes that make a text run worth decoding for a list of
+	 * autolinkers. Immutable and computed once per service.
+	 */
+	static final class Triggers {
+
+		/**
+		 * ASCII bytes that make a text run worth decoding.
+		 */
+		private final boolean[] triggerBytes = new boolean[128];
+
+		/**
+		 * True if there are non ASCII trigger characters, in which case any
+		 * multibyte sequence makes a text run worth decoding.
+		 */
+		private final boolean nonAsciiTriggers;
+
+		/**
+		 * True if any autolinker cannot name its trigger characters.
+		 */
+		private final boolean alwaysDecode;
+
+		Triggers(final List<AutoLinker> autoLinkers) {
+			boolean hasNonAsciiTriggers = false;
+			boolean hasUnknownTriggers = false;
+			for (AutoLinker autoLinker : autoLinkers) {
+				final String triggerCharacters = autoLinker.getTriggerCharacters();
+				hasUnknownTriggers |= triggerCharacters.isEmpty();
+				for (int i = 0; i < triggerCharacters.length(); ++i) {
+					final char c = triggerCharacters.charAt(i);
+					if (c < triggerBytes.length) {
+						triggerBytes[c] = true;
+					} else {
+						hasNonAsciiTriggers = true;
+					}
+				}
+			}
+			// Entities may encode trigger characters
+			this.triggerBytes['&'] = true;
+			this.nonAsciiTriggers = hasNonAsciiTriggers;
+			this.alwaysDecode = hasUnknownTriggers;
+		}
+
+		boolean mayContainLinks(final ByteBuffer bytes, final int start, final int end) {
+			if (alwaysDecode) {
+				return true;
+			}
+			for (int i = start; i < end; ++i) {
+				final byte b = bytes.get(i);
+				if (b < 0 ? nonAsciiTriggers : triggerBytes[b]) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
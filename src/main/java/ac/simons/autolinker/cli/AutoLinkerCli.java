@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import ac.simons.autolinker.AutoLinkService;
+import ac.simons.autolinker.AutoLinker;
+import ac.simons.autolinker.EmailAddressAutoLinker;
+import ac.simons.autolinker.TwitterUserAutoLinker;
+import ac.simons.autolinker.UrlAutoLinker;
+
+/**
+ * Links files and directory trees from the command line, see
+ * {@link BulkLinker}. The files are linked with the autolinkers for email
+ * addresses, mentions and urls. Throughput and the number of links created
+ * by each autolinker are reported at the end.
+ *
+ * @author Michael J. Simons
+ */
+public final class AutoLinkerCli {
+
+	/**
+	 * All files have been linked.
+	 */
+	static final int EXIT_OK = 0;
+
+	/**
+	 * At least one file could not be linked.
+	 */
+	static final int EXIT_FAILURES = 1;
+
+	/**
+	 * The arguments are invalid.
+	 */
+	static final int EXIT_USAGE = 2;
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+		"Usage: autolinker [options] <file or directory>...",
+		"  --output <directory>     Write into a tree below <directory> instead of next to the input",
+		"  --suffix <suffix>        Suffix of files written next to the input, default " + BulkLinker.DEFAULT_SUFFIX,
+		"  --threads <n>            Number of files linked in parallel, default number of processors",
+		"  --extensions <list>      Comma separated extensions of files linked inside directories, default html,htm,txt",
+		"  --max-label-length <n>   Maximum length of the label of an url, default 30",
+		"Files with the extension txt are linked as plain text, all others as UTF-8 encoded html.");
+
+	private AutoLinkerCli() {
+	}
+
+	/**
+	 * Links the files given as arguments and exits with {@code 0} if all of
+	 * them have been linked, {@code 1} if some failed and {@code 2} on
+	 * invalid arguments.
+	 *
+	 * @param args Options, files and directories
+	 * @throws InterruptedException If interrupted while linking
+	 */
+	public static void main(final String... args) throws InterruptedException {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Links the files given as arguments.
+	 *
+	 * @param args Options, files and directories
+	 * @param out  Target of the report
+	 * @param err  Target of errors
+	 * @return The exit code
+	 * @throws InterruptedException If interrupted while linking
+	 */
+	static int run(final String[] args, final PrintStream out, final PrintStream err) throws InterruptedException {
+		Path outputDirectory = null;
+		String suffix = BulkLinker.DEFAULT_SUFFIX;
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> extensions = new ArrayList<>(BulkLinker.DEFAULT_EXTENSIONS);
+		int maxLabelLength = 30;
+		final List<Path> inputs = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; ++i) {
+				final String arg = args[i];
+				if (!arg.startsWith("--")) {
+					inputs.add(Paths.get(arg));
+					continue;
+				}
+				if (i + 1 == args.length) {
+					throw new IllegalArgumentException("Missing value of " + arg);
+				}
+				final String value = args[++i];
+				switch (arg) {
+					case "--output":
+						outputDirectory = Paths.get(value);
+						break;
+					case "--suffix":
+						suffix = value;
+						break;
+					case "--threads":
+						threads = Integer.parseInt(value);
+						break;
+					case "--extensions":
+						extensions = Arrays.asList(value.split(","));
+						break;
+					case "--max-label-length":
+						maxLabelLength = Integer.parseInt(value);
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown option " + arg);
+				}
+			}
+			if (inputs.isEmpty()) {
+				throw new IllegalArgumentException("At least one file or directory is required");
+			}
+			if (maxLabelLength < 1) {
+				throw new IllegalArgumentException("The maximum label length must be at least 1");
+			}
+		} catch (IllegalArgumentException e) {
+			err.println(e.getMessage());
+			err.println(USAGE);
+			return EXIT_USAGE;
+		}
+
+		final AutoLinkService autoLinkService = new AutoLinkService(List.of(
+			new EmailAddressAutoLinker(true, true),
+			new TwitterUserAutoLinker(),
+			new UrlAutoLinker(maxLabelLength)
+		));
+		final BulkLinker.Report report;
+		try {
+			report = new BulkLinker(autoLinkService)
+				.withOutputDirectory(outputDirectory)
+				.withSuffix(suffix)
+				.withThreads(threads)
+				.withExtensions(extensions)
+				.link(inputs);
+		} catch (IllegalArgumentException e) {
+			err.println(e.getMessage());
+			err.println(USAGE);
+			return EXIT_USAGE;
+		} catch (IOException e) {
+			err.println("Could not read the input: " + e.getMessage());
+			return EXIT_FAILURES;
+		}
+
+		for (Map.Entry<Path, Throwable> failure : report.getFailures().entrySet()) {
+			err.println("Could not link " + failure.getKey() + ": " + failure.getValue());
+		}
+		out.println(String.format(Locale.ROOT, "Linked %d files (%d failed), read %d bytes, wrote %d bytes in %.3f s: %.1f files/s, %.2f MB/s",
+			report.getFiles(), report.getFailures().size(), report.getBytesRead(), report.getBytesWritten(), report.getNanos() / 1e9, report.getFilesPerSecond(), report.getMegabytesPerSecond()));
+		for (Map.Entry<AutoLinker, Long> matches : report.getMatches().entrySet()) {
+			out.println(String.format(Locale.ROOT, "  %s: %d links", matches.getKey().getClass().getSimpleName(), matches.getValue()));
+		}
+		return report.getFailures().isEmpty() ? EXIT_OK : EXIT_FAILURES;
+	}
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import ac.simons.autolinker.AutoLinkMetrics;
+import ac.simons.autolinker.AutoLinkService;
+import ac.simons.autolinker.AutoLinker;
+
+/**
+ * Links files and directory trees with an {@link AutoLinkService}. Files are
+ * memory mapped and linked as UTF-8 encoded html with
+ * {@link AutoLinkService#addLinksToUtf8(java.nio.ByteBuffer, java.nio.ByteBuffer)},
+ * without decoding them as a whole. Files with the extension {@code txt} are
+ * linked as plain text. Several files are linked in parallel, the largest
+ * ones first, so that no thread is left with a large file while the others
+ * are idle.
+ * <br>
+ * Results are written to a temporary file that is moved to the target when
+ * complete, so a target is never seen half written. Targets are either
+ * written next to their input, with a suffix inserted before the extension,
+ * or into an output directory, keeping the tree below the input directory.
+ * Instances are immutable.
+ *
+ * @author Michael J. Simons
+ */
+public final class BulkLinker {
+
+	/**
+	 * The default suffix of files written next to their input.
+	 */
+	public static final String DEFAULT_SUFFIX = ".linked";
+
+	/**
+	 * The default extensions of files linked inside directories.
+	 */
+	public static final Set<String> DEFAULT_EXTENSIONS = Set.of("html", "htm", "txt");
+
+	private static final String PLAIN_TEXT_EXTENSION = "txt";
+
+	private final AutoLinkService autoLinkService;
+
+	private final Path outputDirectory;
+
+	private final String suffix;
+
+	private final Set<String> extensions;
+
+	private final int threads;
+
+	/**
+	 * Creates a new bulk linker, writing the results next to their inputs
+	 * and using one thread per available processor.
+	 *
+	 * @param autoLinkService The service to link with, its listener is
+	 *                        replaced while linking
+	 */
+	public BulkLinker(final AutoLinkService autoLinkService) {
+		this(autoLinkService, null, DEFAULT_SUFFIX, DEFAULT_EXTENSIONS, Runtime.getRuntime().availableProcessors());
+	}
+
+	private BulkLinker(final AutoLinkService autoLinkService, final Path outputDirectory, final String suffix, final Set<String> extensions, final int threads) {
+		this.autoLinkService = autoLinkService;
+		this.outputDirectory = outputDirectory;
+		this.suffix = suffix;
+		this.extensions = extensions;
+		this.threads = threads;
+	}
+
+	/**
+	 * @param newOutputDirectory The directory to write the results to,
+	 *                           {@literal null} writes them next to the
+	 *                           input
+	 * @return A new bulk linker
+	 */
+	public BulkLinker withOutputDirectory(final Path newOutputDirectory) {
+		return new BulkLinker(autoLinkService, newOutputDirectory == null ? null : newOutputDirectory.toAbsolutePath().normalize(), suffix, extensions, threads);
+	}
+
+	/**
+	 * @param newSuffix The suffix of files written next to the input
+	 * @return A new bulk linker
+	 */
+	public BulkLinker withSuffix(final String newSuffix) {
+		if (newSuffix == null || newSuffix.isEmpty()) {
+			throw new IllegalArgumentException("A suffix is required");
+		}
+		return new BulkLinker(autoLinkService, outputDirectory, newSuffix, extensions, threads);
+	}
+
+	/**
+	 * @param newExtensions The extensions of files linked inside directories,
+	 *                      without the leading dot
+	 * @return A new bulk linker
+	 */
+	public BulkLinker withExtensions(final Collection<String> newExtensions) {
+		return new BulkLinker(autoLinkService, outputDirectory, suffix, newExtensions.stream().map(e -> e.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet()), threads);
+	}
+
+	/**
+	 * @param newThreads The number of files linked in parallel
+	 * @return A new bulk linker
+	 */
+	public BulkLinker withThreads(final int newThreads) {
+		if (newThreads < 1) {
+			throw new IllegalArgumentException("At least one thread is required");
+		}
+		return new BulkLinker(autoLinkService, outputDirectory, suffix, extensions, newThreads);
+	}
+
+	/**
+	 * Links all given files and all files with one of the configured
+	 * extensions inside the given directories. A file that cannot be linked
+	 * is reported and doesn't affect the others.
+	 *
+	 * @param inputs Files and directories
+	 * @return A report of the run
+	 * @throws IOException          If a directory cannot be read
+	 * @throws InterruptedException If interrupted while waiting for the
+	 *                              files to be linked
+	 */
+	public Report link(final List<Path> inputs) throws IOException, InterruptedException {
+		final List<Job> jobs = new ArrayList<>();
+		for (Path input : inputs) {
+			collectJobs(input.toAbsolutePath().normalize(), jobs);
+		}
+		jobs.sort(Comparator.comparingLong((Job job) -> job.size).reversed());
+
+		final AutoLinkMetrics metrics = new AutoLinkMetrics();
+		final AutoLinkService service = autoLinkService.withListener(metrics);
+		final Report report = new Report(metrics, autoLinkService.getAutoLinkers());
+		final long start = System.nanoTime();
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, jobs.size())));
+		try {
+			final List<Future<?>> futures = new ArrayList<>(jobs.size());
+			for (Job job : jobs) {
+				futures.add(executor.submit(() -> link(service, job, report)));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			// Failures of single files are part of the report
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		report.nanos = System.nanoTime() - start;
+		return report;
+	}
+
+	private void collectJobs(final Path input, final List<Job> jobs) throws IOException {
+		if (!Files.isDirectory(input)) {
+			final Path target = outputDirectory == null ? nextTo(input) : outputDirectory.resolve(input.getFileName());
+			jobs.add(new Job(input, target, Files.size(input)));
+			return;
+		}
+		final List<Path> files;
+		try (Stream<Path> paths = Files.walk(input)) {
+			files = paths
+				.filter(Files::isRegularFile)
+				.filter(this::hasExtension)
+				.filter(file -> outputDirectory == null ? !isOutput(file) : !file.startsWith(outputDirectory))
+				.collect(Collectors.toList());
+		}
+		for (Path file : files) {
+			final Path target = outputDirectory == null ? nextTo(file) : outputDirectory.resolve(input.relativize(file).toString());
+			jobs.add(new Job(file, target, Files.size(file)));
+		}
+	}
+
+	private boolean hasExtension(final Path file) {
+		return extensions.contains(extensionOf(file));
+	}
+
+	/**
+	 * @return True if {@code file} has been written next to its input
+	 */
+	private boolean isOutput(final Path file) {
+		final String name = file.getFileName().toString();
+		final String extension = extensionOf(file);
+		return name.substring(0, name.length() - (extension.isEmpty() ? 0 : extension.length() + 1)).endsWith(suffix);
+	}
+
+	private Path nextTo(final Path file) {
+		final String name = file.getFileName().toString();
+		final int dot = name.lastIndexOf('.');
+		return file.resolveSibling(dot <= 0 ? name + suffix : name.substring(0, dot) + suffix + name.substring(dot));
+	}
+
+	private static String extensionOf(final Path file) {
+		final String name = file.getFileName().toString();
+		final int dot = name.lastIndexOf('.');
+		return dot <= 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+	}
+
+	private static void link(final AutoLinkService service, final Job job, final Report report) {
+		try {
+			if (job.target.equals(job.source)) {
+				throw new IOException(job.source + " would be overwritten");
+			}
+			final ByteBuffer linked;
+			try (FileChannel channel = FileChannel.open(job.source, StandardOpenOption.READ)) {
+				final long size = channel.size();
+				if (size > Integer.MAX_VALUE) {
+					throw new IOException(job.source + " is too large");
+				}
+				final ByteBuffer input = size == 0 ? ByteBuffer.allocate(0) : channel.map(MapMode.READ_ONLY, 0, size);
+				if (PLAIN_TEXT_EXTENSION.equals(extensionOf(job.source))) {
+					linked = StandardCharsets.UTF_8.encode(service.addLinksToPlainText(StandardCharsets.UTF_8.decode(input)));
+				} else {
+					linked = service.addLinksToUtf8(input, ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, size + size / 4 + 64)));
+					linked.flip();
+				}
+				report.bytesRead.add(size);
+			}
+			report.bytesWritten.add(linked.remaining());
+			writeAtomically(job.target, linked);
+			report.files.increment();
+		} catch (Throwable e) {
+			// Errors, too, as they would otherwise end the whole run
+			report.failures.put(job.source, e);
+		}
+	}
+
+	/**
+	 * Writes {@code content} to a temporary file in the directory of
+	 * {@code target} and moves it to the target.
+	 */
+	private static void writeAtomically(final Path target, final ByteBuffer content) throws IOException {
+		final Path directory = target.getParent();
+		Files.createDirectories(directory);
+		final Path temporaryFile = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+				while (content.hasRemaining()) {
+					channel.write(content);
+				}
+			}
+			try {
+				Files.move(temporaryFile, target, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	/**
+	 * A file to link.
+	 */
+	private static final class Job {
+
+		private final Path source;
+
+		private final Path target;
+
+		private final long size;
+
+		Job(final Path source, final Path target, final long size) {
+			this.source = source;
+			this.target = target;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * The outcome of linking files in bulk.
+	 */
+	public static final class Report {
+
+		private final AutoLinkMetrics metrics;
+
+		private final List<AutoLinker> autoLinkers;
+
+		private final LongAdder files = new LongAdder();
+
+		private final LongAdder bytesRead = new LongAdder();
+
+		private final LongAdder bytesWritten = new LongAdder();
+
+		private final Map<Path, Throwable> failures = new ConcurrentHashMap<>();
+
+		private long nanos;
+
+		Report(final AutoLinkMetrics metrics, final List<AutoLinker> autoLinkers) {
+			this.metrics = metrics;
+			this.autoLinkers = autoLinkers;
+		}
+
+		/**
+		 * @return Number of files linked
+		 */
+		public long getFiles() {
+			return files.sum();
+		}
+
+		/**
+		 * @return The files that could not be linked and why, ordered by path
+		 */
+		public Map<Path, Throwable> getFailures() {
+			return new TreeMap<>(failures);
+		}
+
+		/**
+		 * @return Number of bytes read from all linked files
+		 */
+		public long getBytesRead() {
+			return bytesRead.sum();
+		}
+
+		/**
+		 * @return Number of bytes written to all targets
+		 */
+		public long getBytesWritten() {
+			return bytesWritten.sum();
+		}
+
+		/**
+		 * @return Time spent linking, from the first file to the last one
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return Linked files per second
+		 */
+		public double getFilesPerSecond() {
+			return nanos == 0 ? 0.0 : getFiles() * 1e9 / nanos;
+		}
+
+		/**
+		 * @return Megabytes read per second, a megabyte being 10^6 bytes
+		 */
+		public double getMegabytesPerSecond() {
+			return nanos == 0 ? 0.0 : getBytesRead() * 1e3 / nanos;
+		}
+
+		/**
+		 * @return The metrics collected while linking
+		 */
+		public AutoLinkMetrics getMetrics() {
+			return metrics;
+		}
+
+		/**
+		 * @return The number of links created by each autolinker of the
+		 *         service, in the order of the service
+		 */
+		public Map<AutoLinker, Long> getMatches() {
+			final Map<AutoLinker, Long> rv = new LinkedHashMap<>();
+			for (AutoLinker autoLinker : autoLinkers) {
+				final AutoLinkMetrics.AutoLinkerMetrics autoLinkerMetrics = metrics.getAutoLinkerMetrics().get(autoLinker);
+				rv.put(autoLinker, autoLinkerMetrics == null ? 0L : autoLinkerMetrics.getMatches());
+			}
+			return rv;
+		}
+	}
+}
@@ -1,4 +1,3 @@
 module java.autolinker {
 	requires org.jsoup;
-	requires snakeyaml;
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+import java.util.Map;
+import org.jsoup.nodes.Element;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * @author Michael J. Simons
+ */
+public class AnchorRendererTest {
+
+    @Rule
+    public final ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void attributesShouldBeAdded() {
+	final AnchorRenderer renderer = AnchorRenderer.defaults()
+		.withAttribute("rel", "nofollow")
+		.withAttribute("target", "_blank")
+		.withAttribute("rel", "nofollow noopener");
+	Assert.assertTrue(AnchorRenderer.defaults().getAttributes().isEmpty());
+	Assert.assertEquals(List.of("rel", "target"), List.copyOf(renderer.getAttributes().keySet()));
+	Assert.assertEquals(Map.of("rel", "nofollow noopener", "target", "_blank"), renderer.getAttributes());
+
+	final Element anchor = renderer.createAnchor("", "http://foo.com", "Foo", "foo");
+	final StringBuilder html = new StringBuilder();
+	HtmlWriter.writeNode(anchor, html);
+	Assert.assertEquals("<a href=\"http://foo.com\" title=\"Foo\" rel=\"nofollow noopener\" target=\"_blank\">foo</a>", html.toString());
+
+	html.setLength(0);
+	AnchorRenderer.defaults().withAttribute("data-x", "<\"&\">").closeStartTag(html);
+	Assert.assertEquals(" data-x=\"&lt;&quot;&amp;&quot;&gt;\">", html.toString());
+    }
+
+    @Test
+    public void rendererShouldBeUsedByAllAutoLinkers() {
+	final AnchorRenderer renderer = AnchorRenderer.defaults().withAttribute("rel", "nofollow");
+	final AutoLinkService autoLinkService = new AutoLinkService(List.of(
+		new EmailAddressAutoLinker(true, true).withRenderer(renderer),
+		new TwitterUserAutoLinker().withRenderer(renderer),
+		new UrlAutoLinker(30).withRenderer(renderer)
+	));
+	final String text = "@rotnroll666 michael@simons.ac https://michael-simons.eu";
+	final String expected = "<a href=\"https://twitter.com/rotnroll666\" rel=\"nofollow\">@rotnroll666</a> "
+		+ "<a href=\"mailto:%6d%69%63%68%61%65%6c@%73%69%6d%6f%6e%73%2e%61%63\" rel=\"nofollow\">michael [AT] simons [DOT] ac</a> "
+		+ "<a href=\"https://michael-simons.eu\" title=\"https://michael-simons.eu\" rel=\"nofollow\">michael-simons.eu</a>";
+	Assert.assertEquals(expected, autoLinkService.addLinksToPlainText(text));
+	Assert.assertEquals(expected, autoLinkService.newSession().addLinksToPlainText(text));
+	Assert.assertEquals(expected, autoLinkService.addLinks(text, null));
+    }
+
+    @Test
+    public void invalidAttributeNamesShouldBeRejected() {
+	expectedException.expect(IllegalArgumentException.class);
+	expectedException.expectMessage("Invalid attribute name 'on click'");
+	AnchorRenderer.defaults().withAttribute("on click", "x");
+    }
+
+    @Test
+    public void hrefShouldBeRejected() {
+	expectedException.expect(IllegalArgumentException.class);
+	expectedException.expectMessage("Attribute 'HREF' is given by the autolinkers");
+	AnchorRenderer.defaults().withAttribute("HREF", "x");
+    }
+}
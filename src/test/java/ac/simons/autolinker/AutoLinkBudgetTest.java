@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * @author Michael J. Simons
+ */
+public class AutoLinkBudgetTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private static final List<AutoLinker> AUTO_LINKERS = List.of(new EmailAddressAutoLinker(false, false), new TwitterUserAutoLinker(), new UrlAutoLinker(30));
+
+    static String repeat(final String value, final int times) {
+	final StringBuilder rv = new StringBuilder(value.length() * times);
+	for (int i = 0; i < times; ++i) {
+	    rv.append(value);
+	}
+	return rv.toString();
+    }
+
+    /**
+     * The url pattern takes ages on a host full of dashes.
+     */
+    static String dashes() {
+	return "http://" + repeat("a-", 2_000) + ".com";
+    }
+
+    @Test
+    public void stepsShouldBePositive() {
+	expectedException.expect(IllegalArgumentException.class);
+	expectedException.expectMessage("The maximum number of steps must be positive");
+	AutoLinkBudget.unlimited().withStepsPerTextNode(0);
+    }
+
+    @Test
+    public void timeShouldBePositive() {
+	expectedException.expect(IllegalArgumentException.class);
+	expectedException.expectMessage("The maximum time must be positive");
+	AutoLinkBudget.unlimited().withTimePerDocument(Duration.ofMillis(-1));
+    }
+
+    @Test
+    public void guardShouldNotWrapWithoutBudget() {
+	final String text = "foo";
+	Assert.assertSame(text, AutoLinkBudget.guard(text));
+    }
+
+    @Test
+    public void textNodesOverBudgetShouldStayUnlinked() {
+	final StringBuilder longText = new StringBuilder("http://example.com ");
+	for (int i = 0; i < 1000; ++i) {
+	    longText.append("lorem ipsum ");
+	}
+	final AutoLinkMetrics metrics = new AutoLinkMetrics();
+	final AutoLinkCache cache = new AutoLinkCache(10, 0);
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(new UrlAutoLinker(30)))
+		.withCache(cache)
+		.withListener(metrics)
+		.withBudget(AutoLinkBudget.unlimited().withStepsPerTextNode(2000));
+
+	final String html = autoLinkService.addLinks("<p>" + longText + "</p><p>http://example.com</p>", null);
+	Assert.assertEquals("<p>" + longText + "</p><p><a href=\"http://example.com\" title=\"http://example.com\">example.com</a></p>", html);
+	Assert.assertEquals(1, metrics.getBudgetsExceeded(AutoLinkBudget.Scope.TEXT_NODE));
+	Assert.assertEquals(0, metrics.getBudgetsExceeded(AutoLinkBudget.Scope.DOCUMENT));
+	Assert.assertEquals(0, cache.getResultStatistics().getSize());
+
+	Assert.assertEquals("<a href=\"http://example.com\" title=\"http://example.com\">example.com</a>", autoLinkService.addLinks("http://example.com", null));
+	Assert.assertEquals(1, cache.getResultStatistics().getSize());
+    }
+
+    @Test
+    public void timePerTextNodeShouldBeEnforced() {
+	final AutoLinkMetrics metrics = new AutoLinkMetrics();
+	final AutoLinkService autoLinkService = new AutoLinkService(AUTO_LINKERS)
+		.withListener(metrics)
+		.withBudget(AutoLinkBudget.unlimited().withTimePerTextNode(Duration.ofMillis(5)));
+
+	final String text = dashes() + " <me>";
+	Assert.assertEquals(text.replace("<", "&lt;").replace(">", "&gt;"), autoLinkService.addLinksToPlainText(text));
+	Assert.assertEquals(1, metrics.getBudgetsExceeded(AutoLinkBudget.Scope.TEXT_NODE));
+    }
+
+    @Test
+    public void timePerDocumentShouldBeEnforced() {
+	final AutoLinkMetrics metrics = new AutoLinkMetrics();
+	final AutoLinkService autoLinkService = new AutoLinkService(AUTO_LINKERS)
+		.withListener(metrics)
+		.withBudget(AutoLinkBudget.unlimited()
+			.withTimePerDocument(Duration.ofMillis(20))
+			.withTimePerTextNode(Duration.ofMillis(5)));
+
+	final String html = repeat("<p>" + dashes() + "</p>", 6) + "<p>@rotnroll666</p>";
+	Assert.assertEquals(html, autoLinkService.addLinks(html, null));
+	Assert.assertEquals(1, metrics.getBudgetsExceeded(AutoLinkBudget.Scope.DOCUMENT));
+	Assert.assertTrue(metrics.getBudgetsExceeded(AutoLinkBudget.Scope.TEXT_NODE) < 6);
+
+	// The budget is per document
+	Assert.assertEquals("<a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a>", autoLinkService.addLinks("@rotnroll666", null));
+    }
+
+    @Test
+    public void stackOverflowsShouldLeaveTextNodesUnlinked() {
+	final String[] adversarialTexts = {
+	    // Quoted local parts, dots in local parts and domains
+	    "\"" + repeat("a ", 50_000) + "\"@example.com",
+	    "\"" + repeat("\\a", 50_000) + "\"@example.com",
+	    repeat("a.", 50_000) + "@example.com",
+	    "michael@" + repeat("a.", 50_000) + "com",
+	    "michael@[" + repeat("a ", 50_000) + "]",
+	    // Balanced parentheses in a path
+	    "http://example.com/" + repeat("(a)", 50_000)
+	};
+	final AutoLinkService unlinked = new AutoLinkService(List.of());
+	for (AutoLinkBudget budget : new AutoLinkBudget[] {null, AutoLinkBudget.unlimited().withStepsPerTextNode(1_000_000).withTimePerDocument(Duration.ofMillis(50))}) {
+	    final AutoLinkMetrics metrics = new AutoLinkMetrics();
+	    final AutoLinkService autoLinkService = new AutoLinkService(AUTO_LINKERS).withListener(metrics).withBudget(budget);
+	    for (String text : adversarialTexts) {
+		Assert.assertEquals(unlinked.addLinksToPlainText(text), autoLinkService.addLinksToPlainText(text));
+		final String html = "<p>" + text + "</p><p>@rotnroll666</p>";
+		Assert.assertEquals(unlinked.addLinks("<p>" + text + "</p>", null) + "<p><a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a></p>", autoLinkService.addLinks(html, null));
+	    }
+	    Assert.assertEquals(2 * adversarialTexts.length, metrics.getBudgetsExceeded(AutoLinkBudget.Scope.TEXT_NODE));
+	}
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * @author Michael J. Simons
+ */
+public class AutoLinkProcessorTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    /**
+     * Emits its texts synchronously as they are requested.
+     */
+    static final class TextPublisher implements Flow.Publisher<String> {
+
+	private final List<String> texts;
+
+	private final RuntimeException error;
+
+	private Flow.Subscriber<? super String> subscriber;
+
+	private int next;
+
+	private long requested;
+
+	private long totalRequested;
+
+	private boolean cancelled;
+
+	private boolean done;
+
+	TextPublisher(final List<String> texts, final RuntimeException error) {
+	    this.texts = texts;
+	    this.error = error;
+	}
+
+	@Override
+	public void subscribe(final Flow.Subscriber<? super String> newSubscriber) {
+	    this.subscriber = newSubscriber;
+	    newSubscriber.onSubscribe(new Flow.Subscription() {
+		@Override
+		public void request(final long n) {
+		    emit(n);
+		}
+
+		@Override
+		public void cancel() {
+		    synchronized (TextPublisher.this) {
+			cancelled = true;
+		    }
+		}
+	    });
+	    emit(0);
+	}
+
+	synchronized void emit(final long n) {
+	    requested += n;
+	    totalRequested += n;
+	    while (!cancelled && requested > 0 && next < texts.size()) {
+		--requested;
+		subscriber.onNext(texts.get(next++));
+	    }
+	    if (!cancelled && !done && next == texts.size()) {
+		done = true;
+		if (error == null) {
+		    subscriber.onComplete();
+		} else {
+		    subscriber.onError(error);
+		}
+	    }
+	}
+
+	synchronized long getTotalRequested() {
+	    return totalRequested;
+	}
+
+	synchronized boolean isCancelled() {
+	    return cancelled;
+	}
+    }
+
+    /**
+     * Collects all results and requests as configured.
+     */
+    static final class ResultSubscriber implements Flow.Subscriber<AutoLinkResult> {
+
+	private final long initialRequest;
+
+	private final List<AutoLinkResult> results = Collections.synchronizedList(new ArrayList<>());
+
+	private final CountDownLatch done = new CountDownLatch(1);
+
+	private volatile Flow.Subscription subscription;
+
+	private volatile Throwable error;
+
+	private volatile boolean completed;
+
+	ResultSubscriber(final long initialRequest) {
+	    this.initialRequest = initialRequest;
+	}
+
+	@Override
+	public void onSubscribe(final Flow.Subscription newSubscription) {
+	    this.subscription = newSubscription;
+	    newSubscription.request(initialRequest);
+	}
+
+	@Override
+	public void onNext(final AutoLinkResult item) {
+	    results.add(item);
+	}
+
+	@Override
+	public void onError(final Throwable throwable) {
+	    this.error = throwable;
+	    done.countDown();
+	}
+
+	@Override
+	public void onComplete() {
+	    this.completed = true;
+	    done.countDown();
+	}
+
+	void await() throws InterruptedException {
+	    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+    }
+
+    private static List<String> texts(final int count) {
+	return IntStream.range(0, count).mapToObj(i -> i % 2 == 0 ? "linkme " + i : "nothing " + i).collect(Collectors.toList());
+    }
+
+    private static String expectedHtml(final String text) {
+	return text.replace("linkme", "THELINK!");
+    }
+
+    private static AutoLinker slowAutoLinker(final AtomicInteger current, final AtomicInteger max) {
+	final Random random = new Random(4711);
+	return textNode -> {
+	    max.accumulateAndGet(current.incrementAndGet(), Math::max);
+	    try {
+		final int delay;
+		synchronized (random) {
+		    delay = random.nextInt(3);
+		}
+		Thread.sleep(delay);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	    current.decrementAndGet();
+	    return AutoLinkServiceTest.autoLink1(textNode);
+	};
+    }
+
+    @Test
+    public void orderedResultsShouldKeepOrder() throws InterruptedException {
+	final AtomicInteger current = new AtomicInteger();
+	final AtomicInteger max = new AtomicInteger();
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(slowAutoLinker(current, max)));
+	final ExecutorService executor = Executors.newFixedThreadPool(8);
+	try {
+	    final List<String> texts = texts(200);
+	    final AutoLinkProcessor processor = autoLinkService.newProcessor(null, executor, 4, true);
+	    final ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+	    processor.subscribe(subscriber);
+	    new TextPublisher(texts, null).subscribe(processor);
+	    subscriber.await();
+
+	    Assert.assertTrue(subscriber.completed);
+	    Assert.assertEquals(texts.size(), subscriber.results.size());
+	    for (int i = 0; i < texts.size(); ++i) {
+		final AutoLinkResult result = subscriber.results.get(i);
+		Assert.assertEquals(texts.get(i), result.getText());
+		Assert.assertEquals(expectedHtml(texts.get(i)), result.getHtml());
+	    }
+	    Assert.assertTrue(max.get() <= 4);
+	} finally {
+	    executor.shutdown();
+	}
+    }
+
+    @Test
+    public void unorderedResultsShouldBeComplete() throws InterruptedException {
+	final AtomicInteger current = new AtomicInteger();
+	final AtomicInteger max = new AtomicInteger();
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(slowAutoLinker(current, max)));
+	final ExecutorService executor = Executors.newFixedThreadPool(8);
+	try {
+	    final List<String> texts = texts(200);
+	    final AutoLinkProcessor processor = autoLinkService.newProcessor(null, executor, 3, false);
+	    final ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+	    processor.subscribe(subscriber);
+	    new TextPublisher(texts, null).subscribe(processor);
+	    subscriber.await();
+
+	    Assert.assertTrue(subscriber.completed);
+	    final List<String> linked = new ArrayList<>();
+	    for (AutoLinkResult result : subscriber.results) {
+		Assert.assertEquals(expectedHtml(result.getText()), result.getHtml());
+		linked.add(result.getText());
+	    }
+	    Collections.sort(linked);
+	    final List<String> expected = new ArrayList<>(texts);
+	    Collections.sort(expected);
+	    Assert.assertEquals(expected, linked);
+	    Assert.assertTrue(max.get() <= 3);
+	} finally {
+	    executor.shutdown();
+	}
+    }
+
+    @Test
+    public void upstreamShouldNotBeAskedForMoreThanDemand() throws InterruptedException {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(AutoLinkServiceTest::autoLink1));
+	final TextPublisher publisher = new TextPublisher(texts(10), null);
+	final AutoLinkProcessor processor = autoLinkService.newProcessor(null, Runnable::run, 5, true);
+	final ResultSubscriber subscriber = new ResultSubscriber(3);
+	processor.subscribe(subscriber);
+	publisher.subscribe(processor);
+
+	Assert.assertEquals(3, publisher.getTotalRequested());
+	Assert.assertEquals(3, subscriber.results.size());
+	Assert.assertFalse(subscriber.completed);
+
+	subscriber.subscription.request(100);
+	subscriber.await();
+	Assert.assertTrue(subscriber.completed);
+	Assert.assertEquals(10, subscriber.results.size());
+	Assert.assertTrue(publisher.getTotalRequested() <= 10 + 5);
+    }
+
+    @Test
+    public void failuresShouldBeEmittedAsResults() throws InterruptedException {
+	final AutoLinker autoLinker = textNode -> {
+	    if (textNode.getWholeText().contains("fail")) {
+		throw new IllegalArgumentException("Failed on " + textNode.getWholeText());
+	    }
+	    return AutoLinkServiceTest.autoLink1(textNode);
+	};
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker));
+	final AutoLinkProcessor processor = autoLinkService.newProcessor(null, Runnable::run, 2, true);
+	final ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+	processor.subscribe(subscriber);
+	new TextPublisher(Arrays.asList("linkme", "fail", "linkme"), null).subscribe(processor);
+	subscriber.await();
+
+	Assert.assertTrue(subscriber.completed);
+	Assert.assertEquals("THELINK!", subscriber.results.get(0).getHtml());
+	Assert.assertFalse(subscriber.results.get(1).isSuccess());
+	Assert.assertEquals("fail", subscriber.results.get(1).getText());
+	Assert.assertEquals("Failed on fail", subscriber.results.get(1).getError().getMessage());
+	Assert.assertEquals("THELINK!", subscriber.results.get(2).getHtml());
+    }
+
+    @Test
+    public void errorsShouldBeEmittedAsResults() throws InterruptedException {
+	final AutoLinker autoLinker = textNode -> {
+	    if (textNode.getWholeText().contains("fail")) {
+		throw new AssertionError("Failed on " + textNode.getWholeText());
+	    }
+	    return AutoLinkServiceTest.autoLink1(textNode);
+	};
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker));
+	final ExecutorService executor = Executors.newFixedThreadPool(2);
+	try {
+	    final AutoLinkProcessor processor = autoLinkService.newProcessor(null, executor, 2, true);
+	    final ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+	    processor.subscribe(subscriber);
+	    new TextPublisher(Arrays.asList("linkme", "fail", "linkme", "fail"), null).subscribe(processor);
+	    subscriber.await();
+
+	    Assert.assertTrue(subscriber.completed);
+	    Assert.assertEquals(4, subscriber.results.size());
+	    Assert.assertEquals("THELINK!", subscriber.results.get(0).getHtml());
+	    Assert.assertTrue(subscriber.results.get(1).getError() instanceof AssertionError);
+	    Assert.assertEquals("Failed on fail", subscriber.results.get(1).getError().getMessage());
+	    Assert.assertEquals("THELINK!", subscriber.results.get(2).getHtml());
+	    Assert.assertFalse(subscriber.results.get(3).isSuccess());
+	} finally {
+	    executor.shutdown();
+	}
+    }
+
+    @Test
+    public void rejectedTextsShouldBeEmittedAsResults() throws InterruptedException {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(AutoLinkServiceTest::autoLink1));
+	final ExecutorService executor = Executors.newSingleThreadExecutor();
+	executor.shutdown();
+	final AutoLinkProcessor processor = autoLinkService.newProcessor(null, executor, 2, true);
+	final ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+	processor.subscribe(subscriber);
+	new TextPublisher(Arrays.asList("linkme"), null).subscribe(processor);
+	subscriber.await();
+
+	Assert.assertTrue(subscriber.completed);
+	Assert.assertTrue(subscriber.results.get(0).getError() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void upstreamErrorsShouldBePassedOnAfterAllResults() throws InterruptedException {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(AutoLinkServiceTest::autoLink1));
+	final ExecutorService executor = Executors.newFixedThreadPool(2);
+	try {
+	    final AutoLinkProcessor processor = autoLinkService.newProcessor(null, executor, 2, true);
+	    final ResultSubscriber subscriber = new ResultSubscriber(Long.MAX_VALUE);
+	    processor.subscribe(subscriber);
+	    new TextPublisher(texts(5), new IllegalStateException("Upstream failed")).subscribe(processor);
+	    subscriber.await();
+
+	    Assert.assertFalse(subscriber.completed);
+	    Assert.assertEquals("Upstream failed", subscriber.error.getMessage());
+	    Assert.assertEquals(5, subscriber.results.size());
+	} finally {
+	    executor.shutdown();
+	}
+    }
+
+    @Test
+    public void invalidRequestsShouldFail() throws InterruptedException {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(AutoLinkServiceTest::autoLink1));
+	final TextPublisher publisher = new TextPublisher(texts(10), null);
+	final AutoLinkProcessor processor = autoLinkService.newProcessor(null, Runnable::run, 2, true);
+	final ResultSubscriber subscriber = new ResultSubscriber(0);
+	processor.subscribe(subscriber);
+	publisher.subscribe(processor);
+	subscriber.await();
+
+	Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+	Assert.assertTrue(publisher.isCancelled());
+	Assert.assertTrue(subscriber.results.isEmpty());
+    }
+
+    @Test
+    public void cancelShouldCancelUpstream() {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(AutoLinkServiceTest::autoLink1));
+	final TextPublisher publisher = new TextPublisher(texts(10), null);
+	final AutoLinkProcessor processor = autoLinkService.newProcessor(null, Runnable::run, 2, true);
+	final ResultSubscriber subscriber = new ResultSubscriber(2);
+	processor.subscribe(subscriber);
+	publisher.subscribe(processor);
+	subscriber.subscription.cancel();
+	subscriber.subscription.request(5);
+
+	Assert.assertTrue(publisher.isCancelled());
+	Assert.assertEquals(2, subscriber.results.size());
+	Assert.assertEquals(2, publisher.getTotalRequested());
+    }
+
+    @Test
+    public void secondSubscriberShouldBeRejected() throws InterruptedException {
+	final AutoLinkProcessor processor = new AutoLinkService(new ArrayList<>()).newProcessor(null, Runnable::run, 1, true);
+	processor.subscribe(new ResultSubscriber(1));
+	final ResultSubscriber second = new ResultSubscriber(1);
+	processor.subscribe(second);
+	second.await();
+
+	Assert.assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void newProcessorShouldCheckMaxInFlight() {
+	expectedException.expect(IllegalArgumentException.class);
+	new AutoLinkService(new ArrayList<>()).newProcessor(null, Runnable::run, 0, true);
+    }
+}
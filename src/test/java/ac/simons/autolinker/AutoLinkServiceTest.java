@@ -17,14 +17,21 @@ package ac.simons.autolinker;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.jsoup.Jsoup;
@@ -33,6 +40,7 @@ import org.jsoup.nodes.Document.OutputSettings.Syntax;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Elements;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -61,6 +69,9 @@ public class AutoLinkServiceTest {
 	    nodes.add(new TextNode("THELINK!"));
 	    start = matcher.end();
 	}
+	if (nodes.isEmpty()) {
+	    return List.of(textNode);
+	}
 	final String textAfter = text.substring(start);
 	if (!textAfter.isEmpty()) {
 	    nodes.add(new TextNode(textAfter));
@@ -70,6 +81,20 @@ public class AutoLinkServiceTest {
 
     }
 
+    static AutoLinker withTriggerCharacters(final AutoLinker autoLinker, final String triggerCharacters) {
+	return new AutoLinker() {
+	    @Override
+	    public List<Node> createLinks(final TextNode textNode) {
+		return autoLinker.createLinks(textNode);
+	    }
+
+	    @Override
+	    public String getTriggerCharacters() {
+		return triggerCharacters;
+	    }
+	};
+    }
+
     static List<Node> autoLink1(final TextNode textNode) {
 	return makeAutoLinker(textNode, "(linkme)");
     }
@@ -161,6 +186,69 @@ public class AutoLinkServiceTest {
 	Assert.assertEquals(" ", autoLinkService.addLinks(" ", null));
     }
 
+    @Test
+    public void addLinksShouldApplyAllAutoLinkersInOnePass() {
+	final List<String> visitedTexts = new ArrayList<>();
+	final AutoLinker autoLinker1 = textNode -> {
+	    visitedTexts.add("1:" + textNode.getWholeText());
+	    return autoLink1(textNode);
+	};
+	final AutoLinker autoLinker2 = textNode -> {
+	    visitedTexts.add("2:" + textNode.getWholeText());
+	    return autoLink2(textNode);
+	};
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker1, autoLinker2));
+
+	final Document document = Jsoup.parseBodyFragment("<p>linkme and meToo</p><p>nothing</p>");
+	autoLinkService.addLinks(document);
+	Assert.assertEquals("<p>THELINK! and THELINK!</p><p>nothing</p>", document.body().html().replaceAll("\\n", ""));
+	Assert.assertEquals(Arrays.asList("1:linkme and meToo", "2:THELINK!", "2: and meToo", "1:nothing", "2:nothing"), visitedTexts);
+    }
+
+    @Test
+    public void addLinksShouldModifyDocumentInPlace() {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(AutoLinkServiceTest::autoLink1, AutoLinkServiceTest::autoLink2));
+
+	final Document document = Jsoup.parseBodyFragment("<div><p>linkme</p><p>nothing <b>to</b> see</p></div>");
+	final Element body = document.body();
+	final Element div = body.child(0);
+	final Element secondParagraph = div.child(1);
+	final Node untouchedText = secondParagraph.childNode(0);
+
+	Assert.assertSame(document, autoLinkService.addLinks(document));
+	Assert.assertSame(body, document.body());
+	Assert.assertSame(div, body.child(0));
+	Assert.assertSame(secondParagraph, div.child(1));
+	Assert.assertSame(untouchedText, secondParagraph.childNode(0));
+	document.outputSettings().prettyPrint(false);
+	Assert.assertEquals("<div><p>THELINK!</p><p>nothing <b>to</b> see</p></div>", body.html());
+    }
+
+    @Test
+    public void addLinksShouldSkipTextNodesThatAreNoCandidates() {
+	final List<String> visitedTexts = new ArrayList<>();
+	final AutoLinker autoLinker = new AutoLinker() {
+	    @Override
+	    public List<Node> createLinks(final TextNode textNode) {
+		visitedTexts.add(textNode.getWholeText());
+		return makeAutoLinker(textNode, "(\\$link)");
+	    }
+
+	    @Override
+	    public String getTriggerCharacters() {
+		return "$";
+	    }
+	};
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker, AutoLinkServiceTest::autoLink1));
+
+	Assert.assertEquals("<p>THELINK! THELINK!</p><p>nothing</p>", autoLinkService.addLinks("<p>$link linkme</p><p>nothing</p>", null));
+	Assert.assertEquals(Arrays.asList("$link linkme"), visitedTexts);
+
+	visitedTexts.clear();
+	Assert.assertEquals("THELINK! and THELINK!", new AutoLinkService(Arrays.asList(AutoLinkServiceTest::autoLink1, autoLinker)).addLinks("linkme and $link", null));
+	Assert.assertEquals(Arrays.asList(" and $link"), visitedTexts);
+    }
+
     @Test
     public void addLinksShouldWork2() {
 	expectedException.expect(RuntimeException.class);
@@ -170,8 +258,354 @@ public class AutoLinkServiceTest {
 	autoLinkService.addLinks(null, null, Integer.class);
     }
 
+    @Test
+    public void addLinksToPlainTextShouldWork() {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(
+		new EmailAddressAutoLinker(false, false),
+		new TwitterUserAutoLinker(),
+		new UrlAutoLinker(30)
+	));
+
+	Assert.assertNull(autoLinkService.addLinksToPlainText(null));
+	Assert.assertEquals("", autoLinkService.addLinksToPlainText(""));
+	final String nothingToDo = "Nothing to link here ";
+	Assert.assertSame(nothingToDo, autoLinkService.addLinksToPlainText(nothingToDo));
+	Assert.assertEquals("a &lt;b&gt; &amp; \"c\"", autoLinkService.addLinksToPlainText("a <b> & \"c\""));
+	Assert.assertEquals(
+		"<a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a> see <a href=\"https://michael-simons.eu?a=b&amp;c=d\" title=\"https://michael-simons.eu?a=b&amp;c=d\">michael-simons.eu?a=b&amp;c=d</a> &lt;or&gt; <a href=\"mailto:michael@simons.ac\">michael@simons.ac</a> ",
+		autoLinkService.addLinksToPlainText(new StringBuilder("@rotnroll666 see https://michael-simons.eu?a=b&c=d <or> michael@simons.ac "))
+	);
+    }
+
+    @Test
+    public void addLinksToPlainTextShouldMatchAddLinks() throws IOException {
+	final Properties texts = new Properties();
+	texts.load(new InputStreamReader(AutoLinkServiceTest.class.getResourceAsStream("/ac/simons/autolinker/testdata.properties"), StandardCharsets.UTF_8));
+
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(
+		new EmailAddressAutoLinker(true, true),
+		new TwitterUserAutoLinker(),
+		new UrlAutoLinker(30)
+	));
+	int cnt = 0;
+	for (String key : texts.stringPropertyNames()) {
+	    final String in = texts.getProperty(key).trim();
+	    // Only compare plain texts without anything that would be escaped or parsed as html
+	    if (!key.endsWith(".in") || in.isEmpty() || in.matches("(?s).*[<>&\"].*")) {
+		continue;
+	    }
+	    Assert.assertEquals(autoLinkService.addLinks(in, null), autoLinkService.addLinksToPlainText(in));
+	    ++cnt;
+	}
+	Assert.assertTrue(cnt > 0);
+    }
+
+    @Test
+    public void addLinksToStreamShouldWork() throws IOException {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(new TwitterUserAutoLinker()));
+	final StringWriter target = new StringWriter();
+	autoLinkService.addLinksToStream(new StringReader("<p>Hi @rotnroll666</p><a href=\"#\">@rotnroll666</a>"), target);
+	Assert.assertEquals("<p>Hi <a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a></p><a href=\"#\">@rotnroll666</a>", target.toString());
+    }
+
+    @Test
+    public void addLinksToAllShouldKeepOrder() {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(AutoLinkServiceTest::autoLink1));
+	final List<String> texts = new ArrayList<>();
+	for (int i = 0; i < 100; ++i) {
+	    texts.add(i % 2 == 0 ? "linkme " + i : "nothing " + i);
+	}
+	texts.add(null);
+
+	final List<AutoLinkResult> results = autoLinkService.addLinksToAll(texts, null);
+	Assert.assertEquals(texts.size(), results.size());
+	for (int i = 0; i < 100; ++i) {
+	    Assert.assertTrue(results.get(i).isSuccess());
+	    Assert.assertEquals(i % 2 == 0 ? "THELINK! " + i : "nothing " + i, results.get(i).getHtml());
+	}
+	Assert.assertTrue(results.get(100).isSuccess());
+	Assert.assertNull(results.get(100).getHtml());
+    }
+
+    @Test
+    public void addLinksToAllShouldIsolateFailures() {
+	final AutoLinker autoLinker = textNode -> {
+	    if (textNode.getWholeText().contains("fail")) {
+		throw new IllegalArgumentException("Failed on " + textNode.getWholeText());
+	    }
+	    return autoLink1(textNode);
+	};
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker));
+
+	final List<AutoLinkResult> results = autoLinkService.addLinksToAll(Arrays.asList("linkme", "fail", "linkme"), null, Runnable::run, 1);
+	Assert.assertEquals("THELINK!", results.get(0).getHtml());
+	Assert.assertFalse(results.get(1).isSuccess());
+	Assert.assertNull(results.get(1).getHtml());
+	Assert.assertEquals("Failed on fail", results.get(1).getError().getMessage());
+	Assert.assertEquals("fail", results.get(1).getText());
+	Assert.assertEquals("THELINK!", results.get(2).getHtml());
+    }
+
+    @Test
+    public void addLinksToAllShouldReportErrors() {
+	final AutoLinker autoLinker = textNode -> {
+	    if (textNode.getWholeText().contains("fail")) {
+		throw new AssertionError("Failed on fail");
+	    }
+	    return autoLink1(textNode);
+	};
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker));
+	final ExecutorService executor = Executors.newFixedThreadPool(2);
+	try {
+	    final List<AutoLinkResult> results = autoLinkService.addLinksToAll(Arrays.asList("linkme", "fail", "linkme"), null, executor, 2);
+	    Assert.assertEquals("THELINK!", results.get(0).getHtml());
+	    Assert.assertTrue(results.get(1).getError() instanceof AssertionError);
+	    Assert.assertEquals("fail", results.get(1).getText());
+	    Assert.assertEquals("THELINK!", results.get(2).getHtml());
+	} finally {
+	    executor.shutdown();
+	}
+    }
+
+    @Test
+    public void addLinksToAllShouldBoundWorkInFlight() {
+	final AtomicInteger current = new AtomicInteger();
+	final AtomicInteger max = new AtomicInteger();
+	final AutoLinker autoLinker = textNode -> {
+	    max.accumulateAndGet(current.incrementAndGet(), Math::max);
+	    try {
+		Thread.sleep(2);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	    current.decrementAndGet();
+	    return autoLink1(textNode);
+	};
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker));
+	final ExecutorService executor = Executors.newFixedThreadPool(8);
+	try {
+	    final List<AutoLinkResult> results = autoLinkService.addLinksToAll(Collections.nCopies(50, "linkme"), null, executor, 3);
+	    Assert.assertTrue(results.stream().allMatch(AutoLinkResult::isSuccess));
+	    Assert.assertTrue(max.get() <= 3);
+	} finally {
+	    executor.shutdown();
+	}
+    }
+
+    @Test
+    public void addLinksToAllShouldReportRejectedTexts() {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(AutoLinkServiceTest::autoLink1));
+	final ExecutorService executor = Executors.newSingleThreadExecutor();
+	executor.shutdown();
+
+	final List<AutoLinkResult> results = autoLinkService.addLinksToAll(Arrays.asList("linkme"), null, executor, 1);
+	Assert.assertTrue(results.get(0).getError() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void addLinksToAllShouldCheckMaxInFlight() {
+	expectedException.expect(IllegalArgumentException.class);
+	new AutoLinkService(new ArrayList<>()).addLinksToAll(Arrays.asList("a"), null, Runnable::run, 0);
+    }
+
+    @Test
+    public void listenerShouldBeNotified() throws IOException {
+	final AutoLinker autoLinker1 = withTriggerCharacters(AutoLinkServiceTest::autoLink1, "l");
+	final AutoLinker autoLinker2 = withTriggerCharacters(AutoLinkServiceTest::autoLink2, "$");
+	final AutoLinkMetrics metrics = new AutoLinkMetrics();
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker1, autoLinker2)).withListener(metrics);
+
+	final String html = autoLinkService.addLinks("<p>linkme and linkme</p><p>meToo$</p>", null);
+	Assert.assertEquals("<p>THELINK! and THELINK!</p><p>THELINK!$</p>", html);
+	Assert.assertEquals(1, metrics.getPhaseCount(AutoLinkListener.Phase.PARSE));
+	Assert.assertEquals(1, metrics.getPhaseCount(AutoLinkListener.Phase.LINK));
+	Assert.assertEquals(1, metrics.getPhaseCount(AutoLinkListener.Phase.SERIALIZE));
+	Assert.assertTrue(metrics.getPhaseNanos(AutoLinkListener.Phase.PARSE) > 0);
+	Assert.assertEquals(2, metrics.getTextNodesVisited());
+	Assert.assertEquals(0, metrics.getTextNodesSkipped());
+	Assert.assertEquals(1, metrics.getOutputs());
+	Assert.assertEquals(html.length(), metrics.getOutputLength());
+
+	final AutoLinkMetrics.AutoLinkerMetrics metrics1 = metrics.getAutoLinkerMetrics().get(autoLinker1);
+	Assert.assertEquals(1, metrics1.getInvocations());
+	Assert.assertEquals(0, metrics1.getMatches());
+	final AutoLinkMetrics.AutoLinkerMetrics metrics2 = metrics.getAutoLinkerMetrics().get(autoLinker2);
+	Assert.assertEquals(1, metrics2.getInvocations());
+	Assert.assertEquals(0, metrics2.getMatches());
+
+	autoLinkService.addLinksToPlainText("nothing to see");
+	Assert.assertEquals(3, metrics.getTextNodesVisited());
+	Assert.assertEquals(1, metrics.getTextNodesSkipped());
+	Assert.assertEquals(2, metrics.getPhaseCount(AutoLinkListener.Phase.LINK));
+
+	autoLinkService.addLinksToStream(new StringReader("<p>linkme</p>"), new StringWriter());
+	Assert.assertEquals(4, metrics.getTextNodesVisited());
+	Assert.assertEquals(3, metrics.getPhaseCount(AutoLinkListener.Phase.LINK));
+    }
+
+    @Test
+    public void matchesShouldBeCounted() {
+	final AutoLinkMetrics metrics = new AutoLinkMetrics();
+	final AutoLinker autoLinker = new TwitterUserAutoLinker();
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker))
+		.withCache(new AutoLinkCache(0, 10))
+		.withListener(metrics);
+
+	autoLinkService.addLinksToPlainText("@a and @b");
+	autoLinkService.addLinksToPlainText("@a and @b");
+	Assert.assertEquals(1, metrics.getAutoLinkerMetrics().get(autoLinker).getInvocations());
+	Assert.assertEquals(2, metrics.getAutoLinkerMetrics().get(autoLinker).getMatches());
+	Assert.assertEquals(2, metrics.getTextNodesVisited());
+    }
+
+    @Test
+    public void cachedResultsShouldBeUsed() {
+	final List<String> calls = new ArrayList<>();
+	final AutoLinker autoLinker = textNode -> {
+	    calls.add(textNode.getWholeText());
+	    return autoLink1(textNode);
+	};
+	final AutoLinkCache cache = new AutoLinkCache(10, 10);
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker)).withCache(cache);
+
+	Assert.assertEquals("<p>THELINK!</p>", autoLinkService.addLinks("<p>linkme</p>", null));
+	Assert.assertEquals("<p>THELINK!</p>", autoLinkService.addLinks("<p>linkme</p>", null));
+	Assert.assertEquals("THELINK! &amp;", autoLinkService.addLinksToPlainText("linkme &"));
+	Assert.assertEquals("THELINK! &amp;", autoLinkService.addLinksToPlainText("linkme &"));
+	Assert.assertEquals(Arrays.asList("linkme", "linkme &"), calls);
+
+	final AutoLinkCache.Statistics statistics = cache.getResultStatistics();
+	Assert.assertEquals(2, statistics.getHits());
+	Assert.assertEquals(2, statistics.getMisses());
+	Assert.assertEquals(2, statistics.getSize());
+	Assert.assertEquals(0.5, statistics.getHitRate(), 0.0);
+
+	cache.clear();
+	Assert.assertEquals(0, cache.getResultStatistics().getSize());
+	Assert.assertEquals(0, cache.getFragmentStatistics().getSize());
+    }
+
+    @Test
+    public void cachedFragmentsShouldBeCopied() {
+	final List<String> calls = new ArrayList<>();
+	final AutoLinker autoLinker = textNode -> {
+	    calls.add(textNode.getWholeText());
+	    return List.of(new Element("a").attr("href", "#").text(textNode.getWholeText()));
+	};
+	final AutoLinkCache cache = new AutoLinkCache(0, 10);
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(autoLinker)).withCache(cache);
+
+	final Document document = Jsoup.parseBodyFragment("<p>x</p><p>x</p>");
+	autoLinkService.addLinks(document);
+	Assert.assertEquals("<p><a href=\"#\">x</a></p><p><a href=\"#\">x</a></p>", document.body().html().replaceAll("\\n", ""));
+	Assert.assertEquals(Arrays.asList("x"), calls);
+
+	final Elements links = document.select("a");
+	Assert.assertNotSame(links.get(0), links.get(1));
+	Assert.assertEquals(1, cache.getFragmentStatistics().getHits());
+	Assert.assertEquals(0, cache.getResultStatistics().getMisses());
+    }
+
+    @Test
+    public void invalidCacheSizesShouldBeRejected() {
+	expectedException.expect(IllegalArgumentException.class);
+	new AutoLinkCache(-1, 0);
+    }
+
+    @Test
+    public void builderShouldCopyAutoLinkers() {
+	final List<AutoLinker> autoLinkers = new ArrayList<>(List.of(new TwitterUserAutoLinker()));
+	final AutoLinkService autoLinkService = AutoLinkService.builder()
+		.autoLinkers(autoLinkers)
+		.autoLinker(new UrlAutoLinker(30))
+		.build();
+	autoLinkers.clear();
+
+	Assert.assertEquals(2, autoLinkService.getAutoLinkers().size());
+	Assert.assertEquals("<a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a> <a href=\"http://example.com\" title=\"http://example.com\">example.com</a>",
+		autoLinkService.addLinksToPlainText("@rotnroll666 example.com"));
+	Assert.assertTrue(autoLinkService.newSession().isDirect());
+
+	expectedException.expect(UnsupportedOperationException.class);
+	autoLinkService.getAutoLinkers().add(new UrlAutoLinker(30));
+    }
+
+    @Test
+    public void constructorShouldCopyAutoLinkers() {
+	final List<AutoLinker> autoLinkers = new ArrayList<>(List.of(new TwitterUserAutoLinker()));
+	final AutoLinkService autoLinkService = new AutoLinkService(autoLinkers);
+	autoLinkers.add(new UrlAutoLinker(30));
+
+	Assert.assertEquals(1, autoLinkService.getAutoLinkers().size());
+	Assert.assertEquals("<a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a> example.com",
+		autoLinkService.addLinksToPlainText("@rotnroll666 example.com"));
+	Assert.assertTrue(autoLinkService.newSession().isDirect());
+    }
+
+    @Test
+    public void builderShouldResolveOptions() {
+	final AutoLinkMetrics metrics = new AutoLinkMetrics();
+	final AutoLinkService.Builder builder = AutoLinkService.builder()
+		.autoLinker(new TwitterUserAutoLinker())
+		.budget(AutoLinkBudget.unlimited());
+	Assert.assertTrue(builder.build().newSession().isDirect());
+	Assert.assertFalse(builder.listener(metrics).build().newSession().isDirect());
+
+	builder.build().addLinksToPlainText("@rotnroll666");
+	Assert.assertEquals(1, metrics.getTextNodesVisited());
+	Assert.assertFalse(AutoLinkService.builder().autoLinker(AutoLinkServiceTest::autoLink1).build().newSession().isDirect());
+    }
+
+    @Test
+    public void builderShouldRejectNullAutoLinkers() {
+	expectedException.expect(IllegalArgumentException.class);
+	expectedException.expectMessage("Autolinker must not be null");
+	AutoLinkService.builder().autoLinker(null);
+    }
+
+    @Test
+    public void oldJavaAutolinkerTestWithCache() throws IOException {
+	final AutoLinkService autoLinkService = oldJavaAutolinkerService(UrlAutoLinker.Engine.SCANNER);
+
+	final AutoLinkCache resultCache = new AutoLinkCache(100, 0);
+	oldJavaAutolinkerTest(autoLinkService.withCache(resultCache));
+	oldJavaAutolinkerTest(autoLinkService.withCache(resultCache));
+	Assert.assertTrue(resultCache.getResultStatistics().getHits() > 0);
+
+	final AutoLinkCache fragmentCache = new AutoLinkCache(0, 100);
+	oldJavaAutolinkerTest(autoLinkService.withCache(fragmentCache));
+	oldJavaAutolinkerTest(autoLinkService.withCache(fragmentCache));
+	Assert.assertTrue(fragmentCache.getFragmentStatistics().getHits() > 0);
+    }
+
     @Test
     public void oldJavaAutolinkerTest() throws IOException {
+	oldJavaAutolinkerTest(oldJavaAutolinkerService(UrlAutoLinker.Engine.REGEX));
+    }
+
+    @Test
+    public void oldJavaAutolinkerTestWithUrlScanner() throws IOException {
+	oldJavaAutolinkerTest(oldJavaAutolinkerService(UrlAutoLinker.Engine.SCANNER));
+    }
+
+    @Test
+    public void oldJavaAutolinkerTestWithCombinedAutoLinker() throws IOException {
+	oldJavaAutolinkerTest(new AutoLinkService(List.of(new CombinedAutoLinker(List.of(
+		new EmailAddressAutoLinker(true, true),
+		new TwitterUserAutoLinker(),
+		new UrlAutoLinker(30)
+	)))));
+    }
+
+    private static AutoLinkService oldJavaAutolinkerService(final UrlAutoLinker.Engine urlEngine) {
+	return new AutoLinkService(Arrays.asList(
+		new EmailAddressAutoLinker(true, true),
+		new TwitterUserAutoLinker(),
+		new UrlAutoLinker(30, urlEngine)
+	));
+    }
+
+    private void oldJavaAutolinkerTest(final AutoLinkService autoLinkService) throws IOException {
 	Properties texts = new Properties();
 	texts.load(new InputStreamReader(AutoLinkServiceTest.class.getResourceAsStream("/ac/simons/autolinker/testdata.properties"), StandardCharsets.UTF_8));
 
@@ -182,12 +616,6 @@ public class AutoLinkServiceTest {
 	    keys.add(property.substring(0, property.indexOf(".")));
 	}
 
-	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(
-		new EmailAddressAutoLinker(true, true),
-		new TwitterUserAutoLinker(),
-		new UrlAutoLinker(30)
-	));
-
 	int cnt = keys.stream().map((key) -> {
 	    final String in = String.format("%s.in", key.trim());
 	    final String out = String.format("%s.out", key.trim());
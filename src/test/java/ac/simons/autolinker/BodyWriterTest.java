@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Entities.EscapeMode;
+import org.jsoup.parser.Parser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class BodyWriterTest {
+
+    private static final String[] TOKENS = {
+	"<p>", "</p>", "<br>", "<br/>", "<img src=\"a.png\" alt=\"&quot;x&quot;\">", "<foo/>", "<input disabled checked=\"checked\" value=\"\">",
+	"<a href=\"http://foo.com?a=1&amp;b=2\">", "</a>", "<script>if (a &amp;&amp; b < c) {}</script>", "<style>p > a {}</style>",
+	"<!-- &amp; comment -->", "<svg><![CDATA[ &amp; <x> ]]></svg>", "<pre>\n  x\n</pre>", "<textarea> &lt; </textarea>", "<td>", "<table>",
+	"&amp;", "&amp;amp;", "&lt;", "&gt;", "&quot;", "&nbsp;", "&#xa0;", "&copy;", "&", "<", ">", "\"", "'", " ", "\t", "\n", "\r\n", " ",
+	"\ud83d", "😀", "é", "foo", "http://example.com", "@rotnroll666", "michael@simons.ac", "<b>", "</b>", "<span title=\"a > b\">"
+    };
+
+    private static String oldSerialization(final Document document) {
+	document
+		.outputSettings()
+		.prettyPrint(false)
+		.escapeMode(EscapeMode.xhtml)
+		.charset(StandardCharsets.UTF_8);
+	return Parser.unescapeEntities(document.body().html().trim(), true);
+    }
+
+    private static String write(final Document document) throws IOException {
+	final StringBuilder rv = new StringBuilder();
+	final int length = new BodyWriter(rv).writeContent(document.body());
+	Assert.assertEquals(rv.length(), length);
+	return rv.toString();
+    }
+
+    @Test
+    public void bodyWriterShouldMatchOldSerialization() throws IOException {
+	final String[] htmls = {
+	    "",
+	    "   ",
+	    "  <p> a </p>  ",
+	    " \n text   ",
+	    "<p>a &amp; b &lt;c&gt; &quot;d&quot; &nbsp;</p>",
+	    "<img src=\"x.png\" alt=\"a &quot;b&quot; &amp; c\"><br>",
+	    "<foo/><bar></bar><hr/>",
+	    "<input type=\"checkbox\" checked disabled=\"disabled\" value=\"\" data-x=\"\">",
+	    "<script>var a = '&amp;' && b < c;</script><style>a > b {}</style>",
+	    "<!-- a &amp; b --> text",
+	    "<svg><![CDATA[ a &amp; <b> ]]></svg>",
+	    "<table><tr><td>1</td></tr></table>",
+	    "<a href=\"http://foo.com/?a=1&amp;b=2\" title=\"&lt;x&gt;\">foo</a>"
+	};
+	for (String html : htmls) {
+	    Assert.assertEquals(html, oldSerialization(Jsoup.parseBodyFragment(html)), write(Jsoup.parseBodyFragment(html)));
+	}
+    }
+
+    @Test
+    public void bodyWriterShouldMatchOldSerializationOnRandomInput() throws IOException {
+	for (String in : RandomTexts.generate(4711, TOKENS, 20, 5_000)) {
+	    Assert.assertEquals("Different html for '" + in + "'", oldSerialization(Jsoup.parseBodyFragment(in)), write(Jsoup.parseBodyFragment(in)));
+	}
+    }
+
+    @Test
+    public void deeplyNestedDocumentsShouldWork() throws IOException {
+	final StringBuilder html = new StringBuilder();
+	for (int i = 0; i < 10_000; ++i) {
+	    html.append("<span>");
+	}
+	html.append("x");
+	final Document document = Jsoup.parseBodyFragment(html.toString());
+	Assert.assertEquals(oldSerialization(document), write(document));
+    }
+
+    @Test
+    public void addLinksShouldWriteToAppendable() throws IOException {
+	final AutoLinkMetrics metrics = new AutoLinkMetrics();
+	final AutoLinkService autoLinkService = new AutoLinkService(List.of(new EmailAddressAutoLinker(false, false), new TwitterUserAutoLinker(), new UrlAutoLinker(30)));
+	final String in = "  <p>Hallo @rotnroll666, &lt;schau&gt; auf https://michael-simons.eu &amp; schreib an michael@simons.ac</p> ";
+
+	final StringWriter target = new StringWriter();
+	autoLinkService.withListener(metrics).addLinks(in, null, target);
+	Assert.assertEquals(autoLinkService.addLinks(in, null), target.toString());
+	Assert.assertEquals(target.toString().length(), metrics.getOutputLength());
+
+	final StringBuilder builder = new StringBuilder("> ");
+	autoLinkService.addLinks(null, null, builder);
+	autoLinkService.addLinks("   ", null, builder);
+	autoLinkService.withCache(new AutoLinkCache(10, 0)).addLinks("@rotnroll666", null, builder);
+	Assert.assertEquals(">    <a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a>", builder.toString());
+    }
+}
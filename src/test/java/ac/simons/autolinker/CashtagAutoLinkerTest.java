@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014-2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class CashtagAutoLinkerTest {
+
+    @Test
+    public void createLinksShouldWork() {
+	final CashtagAutoLinker autoLinker = new CashtagAutoLinker();
+
+	final TextNode textNodeWithoutLinks = new TextNode("das kostet 5$");
+	List<Node> result = autoLinker.createLinks(textNodeWithoutLinks);
+	Assert.assertEquals(1, result.size());
+	Assert.assertSame(textNodeWithoutLinks, result.get(0));
+
+	result = autoLinker.createLinks(new TextNode("Kaufen: $BRK.A, $AAPL"));
+	Assert.assertEquals(4, result.size());
+	Assert.assertEquals("Kaufen: ", ((TextNode) result.get(0)).getWholeText());
+	Element a = (Element) result.get(1);
+	Assert.assertEquals("https://twitter.com/search?q=%24BRK.A", a.attr("href"));
+	Assert.assertEquals("$BRK.A", a.text());
+	Assert.assertEquals(", ", ((TextNode) result.get(2)).getWholeText());
+	a = (Element) result.get(3);
+	Assert.assertEquals("https://twitter.com/search?q=%24AAPL", a.attr("href"));
+    }
+
+    @Test
+    public void onlyValidCashtagsShouldBeLinked() {
+	final AutoLinkService autoLinkService = new AutoLinkService(List.of(new CashtagAutoLinker()));
+	Assert.assertEquals("<a href=\"https://twitter.com/search?q=%24goog\">$goog</a>", autoLinkService.addLinksToPlainText("$goog"));
+	Assert.assertEquals("x$GOOG", autoLinkService.addLinksToPlainText("x$GOOG"));
+	Assert.assertEquals("$GOOGLEX", autoLinkService.addLinksToPlainText("$GOOGLEX"));
+	Assert.assertEquals("$5", autoLinkService.addLinksToPlainText("$5"));
+	Assert.assertEquals("$GOOG1", autoLinkService.addLinksToPlainText("$GOOG1"));
+    }
+
+    @Test
+    public void urlTemplateShouldBeUsed() {
+	final CashtagAutoLinker autoLinker = new CashtagAutoLinker("https://example.com/quote?s={cashtag}")
+		.withRenderer(AnchorRenderer.defaults().withAttribute("rel", "nofollow"));
+	final AutoLinkService autoLinkService = new AutoLinkService(List.of(autoLinker));
+	final String expected = "hi <a href=\"https://example.com/quote?s=GOOG\" rel=\"nofollow\">$GOOG</a>";
+	Assert.assertEquals(expected, autoLinkService.addLinksToPlainText("hi $GOOG"));
+	Assert.assertEquals(expected, autoLinkService.newSession().addLinksToPlainText("hi $GOOG"));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * @author Michael J. Simons
+ */
+public class CombinedAutoLinkerTest {
+
+    @Rule
+    public final ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void createLinksShouldWork() {
+	final CombinedAutoLinker autoLinker = new CombinedAutoLinker(List.of(
+		new EmailAddressAutoLinker(false, false),
+		new TwitterUserAutoLinker(),
+		new UrlAutoLinker(30)
+	));
+
+	final TextNode textNodeWithoutLinks = new TextNode("das ist ein test ohne urls");
+	List<Node> result = autoLinker.createLinks(textNodeWithoutLinks);
+	Assert.assertEquals(1, result.size());
+	Assert.assertSame(textNodeWithoutLinks, result.get(0));
+
+	result = autoLinker.createLinks(new TextNode("@rotnroll666 schreibt an michael@simons.ac über https://michael-simons.eu."));
+	Assert.assertEquals(6, result.size());
+	Assert.assertEquals("https://twitter.com/rotnroll666", ((Element) result.get(0)).attr("href"));
+	Assert.assertEquals(" schreibt an ", ((TextNode) result.get(1)).getWholeText());
+	Assert.assertEquals("mailto:michael@simons.ac", ((Element) result.get(2)).attr("href"));
+	Assert.assertEquals(" über ", ((TextNode) result.get(3)).getWholeText());
+	Assert.assertEquals("https://michael-simons.eu", ((Element) result.get(4)).attr("href"));
+	Assert.assertEquals(".", ((TextNode) result.get(5)).getWholeText());
+    }
+
+    @Test
+    public void overlappingLinksShouldBeResolvedByPriority() {
+	final String text = "http://foo.com/@bar";
+
+	final AutoLinkService urlFirst = new AutoLinkService(List.of(new CombinedAutoLinker(List.of(new UrlAutoLinker(30), new TwitterUserAutoLinker()))));
+	Assert.assertEquals("<a href=\"http://foo.com/@bar\" title=\"http://foo.com/@bar\">foo.com/@bar</a>", urlFirst.addLinksToPlainText(text));
+
+	// The mention beats the url, even though the url starts first
+	final AutoLinkService mentionFirst = new AutoLinkService(List.of(new CombinedAutoLinker(List.of(new TwitterUserAutoLinker(), new UrlAutoLinker(30)))));
+	Assert.assertEquals("http://foo.com/<a href=\"https://twitter.com/bar\">@bar</a>", mentionFirst.addLinksToPlainText(text));
+	Assert.assertTrue(mentionFirst.newSession().isDirect());
+	Assert.assertEquals("http://foo.com/<a href=\"https://twitter.com/bar\">@bar</a>", mentionFirst.newSession().addLinksToPlainText(text));
+    }
+
+    @Test
+    public void mentionsHashtagsAndCashtagsShouldBeFoundTogether() {
+	final AutoLinkService autoLinkService = new AutoLinkService(List.of(new CombinedAutoLinker(List.of(
+		new UrlAutoLinker(30),
+		new TwitterUserAutoLinker(),
+		new HashtagAutoLinker(),
+		new CashtagAutoLinker()
+	))));
+	final String expected = "<a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a> mag <a href=\"https://twitter.com/hashtag/java\">#java</a> und <a href=\"https://twitter.com/search?q=%24ORCL\">$ORCL</a>, <a href=\"http://example.com/#x\" title=\"http://example.com/#x\">example.com/#x</a>";
+	final String text = "@rotnroll666 mag #java und $ORCL, example.com/#x";
+	Assert.assertEquals(expected, autoLinkService.addLinksToPlainText(text));
+	Assert.assertTrue(autoLinkService.newSession().isDirect());
+	Assert.assertEquals(expected, autoLinkService.newSession().addLinksToPlainText(text));
+	// The shared pass must not be skipped if only the last of its autolinkers finds something
+	Assert.assertEquals("<a href=\"https://twitter.com/search?q=%24ORCL\">$ORCL</a>", autoLinkService.addLinksToPlainText("$ORCL"));
+    }
+
+    @Test
+    public void entitiesDirectlyAfterAMentionShouldOnlyBeLinkedWhenChained() {
+	final List<AutoLinker> autoLinkers = List.of(new TwitterUserAutoLinker(), new HashtagAutoLinker(), new CashtagAutoLinker());
+	final AutoLinkService chained = new AutoLinkService(autoLinkers);
+	final AutoLinkService combined = new AutoLinkService(List.of(new CombinedAutoLinker(autoLinkers)));
+
+	// Chained autolinkers see the text after the mention as a text node of its own
+	Assert.assertEquals("<a href=\"https://twitter.com/foo\">@foo</a><a href=\"https://twitter.com/hashtag/bar\">#bar</a>", chained.addLinksToPlainText("@foo#bar"));
+	Assert.assertEquals("<a href=\"https://twitter.com/foo\">@foo</a><a href=\"https://twitter.com/search?q=%24AAPL\">$AAPL</a>", chained.addLinksToPlainText("@foo$AAPL"));
+	Assert.assertEquals("<p><a href=\"https://twitter.com/foo\">@foo</a><a href=\"https://twitter.com/hashtag/bar\">#bar</a></p>", chained.addLinks("<p>@foo#bar</p>", null));
+
+	// Combined autolinkers see the whole text, like twitter does
+	Assert.assertEquals("<a href=\"https://twitter.com/foo\">@foo</a>#bar", combined.addLinksToPlainText("@foo#bar"));
+	Assert.assertEquals("<a href=\"https://twitter.com/foo\">@foo</a>$AAPL", combined.addLinksToPlainText("@foo$AAPL"));
+	Assert.assertEquals("<p><a href=\"https://twitter.com/foo\">@foo</a>#bar</p>", combined.addLinks("<p>@foo#bar</p>", null));
+    }
+
+    @Test
+    public void isCandidateShouldWork() {
+	final CombinedAutoLinker autoLinker = new CombinedAutoLinker(List.of(new EmailAddressAutoLinker(false, false), new TwitterUserAutoLinker()));
+	Assert.assertEquals("@@＠", autoLinker.getTriggerCharacters());
+	Assert.assertFalse(autoLinker.isCandidate("michael-simons.eu"));
+	Assert.assertTrue(autoLinker.isCandidate("＠rotnroll666"));
+    }
+
+    @Test
+    public void customAutoLinkersCannotBeCombined() {
+	expectedException.expect(IllegalArgumentException.class);
+	expectedException.expectMessage("Cannot combine");
+	new CombinedAutoLinker(List.of(new TwitterUserAutoLinker(), AutoLinkServiceTest::autoLink1));
+    }
+
+    @Test
+    public void combinedAutoLinkersCannotBeCombined() {
+	expectedException.expect(IllegalArgumentException.class);
+	expectedException.expectMessage("Cannot combine");
+	new CombinedAutoLinker(List.of(new CombinedAutoLinker(List.of(new TwitterUserAutoLinker()))));
+    }
+
+    @Test
+    public void atLeastOneAutoLinkerIsRequired() {
+	expectedException.expect(IllegalArgumentException.class);
+	expectedException.expectMessage("At least one autolinker is required");
+	new CombinedAutoLinker(List.of());
+    }
+}
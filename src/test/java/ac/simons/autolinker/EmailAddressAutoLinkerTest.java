@@ -35,8 +35,10 @@ public class EmailAddressAutoLinkerTest {
 	List<Node> result;
 	Element a;
 
-	result = autoLinker.createLinks(new TextNode("das ist ein test “@rotnroll666 ohne urls"));
+	final TextNode textNodeWithoutLinks = new TextNode("das ist ein test “@rotnroll666 ohne urls");
+	result = autoLinker.createLinks(textNodeWithoutLinks);
 	Assert.assertTrue(result.size() == 1);
+	Assert.assertSame(textNodeWithoutLinks, result.get(0));
 	Assert.assertTrue(result.get(0) instanceof TextNode);
 	Assert.assertEquals("das ist ein test “@rotnroll666 ohne urls", ((TextNode) result.get(0)).getWholeText());
 	
@@ -111,4 +113,32 @@ public class EmailAddressAutoLinkerTest {
 	Assert.assertEquals("%6d%69%63%68%61%65%6c%2e%73%69%6d%6f%6e%73@%74%65%73%74%2e%63%6f%6d", autoLinker.hexEncodeEmailAddress("michael.simons@test.com"));
 	Assert.assertEquals("%6d%69%63%68%61%65%6c%2e%73%69%6d%6f%6e%73@%74%65%73%74%2e%63%6f%6d", autoLinker.hexEncodeEmailAddress("Michael.Simons@teSt.com"));
     }
+
+    @Test
+    public void hexEncodingShouldMatchFormat() {
+	final EmailAddressAutoLinker autoLinker = new EmailAddressAutoLinker(true, true);
+	for (char c : new char[]{'\0', '\t', 'a', '\u00e9', '\u4e2d', '\uff20', '\uffff'}) {
+	    final String expected = c == '@' ? "@" : String.format("%%%x", (int) Character.toLowerCase(c));
+	    Assert.assertEquals(expected, autoLinker.hexEncodeEmailAddress(String.valueOf(c)));
+	}
+	Assert.assertEquals(" [AT]  [AT]  [DOT] ", autoLinker.obfuscateEmailAddress("@\uff20."));
+    }
+
+    @Test
+    public void rendererShouldBeUsed() {
+	final EmailAddressAutoLinker autoLinker = new EmailAddressAutoLinker(false, true).withRenderer(AnchorRenderer.defaults().withAttribute("class", "mail"));
+	final List<Node> result = autoLinker.createLinks(new TextNode("schreib an michael@simons.ac"));
+	Assert.assertEquals(2, result.size());
+	final Element a = (Element) result.get(1);
+	Assert.assertEquals("mailto:michael@simons.ac", a.attr("href"));
+	Assert.assertEquals("mail", a.attr("class"));
+	Assert.assertEquals("michael [AT] simons [DOT] ac", a.text());
+    }
+
+    @Test
+    public void isCandidateShouldWork() {
+	final EmailAddressAutoLinker autoLinker = new EmailAddressAutoLinker(false, false);
+	Assert.assertFalse(autoLinker.isCandidate("michael.simons at test.com"));
+	Assert.assertTrue(autoLinker.isCandidate("michael@test.com"));
+    }
 }
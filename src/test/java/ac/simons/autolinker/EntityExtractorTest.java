@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014-2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * @author Michael J. Simons
+ */
+public class EntityExtractorTest {
+
+    private static final String[] TOKENS = {
+	"@", "#", "$", " ", "\n", ".", "/", ":", "<", "&", "RT",
+	"example.com", "https://michael-simons.eu/p?x=1&y=2", "www.example.com", "michael@simons.ac", "MICHAEL@SIMONS.AC",
+	"@rotnroll666", "#java", "$ORCL", "foo", "ü"
+    };
+
+    @Rule
+    public final ExpectedException expectedException = ExpectedException.none();
+
+    private final AutoLinkService autoLinkService = new AutoLinkService(List.of(
+	    new EmailAddressAutoLinker(false, false),
+	    new CombinedAutoLinker(List.of(new TwitterUserAutoLinker("https://example.com/@{username}"), new HashtagAutoLinker(), new CashtagAutoLinker())),
+	    new UrlAutoLinker(30)
+    ));
+
+    @Test
+    public void extractEntitiesShouldWork() {
+	final String text = "@rotnroll666 schreibt an michael@simons.ac über #java, $ORCL und www.example.com.";
+	final List<AutoLinkEntity> expected = List.of(
+		new AutoLinkEntity(AutoLinkEntity.Kind.MENTION, 0, 12, "https://example.com/@rotnroll666"),
+		new AutoLinkEntity(AutoLinkEntity.Kind.EMAIL_ADDRESS, 25, 42, "mailto:michael@simons.ac"),
+		new AutoLinkEntity(AutoLinkEntity.Kind.HASHTAG, 48, 53, "https://twitter.com/hashtag/java"),
+		new AutoLinkEntity(AutoLinkEntity.Kind.CASHTAG, 55, 60, "https://twitter.com/search?q=%24ORCL"),
+		new AutoLinkEntity(AutoLinkEntity.Kind.URL, 65, 80, "http://www.example.com")
+	);
+	Assert.assertEquals(expected, autoLinkService.extractEntities(text));
+	Assert.assertEquals("www.example.com", text.substring(expected.get(4).getStart(), expected.get(4).getEnd()));
+
+	final LinkingSession session = autoLinkService.newSession();
+	Assert.assertEquals(expected, session.extractEntities(text));
+	Assert.assertEquals(expected, session.extractEntities(text));
+	Assert.assertEquals(List.of(), session.extractEntities("nothing to see here"));
+	Assert.assertEquals(List.of(), autoLinkService.extractEntities(null));
+    }
+
+    @Test
+    public void entitiesShouldMatchLinks() {
+	for (String in : RandomTexts.generate(4711, TOKENS, 20, 5_000)) {
+	    final List<String> hrefs = new ArrayList<>();
+	    for (Element a : Jsoup.parseBodyFragment(autoLinkService.addLinksToPlainText(in)).select("a")) {
+		hrefs.add(a.attr("href"));
+	    }
+	    final List<String> entityHrefs = new ArrayList<>();
+	    for (AutoLinkEntity entity : autoLinkService.extractEntities(in)) {
+		entityHrefs.add(entity.getHref());
+	    }
+	    Assert.assertEquals("Different entities for '" + in + "'", hrefs, entityHrefs);
+	}
+    }
+
+    @Test
+    public void textsOverflowingTheStackShouldHaveNoEntities() {
+	final String text = "@rotnroll666 \"" + AutoLinkBudgetTest.repeat("a ", 50_000) + "\"@example.com";
+	Assert.assertEquals(text, autoLinkService.addLinksToPlainText(text));
+	Assert.assertEquals(List.of(), autoLinkService.extractEntities(text));
+	Assert.assertEquals(List.of(), autoLinkService.newSession().extractEntities(text));
+    }
+
+    @Test
+    public void customAutoLinkersAreNotSupported() {
+	expectedException.expect(IllegalStateException.class);
+	expectedException.expectMessage("Cannot extract entities with");
+	new AutoLinkService(List.of(AutoLinkServiceTest::autoLink1)).extractEntities("foo");
+    }
+}
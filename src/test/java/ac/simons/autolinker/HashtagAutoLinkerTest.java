@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014-2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class HashtagAutoLinkerTest {
+
+    @Test
+    public void createLinksShouldWork() {
+	final HashtagAutoLinker autoLinker = new HashtagAutoLinker();
+
+	final TextNode textNodeWithoutLinks = new TextNode("das ist ein test ohne hashtags");
+	List<Node> result = autoLinker.createLinks(textNodeWithoutLinks);
+	Assert.assertEquals(1, result.size());
+	Assert.assertSame(textNodeWithoutLinks, result.get(0));
+
+	result = autoLinker.createLinks(new TextNode("Ein Bild zum #Frühstück."));
+	Assert.assertEquals(3, result.size());
+	Assert.assertEquals("Ein Bild zum ", ((TextNode) result.get(0)).getWholeText());
+	final Element a = (Element) result.get(1);
+	Assert.assertEquals("https://twitter.com/hashtag/Frühstück", a.attr("href"));
+	Assert.assertEquals("#Frühstück", a.text());
+	Assert.assertEquals(".", ((TextNode) result.get(2)).getWholeText());
+    }
+
+    @Test
+    public void onlyValidHashtagsShouldBeLinked() {
+	final AutoLinkService autoLinkService = new AutoLinkService(List.of(new HashtagAutoLinker()));
+	Assert.assertEquals("<a href=\"https://twitter.com/hashtag/java\">#java</a>", autoLinkService.addLinksToPlainText("＃java"));
+	Assert.assertEquals("#<a href=\"https://twitter.com/hashtag/java\">#java</a>", autoLinkService.addLinksToPlainText("##java"));
+	Assert.assertEquals("#1", autoLinkService.addLinksToPlainText("#1"));
+	Assert.assertEquals("C#", autoLinkService.addLinksToPlainText("C#"));
+	Assert.assertEquals("a#java", autoLinkService.addLinksToPlainText("a#java"));
+	Assert.assertEquals("&amp;#java", autoLinkService.addLinksToPlainText("&#java"));
+	Assert.assertEquals("#java#", autoLinkService.addLinksToPlainText("#java#"));
+	Assert.assertEquals("#http://example.com", autoLinkService.addLinksToPlainText("#http://example.com"));
+    }
+
+    @Test
+    public void urlTemplateShouldBeUsed() {
+	final HashtagAutoLinker autoLinker = new HashtagAutoLinker("https://mastodon.social/tags/{hashtag}")
+		.withRenderer(AnchorRenderer.defaults().withAttribute("rel", "tag"));
+	final AutoLinkService autoLinkService = new AutoLinkService(List.of(autoLinker));
+	final String expected = "hi <a href=\"https://mastodon.social/tags/java\" rel=\"tag\">#java</a>";
+	Assert.assertEquals(expected, autoLinkService.addLinksToPlainText("hi #java"));
+	Assert.assertEquals(expected, autoLinkService.newSession().addLinksToPlainText("hi #java"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void urlTemplateWithoutHashtagShouldBeRejected() {
+	new HashtagAutoLinker("https://example.com/tags/");
+    }
+}
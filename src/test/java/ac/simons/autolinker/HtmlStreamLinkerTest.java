@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class HtmlStreamLinkerTest {
+
+    private final List<AutoLinker> autoLinkers = Arrays.asList(
+	    new EmailAddressAutoLinker(false, false),
+	    new TwitterUserAutoLinker(),
+	    new UrlAutoLinker(30)
+    );
+
+    private String link(final String html) {
+	return link(new StringReader(html));
+    }
+
+    private String link(final Reader html) {
+	final StringWriter rv = new StringWriter();
+	try {
+	    new HtmlStreamLinker(textNode -> AutoLinkService.createLinks(autoLinkers, textNode), html, rv).run();
+	} catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+	return rv.toString();
+    }
+
+    @Test
+    public void textShouldBeLinked() {
+	Assert.assertEquals("", link(""));
+	Assert.assertEquals("nothing to see here", link("nothing to see here"));
+	Assert.assertEquals("<p>see <a href=\"http://example.com\" title=\"http://example.com\">example.com</a></p>", link("<p>see example.com</p>"));
+	Assert.assertEquals("<a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a> &lt;3 <b>x</b>", link("@rotnroll666 &lt;3 <b>x</b>"));
+	Assert.assertEquals("a < b &amp; c", link("a < b &amp; c"));
+    }
+
+    @Test
+    public void markupShouldBeCopied() {
+	final String[] untouched = {
+	    "<a href=\"http://example.com\">example.com <b>www.example.com</b></a> x",
+	    "<a href='x'><a>example.com</a> example.com</a>",
+	    "<!-- example.com --> <!---->x<!-- a -- b --->",
+	    "<!DOCTYPE html><?xml version=\"1.0\"?>",
+	    "<script>var x = '<a>'; // example.com</script>",
+	    "<STYLE type=\"text/css\">/* example.com </styles> */</style >",
+	    "<script>if (a</b) { example.com }</script>",
+	    "<img alt=\"> example.com\" src='a>b'/>",
+	    "<unclosed example.com",
+	    "<script>example.com",
+	    "<script>x </SCRIPTS> </Scri</SCRIPT>"
+	};
+	for (String html : untouched) {
+	    Assert.assertEquals(html, link(html));
+	}
+	Assert.assertEquals("<a/><a href=\"http://example.com\" title=\"http://example.com\">example.com</a>", link("<a/>example.com"));
+	Assert.assertEquals("</a></a><a href=\"http://example.com\" title=\"http://example.com\">example.com</a>", link("</a></a>example.com"));
+	Assert.assertEquals("<script></script><a href=\"http://example.com\" title=\"http://example.com\">example.com</a>", link("<script></script>example.com"));
+	Assert.assertEquals("<!-- x --><a href=\"http://example.com\" title=\"http://example.com\">example.com</a>", link("<!-- x -->example.com"));
+    }
+
+    @Test
+    public void longInputShouldBeStreamed() {
+	final StringBuilder html = new StringBuilder();
+	final StringBuilder expected = new StringBuilder();
+	for (int i = 0; i < 5_000; ++i) {
+	    html.append("<p class=\"x\">Visit www.example").append(i).append(".com!</p>");
+	    expected.append("<p class=\"x\">Visit <a href=\"http://www.example").append(i).append(".com\" title=\"http://www.example").append(i).append(".com\">www.example").append(i).append(".com</a>!</p>");
+	}
+	// Hand out the input in small chunks
+	final Reader reader = new StringReader(html.toString()) {
+	    @Override
+	    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		return super.read(cbuf, off, Math.min(len, 7));
+	    }
+	};
+	Assert.assertEquals(expected.toString(), link(reader));
+    }
+
+    @Test
+    public void resultShouldBeEquivalentToDocument() throws IOException {
+	final Properties texts = new Properties();
+	texts.load(new InputStreamReader(HtmlStreamLinkerTest.class.getResourceAsStream("/ac/simons/autolinker/testdata.properties"), StandardCharsets.UTF_8));
+
+	final AutoLinkService autoLinkService = new AutoLinkService(autoLinkers);
+	int cnt = 0;
+	for (String key : texts.stringPropertyNames()) {
+	    if (!key.endsWith(".in")) {
+		continue;
+	    }
+	    final String in = texts.getProperty(key);
+	    final Document expected = autoLinkService.addLinks(Jsoup.parseBodyFragment(in));
+	    final Document actual = Jsoup.parseBodyFragment(link(in));
+	    Assert.assertEquals("Test " + key + " fails", expected.body().html(), actual.body().html());
+	    ++cnt;
+	}
+	Assert.assertTrue(cnt > 0);
+    }
+}
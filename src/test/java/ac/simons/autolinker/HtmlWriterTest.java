@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Tag;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class HtmlWriterTest {
+
+    @Test
+    public void writeNodesShouldWork() {
+	final Element anchor = new Element(Tag.valueOf("a"), "");
+	anchor.attr("href", "http://example.com?a=\"b\"&c=<d>");
+	anchor.appendChild(new TextNode("\"example\" & <co>"));
+
+	final StringBuilder html = new StringBuilder();
+	HtmlWriter.writeNodes(List.of(new TextNode("1 < 2 "), anchor), html);
+	Assert.assertEquals("1 &lt; 2 <a href=\"http://example.com?a=&quot;b&quot;&amp;c=&lt;d&gt;\">\"example\" &amp; &lt;co&gt;</a>", html.toString());
+
+	final StringBuilder comment = new StringBuilder();
+	HtmlWriter.writeNode(new Comment(" x "), comment);
+	Assert.assertEquals("<!-- x -->", comment.toString().trim());
+    }
+
+    @Test
+    public void needsEscapingShouldWork() {
+	Assert.assertFalse(HtmlWriter.needsEscaping(""));
+	Assert.assertFalse(HtmlWriter.needsEscaping("\"quoted\" text"));
+	Assert.assertTrue(HtmlWriter.needsEscaping("a & b"));
+	Assert.assertTrue(HtmlWriter.needsEscaping("<b>"));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class IncrementalLinkerTest {
+
+    private static final String[] TOKENS = {
+	"<p>", "</p>", "<br>", "<img src=\"a.png\" alt=\"x\">", "<a href=\"http://foo.com\">", "</a>", "<script>example.com</script>",
+	"<!-- example.com -->", "&amp;", "&lt;", "&#64;", " ", "\n", "foo", "example.com", "https://michael-simons.eu", "@rotnroll666",
+	"michael@simons.ac", "<b>", "</b>", "<div>", "</div>", "<a>", "é"
+    };
+
+    private final AutoLinkService autoLinkService = new AutoLinkService(List.of(
+	    new EmailAddressAutoLinker(false, false),
+	    new TwitterUserAutoLinker(),
+	    new UrlAutoLinker(30)
+    ));
+
+    @Test
+    public void onlyChangedBlocksShouldBeLinked() {
+	final IncrementalLinker incrementalLinker = autoLinkService.newIncrementalLinker();
+	final String first = "<p>Hallo @rotnroll666</p>\n<p>Schau auf https://michael-simons.eu</p>\n<p>Tschüss</p>";
+	Assert.assertEquals(autoLinkService.addLinks(first, null), incrementalLinker.addLinks(first, null));
+	// The second line break is the same block as the first
+	Assert.assertEquals(1, incrementalLinker.getReusedBlocks());
+	Assert.assertEquals(4, incrementalLinker.getLinkedBlocks());
+
+	final String second = "<p>Hallo @rotnroll666</p>\n<p>Schreib an michael@simons.ac</p>\n<p>Tschüss</p>";
+	Assert.assertEquals(autoLinkService.addLinks(second, null), incrementalLinker.addLinks(second, null));
+	Assert.assertEquals(4, incrementalLinker.getReusedBlocks());
+	Assert.assertEquals(1, incrementalLinker.getLinkedBlocks());
+
+	// Only the blocks of the previous run are kept
+	Assert.assertEquals(autoLinkService.addLinks(first, null), incrementalLinker.addLinks(first, null));
+	Assert.assertEquals(1, incrementalLinker.getLinkedBlocks());
+
+	Assert.assertNull(incrementalLinker.addLinks(null, null));
+	Assert.assertEquals(" ", incrementalLinker.addLinks(" ", null));
+	Assert.assertEquals(autoLinkService.addLinks(first, null), incrementalLinker.addLinks(first, null));
+	Assert.assertEquals(4, incrementalLinker.getLinkedBlocks());
+    }
+
+    @Test
+    public void resultShouldMatchAddLinksWhileEditing() {
+	// Where the paragraphs go is random, too
+	final Random random = new Random(815);
+	final IncrementalLinker incrementalLinker = autoLinkService.newIncrementalLinker();
+	final List<String> paragraphs = new ArrayList<>();
+	for (String paragraph : RandomTexts.generate(4711, TOKENS, 10, 1_000)) {
+	    if (paragraphs.size() < 10 || random.nextBoolean()) {
+		paragraphs.add(random.nextInt(paragraphs.size() + 1), paragraph);
+	    } else {
+		paragraphs.set(random.nextInt(paragraphs.size()), paragraph);
+	    }
+	    if (paragraphs.size() > 30) {
+		paragraphs.remove(random.nextInt(paragraphs.size()));
+	    }
+	    final String html = String.join("", paragraphs);
+	    Assert.assertEquals("Different html for '" + html + "'", autoLinkService.addLinks(html, null), incrementalLinker.addLinks(html, null));
+	}
+    }
+
+    @Test
+    public void budgetExceededBlocksShouldNotBeKept() {
+	final AutoLinkService limited = autoLinkService.withBudget(AutoLinkBudget.unlimited().withStepsPerTextNode(5));
+	final IncrementalLinker incrementalLinker = limited.newIncrementalLinker();
+	final String html = "<p>Hallo @rotnroll666</p><p>Schau auf https://michael-simons.eu</p>";
+	Assert.assertEquals(limited.addLinks(html, null), incrementalLinker.addLinks(html, null));
+	Assert.assertEquals(limited.addLinks(html, null), incrementalLinker.addLinks(html, null));
+	Assert.assertEquals(0, incrementalLinker.getReusedBlocks());
+    }
+}
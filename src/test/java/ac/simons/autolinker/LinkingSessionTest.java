@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class LinkingSessionTest {
+
+    private static final String[] TOKENS = {
+	"http://", "https://", "HTTP://", "www.", "foo", "bar", "a", "1", ".", ".com", ".co", ".de", ".jp", "t.co", "/", "(", ")", "?", "=",
+	"&", "<", ">", "\"", "#", "-", "_", "@", "＠", ":", ":8080", " ", "!", ",", "'", "é", "はじめよう", ".みんな", "😀", "\n",
+	"RT:", "@foo", "/list", "michael@simons.ac", "\"quoted\"", "Foo.Bar", "http://foo.com/http://bar.com", "xn--p1ai", "loooooooooooooooooooooong"
+    };
+
+    private static AutoLinkService newAutoLinkService(final UrlAutoLinker.Engine engine, final boolean obfuscate, final int maxLabelLength) {
+	return new AutoLinkService(Arrays.asList(
+		new EmailAddressAutoLinker(obfuscate, obfuscate),
+		new TwitterUserAutoLinker(),
+		new UrlAutoLinker(maxLabelLength, engine)
+	));
+    }
+
+    @Test
+    public void sessionShouldWork() {
+	final LinkingSession session = newAutoLinkService(UrlAutoLinker.Engine.REGEX, false, 30).newSession();
+	Assert.assertTrue(session.isDirect());
+	Assert.assertNull(session.addLinksToPlainText(null));
+	Assert.assertEquals("", session.addLinksToPlainText(""));
+	final String nothingToDo = "Nothing to link here ";
+	Assert.assertSame(nothingToDo, session.addLinksToPlainText(nothingToDo));
+	Assert.assertEquals("a &lt;b&gt; &amp; \"c\"", session.addLinksToPlainText("a <b> & \"c\""));
+	Assert.assertEquals(
+		"<a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a> see <a href=\"https://michael-simons.eu?a=b&amp;c=d\" title=\"https://michael-simons.eu?a=b&amp;c=d\">michael-simons.eu?a=b&amp;c=d</a> &lt;or&gt; <a href=\"mailto:michael@simons.ac\">michael@simons.ac</a> ",
+		session.addLinksToPlainText(new StringBuilder("@rotnroll666 see https://michael-simons.eu?a=b&c=d <or> michael@simons.ac "))
+	);
+
+	final StringBuilder target = new StringBuilder("> ");
+	session.addLinksToPlainText("@rotnroll666", target);
+	session.addLinksToPlainText(null, target);
+	Assert.assertEquals("> <a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a>", target.toString());
+    }
+
+    @Test
+    public void textsOverflowingTheStackShouldStayUnlinked() {
+	final AutoLinkService autoLinkService = newAutoLinkService(UrlAutoLinker.Engine.REGEX, false, 30);
+	final LinkingSession session = autoLinkService.newSession();
+	Assert.assertTrue(session.isDirect());
+	final String text = "<\"" + AutoLinkBudgetTest.repeat("a ", 50_000) + "\"@example.com>";
+	Assert.assertEquals(autoLinkService.addLinksToPlainText(text), session.addLinksToPlainText(text));
+
+	final StringBuilder target = new StringBuilder("> ");
+	session.addLinksToPlainText(text, target);
+	session.addLinksToPlainText("@rotnroll666", target);
+	Assert.assertEquals("> " + autoLinkService.addLinksToPlainText(text) + "<a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a>", target.toString());
+    }
+
+    @Test
+    public void sessionShouldFallBackForCustomAutoLinkers() {
+	final AutoLinkService autoLinkService = new AutoLinkService(Arrays.asList(new TwitterUserAutoLinker(), AutoLinkServiceTest::autoLink1));
+	final LinkingSession session = autoLinkService.newSession();
+	Assert.assertFalse(session.isDirect());
+	Assert.assertEquals("<a href=\"https://twitter.com/foo\">@foo</a> THELINK!", session.addLinksToPlainText("@foo linkme"));
+
+	final StringBuilder target = new StringBuilder();
+	session.addLinksToPlainText("linkme", target);
+	Assert.assertEquals("THELINK!", target.toString());
+
+	Assert.assertFalse(newAutoLinkService(UrlAutoLinker.Engine.REGEX, false, 30).withListener(new AutoLinkMetrics()).newSession().isDirect());
+    }
+
+    @Test
+    public void sessionShouldMatchAddLinksToPlainText() throws IOException {
+	final Properties texts = new Properties();
+	texts.load(new InputStreamReader(LinkingSessionTest.class.getResourceAsStream("/ac/simons/autolinker/testdata.properties"), StandardCharsets.UTF_8));
+
+	for (UrlAutoLinker.Engine engine : UrlAutoLinker.Engine.values()) {
+	    for (boolean obfuscate : new boolean[]{true, false}) {
+		final AutoLinkService autoLinkService = newAutoLinkService(engine, obfuscate, 30);
+		final LinkingSession session = autoLinkService.newSession();
+		for (String text : texts.stringPropertyNames()) {
+		    final String in = texts.getProperty(text);
+		    Assert.assertEquals(autoLinkService.addLinksToPlainText(in), session.addLinksToPlainText(in));
+		}
+	    }
+	}
+    }
+
+    @Test
+    public void sessionShouldMatchAddLinksToPlainTextOnRandomInput() {
+	final AutoLinkService[] autoLinkServices = {
+	    newAutoLinkService(UrlAutoLinker.Engine.REGEX, true, 30),
+	    newAutoLinkService(UrlAutoLinker.Engine.SCANNER, false, 12),
+	    new AutoLinkService(List.of(new CombinedAutoLinker(List.of(
+		new UrlAutoLinker(20),
+		new TwitterUserAutoLinker("https://example.com/?u={username}&x").withRenderer(AnchorRenderer.defaults().withAttribute("rel", "<me>")),
+		new EmailAddressAutoLinker(true, false)
+	    ))))
+	};
+	final LinkingSession[] sessions = {autoLinkServices[0].newSession(), autoLinkServices[1].newSession(), autoLinkServices[2].newSession()};
+	final List<String> texts = RandomTexts.generate(4711, TOKENS, 16, 10_000);
+	for (int i = 0; i < texts.size(); ++i) {
+	    final String text = texts.get(i);
+	    final int k = i % 3;
+	    Assert.assertEquals("Different html for '" + text + "'", autoLinkServices[k].addLinksToPlainText(text), sessions[k].addLinksToPlainText(text));
+	}
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * @author Michael J. Simons
+ */
+public class LruCacheTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void constructorShouldCheckSize() {
+	expectedException.expect(IllegalArgumentException.class);
+	expectedException.expectMessage("Maximum size must be positive");
+	new LruCache<String, String>(0);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesShouldBeEvicted() {
+	final LruCache<String, String> cache = new LruCache<>(2);
+	cache.put("a", "A");
+	cache.put("b", "B");
+	Assert.assertEquals("A", cache.get("a"));
+	cache.put("c", "C");
+
+	Assert.assertNull(cache.get("b"));
+	Assert.assertEquals("A", cache.get("a"));
+	Assert.assertEquals("C", cache.get("c"));
+
+	final AutoLinkCache.Statistics statistics = cache.getStatistics();
+	Assert.assertEquals(3, statistics.getHits());
+	Assert.assertEquals(1, statistics.getMisses());
+	Assert.assertEquals(1, statistics.getEvictions());
+	Assert.assertEquals(2, statistics.getSize());
+    }
+
+    @Test
+    public void sizeShouldBeBounded() {
+	final LruCache<Integer, Integer> cache = new LruCache<>(1000);
+	for (int i = 0; i < 10_000; ++i) {
+	    cache.put(i, i);
+	}
+	final AutoLinkCache.Statistics statistics = cache.getStatistics();
+	Assert.assertEquals(1000, statistics.getSize());
+	Assert.assertEquals(9000, statistics.getEvictions());
+	Assert.assertEquals(Integer.valueOf(9999), cache.get(9999));
+
+	cache.clear();
+	Assert.assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    @Test
+    public void concurrentAccessShouldWork() throws Exception {
+	final LruCache<Integer, Integer> cache = new LruCache<>(512);
+	final ExecutorService executor = Executors.newFixedThreadPool(8);
+	try {
+	    final List<Future<?>> futures = new ArrayList<>();
+	    for (int t = 0; t < 8; ++t) {
+		final int offset = t;
+		futures.add(executor.submit(() -> {
+		    for (int i = 0; i < 20_000; ++i) {
+			final int key = (i * 7 + offset) % 2048;
+			final Integer value = cache.get(key);
+			if (value == null) {
+			    cache.put(key, key * 2);
+			} else {
+			    Assert.assertEquals(key * 2, value.intValue());
+			}
+		    }
+		}));
+	    }
+	    for (Future<?> future : futures) {
+		future.get();
+	    }
+	} finally {
+	    executor.shutdown();
+	}
+	final AutoLinkCache.Statistics statistics = cache.getStatistics();
+	Assert.assertEquals(160_000, statistics.getHits() + statistics.getMisses());
+	Assert.assertTrue(statistics.getSize() <= 512);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael J. Simons
+ */
+public class PersistentAutoLinkCacheTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public final ExpectedException expectedException = ExpectedException.none();
+
+    private final AutoLinkService autoLinkService = new AutoLinkService(List.of(
+	    new EmailAddressAutoLinker(false, false),
+	    new TwitterUserAutoLinker(),
+	    new UrlAutoLinker(30)
+    ));
+
+    private Path newFile() throws IOException {
+	return temporaryFolder.getRoot().toPath().resolve("autolinks-" + temporaryFolder.getRoot().list().length + ".cache");
+    }
+
+    @Test
+    public void resultsShouldSurviveRestarts() throws IOException {
+	final Path file = newFile();
+	final String html = "<p>Hallo @rotnroll666, schau auf https://michael-simons.eu</p>";
+	final String plainText = "Schreib an michael@simons.ac";
+
+	try (PersistentAutoLinkCache persistentCache = PersistentAutoLinkCache.open(file, 64, 1024, "v1")) {
+	    final AutoLinkService cachingService = autoLinkService.withPersistentCache(persistentCache);
+	    Assert.assertEquals(autoLinkService.addLinks(html, null), cachingService.addLinks(html, null));
+	    Assert.assertEquals(autoLinkService.addLinksToPlainText(plainText), cachingService.addLinksToPlainText(plainText));
+	    Assert.assertEquals(0, persistentCache.getStatistics().getHits());
+	    Assert.assertEquals(2, persistentCache.getStatistics().getSize());
+	}
+
+	final AutoLinkCache cache = new AutoLinkCache(10, 0);
+	try (PersistentAutoLinkCache persistentCache = PersistentAutoLinkCache.open(file, 64, 1024, "v1")) {
+	    final AutoLinkService cachingService = autoLinkService.withCache(cache).withPersistentCache(persistentCache);
+	    Assert.assertFalse(cachingService.newSession().isDirect());
+	    Assert.assertEquals(autoLinkService.addLinks(html, null), cachingService.addLinks(html, null));
+	    Assert.assertEquals(autoLinkService.addLinks(html, null), cachingService.addLinks(html, null));
+	    Assert.assertEquals(autoLinkService.addLinksToPlainText(plainText), cachingService.addLinksToPlainText(plainText));
+	    Assert.assertEquals(2, persistentCache.getStatistics().getHits());
+	    Assert.assertEquals(1, cache.getResultStatistics().getHits());
+
+	    // Different base url, different entry
+	    Assert.assertEquals(autoLinkService.addLinks(html, "http://foo.com"), cachingService.addLinks(html, "http://foo.com"));
+	    Assert.assertEquals(1, persistentCache.getStatistics().getMisses());
+	}
+    }
+
+    @Test
+    public void namespacesShouldBeSeparated() throws IOException {
+	final Path file = newFile();
+	try (PersistentAutoLinkCache v1 = PersistentAutoLinkCache.open(file, 64, 1024, "v1");
+		PersistentAutoLinkCache v2 = PersistentAutoLinkCache.open(file, 64, 1024, "v2")) {
+	    Assert.assertEquals("v1", v1.getNamespace());
+	    final AutoLinkService twitter = new AutoLinkService(List.of(new TwitterUserAutoLinker())).withPersistentCache(v1);
+	    final AutoLinkService twitterWithTemplate = new AutoLinkService(List.of(new TwitterUserAutoLinker("https://example.com/{username}"))).withPersistentCache(v2);
+	    Assert.assertEquals("<a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a>", twitter.addLinksToPlainText("@rotnroll666"));
+	    Assert.assertEquals("<a href=\"https://example.com/rotnroll666\">@rotnroll666</a>", twitterWithTemplate.addLinksToPlainText("@rotnroll666"));
+	    Assert.assertEquals("<a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a>", twitter.addLinksToPlainText("@rotnroll666"));
+	    Assert.assertEquals(1, v1.getStatistics().getHits());
+	    Assert.assertEquals(0, v2.getStatistics().getHits());
+	    // Both see the same file, just like caches in different JVMs
+	    Assert.assertEquals(2, v2.getStatistics().getSize());
+	}
+    }
+
+    @Test
+    public void corruptSlotsShouldBeDetected() throws IOException {
+	final Path file = newFile();
+	final String text = "Hallo @rotnroll666";
+	try (PersistentAutoLinkCache persistentCache = PersistentAutoLinkCache.open(file, 4, 256, "v1")) {
+	    autoLinkService.withPersistentCache(persistentCache).addLinksToPlainText(text);
+	}
+	final byte[] content = Files.readAllBytes(file);
+	int valueStart = -1;
+	for (int i = 0; i < content.length; ++i) {
+	    if (content[i] == '<') {
+		valueStart = i;
+		break;
+	    }
+	}
+	try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+	    raw.seek(valueStart + 10);
+	    raw.write('X');
+	}
+
+	try (PersistentAutoLinkCache persistentCache = PersistentAutoLinkCache.open(file, 4, 256, "v1")) {
+	    final AutoLinkService cachingService = autoLinkService.withPersistentCache(persistentCache);
+	    Assert.assertEquals(autoLinkService.addLinksToPlainText(text), cachingService.addLinksToPlainText(text));
+	    Assert.assertEquals(1, persistentCache.getCorruptSlots());
+	    Assert.assertEquals(0, persistentCache.getStatistics().getHits());
+	    // The corrupt slot has been overwritten
+	    Assert.assertEquals(autoLinkService.addLinksToPlainText(text), cachingService.addLinksToPlainText(text));
+	    Assert.assertEquals(1, persistentCache.getStatistics().getHits());
+	    Assert.assertEquals(1, persistentCache.getStatistics().getSize());
+	}
+    }
+
+    @Test
+    public void corruptHeaderShouldRecreateFile() throws IOException {
+	final Path file = newFile();
+	Files.write(file, new byte[] {1, 2, 3});
+	try (PersistentAutoLinkCache persistentCache = PersistentAutoLinkCache.open(file, 4, 256, "v1")) {
+	    Assert.assertEquals(0, persistentCache.getStatistics().getSize());
+	}
+	Assert.assertEquals(64 + 4 * 256, Files.size(file));
+    }
+
+    @Test
+    public void replacedFilesShouldNotAffectOpenCaches() throws IOException {
+	final Path file = newFile();
+	final String html = "<p>Hallo @rotnroll666</p>";
+	try (PersistentAutoLinkCache first = PersistentAutoLinkCache.open(file, 4, 256, "v1")) {
+	    final AutoLinkService service = autoLinkService.withPersistentCache(first);
+	    final String linked = service.addLinks(html, null);
+	    Assert.assertEquals(1, first.getStatistics().getSize());
+
+	    // Looks like a file of another version
+	    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+		randomAccessFile.seek(8);
+		randomAccessFile.writeInt(4711);
+	    }
+	    try (PersistentAutoLinkCache second = PersistentAutoLinkCache.open(file, 4, 256, "v1")) {
+		Assert.assertEquals(0, second.getStatistics().getSize());
+		Assert.assertEquals(linked, autoLinkService.withPersistentCache(second).addLinks(html, null));
+		Assert.assertEquals(1, second.getStatistics().getSize());
+	    }
+
+	    // The first cache still works on the old file
+	    Assert.assertEquals(linked, service.addLinks(html, null));
+	    Assert.assertEquals(1, first.getStatistics().getHits());
+	}
+	try (PersistentAutoLinkCache reopened = PersistentAutoLinkCache.open(file, 4, 256, "v1")) {
+	    Assert.assertEquals(1, reopened.getStatistics().getSize());
+	}
+	Assert.assertEquals(1, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void differentLayoutShouldBeRejected() throws IOException {
+	final Path file = newFile();
+	PersistentAutoLinkCache.open(file, 4, 256, "v1").close();
+	expectedException.expect(IOException.class);
+	expectedException.expectMessage("has been created with 4 slots of 256 bytes");
+	PersistentAutoLinkCache.open(file, 8, 256, "v1");
+    }
+
+    @Test
+    public void oldestSlotsShouldBeEvicted() throws IOException {
+	try (PersistentAutoLinkCache persistentCache = PersistentAutoLinkCache.open(newFile(), 3, 256, "v1")) {
+	    final AutoLinkService cachingService = autoLinkService.withPersistentCache(persistentCache);
+	    for (int i = 0; i < 6; ++i) {
+		cachingService.addLinksToPlainText("@user" + i);
+	    }
+	    final AutoLinkCache.Statistics statistics = persistentCache.getStatistics();
+	    Assert.assertEquals(4, statistics.getSize());
+	    Assert.assertEquals(2, statistics.getEvictions());
+
+	    // Too large for a slot
+	    final String longText = String.join(" ", Collections.nCopies(20, "@rotnroll666"));
+	    Assert.assertEquals(autoLinkService.addLinksToPlainText(longText), cachingService.addLinksToPlainText(longText));
+	    Assert.assertEquals(2, persistentCache.getStatistics().getEvictions());
+	}
+    }
+
+    @Test
+    public void closedCachesShouldBeIgnored() throws IOException {
+	final PersistentAutoLinkCache persistentCache = PersistentAutoLinkCache.open(newFile(), 4, 256, "v1");
+	persistentCache.close();
+	final AutoLinkService cachingService = autoLinkService.withPersistentCache(persistentCache);
+	Assert.assertEquals(autoLinkService.addLinksToPlainText("@rotnroll666"), cachingService.addLinksToPlainText("@rotnroll666"));
+    }
+
+    @Test
+    public void cacheShouldBeThreadSafe() throws Exception {
+	final ExecutorService executor = Executors.newFixedThreadPool(4);
+	try (PersistentAutoLinkCache persistentCache = PersistentAutoLinkCache.open(newFile(), 16, 512, "v1")) {
+	    final AutoLinkService cachingService = autoLinkService.withPersistentCache(persistentCache);
+	    final List<Future<?>> futures = new ArrayList<>();
+	    for (int t = 0; t < 4; ++t) {
+		futures.add(executor.submit(() -> {
+		    for (int i = 0; i < 2_000; ++i) {
+			final String text = "Hallo @user" + (i % 50) + " auf https://example.com/" + (i % 7);
+			Assert.assertEquals(autoLinkService.addLinksToPlainText(text), cachingService.addLinksToPlainText(text));
+		    }
+		}));
+	    }
+	    for (Future<?> future : futures) {
+		future.get();
+	    }
+	} finally {
+	    executor.shutdown();
+	}
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates texts made of random tokens, to compare two ways of linking
+ * on a lot of odd input. The texts only depend on the seed, so a failing
+ * text can always be reproduced.
+ *
+ * @author Michael J. Simons
+ */
+final class RandomTexts {
+
+    private RandomTexts() {
+    }
+
+    /**
+     * @param seed      The seed of the random generator
+     * @param tokens    The tokens to build the texts from
+     * @param maxTokens The maximum number of tokens per text, at least one
+     *                  token is used
+     * @param count     The number of texts to generate
+     * @return The generated texts
+     */
+    static List<String> generate(final long seed, final String[] tokens, final int maxTokens, final int count) {
+	final Random random = new Random(seed);
+	final List<String> rv = new ArrayList<>(count);
+	for (int i = 0; i < count; ++i) {
+	    final StringBuilder text = new StringBuilder();
+	    final int numberOfTokens = 1 + random.nextInt(maxTokens);
+	    for (int j = 0; j < numberOfTokens; ++j) {
+		text.append(tokens[random.nextInt(tokens.length)]);
+	    }
+	    rv.add(text.toString());
+	}
+	return rv;
+    }
+}
@@ -70,4 +70,13 @@ public class StringsTest {
 	// Naive would split the surrogate pair
 	assertEquals("12👍…", Strings.truncate("12👍45", 4, "…"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void containsAnyShouldWork() {
+	assertTrue(Strings.containsAny("michael@simons.ac", "@"));
+	assertTrue(Strings.containsAny("michael＠simons", "@\uFF20"));
+	assertFalse(Strings.containsAny("no trigger in here", ".@"));
+	assertFalse(Strings.containsAny("", "."));
+	assertFalse(Strings.containsAny("something", ""));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class TldTrieTest {
+
+    private final TldTrie tldTrie = new TldTrie(List.of("com", "community", "org", "みんな"), List.of("co", "de", "香港"));
+
+    @Test
+    public void matchShouldWork() {
+	Assert.assertEquals(3, tldTrie.match("com", 0, TldTrie.GENERIC));
+	Assert.assertEquals(3, tldTrie.match("test.COM/foo", 5, TldTrie.GENERIC));
+	Assert.assertEquals(9, tldTrie.match("test.community", 5, TldTrie.GENERIC));
+	Assert.assertEquals(3, tldTrie.match("みんな", 0, TldTrie.GENERIC));
+	Assert.assertEquals(2, tldTrie.match("co.uk", 0, TldTrie.COUNTRY));
+	Assert.assertEquals(2, tldTrie.match("香港", 0, TldTrie.GENERIC | TldTrie.COUNTRY));
+
+	Assert.assertEquals(-1, tldTrie.match("co", 0, TldTrie.GENERIC));
+	Assert.assertEquals(-1, tldTrie.match("com", 0, TldTrie.COUNTRY));
+	Assert.assertEquals(-1, tldTrie.match("comm", 0, TldTrie.GENERIC));
+	Assert.assertEquals(-1, tldTrie.match("com1", 0, TldTrie.GENERIC));
+	Assert.assertEquals(-1, tldTrie.match("com@", 0, TldTrie.GENERIC));
+	Assert.assertEquals(-1, tldTrie.match("net", 0, TldTrie.GENERIC));
+	Assert.assertEquals(-1, tldTrie.match("", 0, TldTrie.GENERIC));
+    }
+
+    @Test
+    public void toRegexShouldWork() {
+	Assert.assertEquals("(?:com(?:munity)?|org|みんな)", tldTrie.toRegex(TldTrie.GENERIC));
+	Assert.assertEquals("(?:co|de|香港)", tldTrie.toRegex(TldTrie.COUNTRY));
+	Assert.assertEquals("", new TldTrie(List.of("com"), List.of()).toRegex(TldTrie.COUNTRY));
+	Assert.assertEquals("\u092a\\x{93c}", new TldTrie(List.of("\u092a\u093c"), List.of()).toRegex(TldTrie.GENERIC));
+
+	final Pattern generic = Pattern.compile(tldTrie.toRegex(TldTrie.GENERIC), Pattern.CASE_INSENSITIVE);
+	for (String tld : List.of("com", "Community", "org", "みんな")) {
+	    Assert.assertTrue(generic.matcher(tld).matches());
+	}
+	for (String tld : List.of("co", "commun", "de", "香港")) {
+	    Assert.assertFalse(generic.matcher(tld).matches());
+	}
+    }
+}
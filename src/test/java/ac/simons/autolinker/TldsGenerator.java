@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * Generates {@code Tlds.java} from {@code tld_lib.yml}. Run it from the
+ * project root after updating the yaml file, {@link TldsTest} fails as long
+ * as the generated source is out of date.
+ *
+ * @author Michael J. Simons
+ */
+public final class TldsGenerator {
+
+    static final Path TLDS_SOURCE = Paths.get("src/main/java/ac/simons/autolinker/Tlds.java");
+
+    private static final String LICENSE_HEADER = ""
+	    + "/*\n"
+	    + " * Copyright 2018 michael-simons.eu.\n"
+	    + " *\n"
+	    + " * Licensed under the Apache License, Version 2.0 (the \"License\");\n"
+	    + " * you may not use this file except in compliance with the License.\n"
+	    + " * You may obtain a copy of the License at\n"
+	    + " *\n"
+	    + " *      http://www.apache.org/licenses/LICENSE-2.0\n"
+	    + " *\n"
+	    + " * Unless required by applicable law or agreed to in writing, software\n"
+	    + " * distributed under the License is distributed on an \"AS IS\" BASIS,\n"
+	    + " * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.\n"
+	    + " * See the License for the specific language governing permissions and\n"
+	    + " * limitations under the License.\n"
+	    + " */\n";
+
+    private static final int MAX_CHUNK_LENGTH = 80;
+
+    private TldsGenerator() {
+    }
+
+    public static void main(final String... args) throws IOException {
+	Files.write(TLDS_SOURCE, generate(loadTlds()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Map<String, List<String>> loadTlds() throws IOException {
+	try (InputStream in = TldsGenerator.class.getResourceAsStream("/ac/simons/autolinker/tld_lib.yml")) {
+	    return new Yaml().load(in);
+	}
+    }
+
+    static String generate(final Map<String, List<String>> tlds) {
+	final StringBuilder rv = new StringBuilder(LICENSE_HEADER)
+		.append("package ac.simons.autolinker;\n\n")
+		.append("import java.util.List;\n\n")
+		.append("/**\n")
+		.append(" * Top level domains as published by\n")
+		.append(" * <a href=\"https://github.com/twitter/twitter-text\">twitter-text</a> in\n")
+		.append(" * {@code tld_lib.yml}. Generated by {@code TldsGenerator} from the test\n")
+		.append(" * sources, don't edit by hand.\n")
+		.append(" *\n")
+		.append(" * @author Michael J. Simons\n")
+		.append(" */\n")
+		.append("final class Tlds {\n\n");
+	appendConstant(rv, "Generic top level domains.", "GENERIC", tlds.get("generic"));
+	appendConstant(rv, "Country code top level domains.", "COUNTRY", tlds.get("country"));
+	return rv
+		.append("\tprivate Tlds() {\n")
+		.append("\t}\n\n")
+		.append("\tprivate static List<String> split(final String tlds) {\n")
+		.append("\t\treturn List.of(tlds.split(\"\\\\|\"));\n")
+		.append("\t}\n")
+		.append("}\n")
+		.toString();
+    }
+
+    private static void appendConstant(final StringBuilder target, final String comment, final String name, final List<String> tlds) {
+	target
+		.append("\t/**\n")
+		.append("\t * ").append(comment).append("\n")
+		.append("\t */\n")
+		.append("\tstatic final List<String> ").append(name).append(" = split(\"\"");
+	final StringBuilder chunk = new StringBuilder();
+	for (int i = 0; i < tlds.size(); ++i) {
+	    if (i > 0) {
+		chunk.append('|');
+	    }
+	    for (char c : tlds.get(i).toCharArray()) {
+		if (c < 0x80) {
+		    chunk.append(c);
+		} else {
+		    chunk.append(String.format("\\u%04x", (int) c));
+		}
+	    }
+	    if (chunk.length() >= MAX_CHUNK_LENGTH || i == tlds.size() - 1) {
+		target.append("\n\t\t+ \"").append(chunk).append('"');
+		chunk.setLength(0);
+	    }
+	}
+	target.append(");\n\n");
+    }
+}
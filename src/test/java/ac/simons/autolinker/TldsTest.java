@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class TldsTest {
+
+    @Test
+    public void tldsShouldMatchYaml() throws IOException {
+	final Map<String, List<String>> tlds = TldsGenerator.loadTlds();
+	Assert.assertEquals(tlds.get("generic"), Tlds.GENERIC);
+	Assert.assertEquals(tlds.get("country"), Tlds.COUNTRY);
+    }
+
+    @Test
+    public void generatedSourceShouldBeUpToDate() throws IOException {
+	final String expected = TldsGenerator.generate(TldsGenerator.loadTlds());
+	final String actual = new String(Files.readAllBytes(TldsGenerator.TLDS_SOURCE), StandardCharsets.UTF_8);
+	Assert.assertEquals("Tlds.java is out of date, please run TldsGenerator", expected, actual);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014-2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class TwitterEntityFinderTest {
+
+    private static final String[] TOKENS = {
+	"@", "＠", "#", "＃", "$", "RT", "RT:", "rt", ":", "/", "-", "_", ".", "&", "!", " ", "\n", "　", "://",
+	"foo", "FOO", "bar_1", "a", "Grüße", "123", "ab", "list-name"
+    };
+
+    private final TwitterEntityFinder finder = new TwitterEntityFinder(List.of(
+	    new TwitterUserAutoLinker().getKind(),
+	    new HashtagAutoLinker().getKind(),
+	    new CashtagAutoLinker().getKind()
+    ));
+
+    private List<String> find(final String text) {
+	final List<String> rv = new ArrayList<>();
+	final LinkSpan span = new LinkSpan();
+	finder.reset(text);
+	while (finder.find()) {
+	    finder.capture(span);
+	    rv.add(span.getStart() + "-" + span.getEnd());
+	}
+	return rv;
+    }
+
+    /**
+     * Each pattern looking through the whole text on its own.
+     */
+    private static List<String> findWithPatterns(final String text) {
+	final List<int[]> spans = new ArrayList<>();
+	findWithPattern(Regex.VALID_MENTION_OR_LIST, Regex.VALID_MENTION_OR_LIST_GROUP_BEFORE, null, text, spans);
+	findWithPattern(Regex.VALID_HASHTAG, Regex.VALID_HASHTAG_GROUP_BEFORE, Regex.INVALID_HASHTAG_MATCH_END, text, spans);
+	findWithPattern(Regex.VALID_CASHTAG, Regex.VALID_CASHTAG_GROUP_BEFORE, null, text, spans);
+	spans.sort((a, b) -> Integer.compare(a[0], b[0]));
+	final List<String> rv = new ArrayList<>();
+	for (int[] span : spans) {
+	    rv.add(span[0] + "-" + span[1]);
+	}
+	return rv;
+    }
+
+    private static void findWithPattern(final Pattern pattern, final int groupBefore, final Pattern invalidMatchEnd, final String text, final List<int[]> spans) {
+	final Matcher matcher = pattern.matcher(text);
+	while (matcher.find()) {
+	    if (invalidMatchEnd == null || !invalidMatchEnd.matcher(text.substring(matcher.end())).find()) {
+		spans.add(new int[]{matcher.end(groupBefore), matcher.end()});
+	    }
+	}
+    }
+
+    @Test
+    public void resultShouldMatchPatterns() {
+	final String[] texts = {
+	    "",
+	    "@rotnroll666 #java $GOOG",
+	    "RT @foo: RT:@bar rt@baz",
+	    "@a/list-name-@b #a#b ##c $A$B $C.D $E_FG",
+	    "#foo://bar @foo://bar",
+	    "line\n@foo\n#bar\n$BAZ"
+	};
+	for (String text : texts) {
+	    Assert.assertEquals(text, findWithPatterns(text), find(text));
+	}
+    }
+
+    @Test
+    public void resultShouldMatchPatternsOnRandomInput() {
+	for (String in : RandomTexts.generate(4711, TOKENS, 20, 5_000)) {
+	    Assert.assertEquals("Different links for '" + in + "'", findWithPatterns(in), find(in));
+	}
+    }
+
+    @Test
+    public void anchorsShouldBeWrittenByKind() {
+	final StringBuilder html = new StringBuilder();
+	finder.reset("$GOOG @foo ＃bar");
+	while (finder.find()) {
+	    finder.writeAnchor(html);
+	    html.append('|');
+	}
+	Assert.assertEquals("<a href=\"https://twitter.com/search?q=%24GOOG\">$GOOG</a>|<a href=\"https://twitter.com/foo\">@foo</a>|<a href=\"https://twitter.com/hashtag/bar\">#bar</a>|", html.toString());
+    }
+}
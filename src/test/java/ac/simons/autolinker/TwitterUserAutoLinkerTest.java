@@ -35,8 +35,10 @@ public class TwitterUserAutoLinkerTest {
 	List<Node> result;
 	Element a;
 
-	result = autoLinker.createLinks(new TextNode("das ist ein test ohne urls"));
+	final TextNode textNodeWithoutLinks = new TextNode("das ist ein test ohne urls");
+	result = autoLinker.createLinks(textNodeWithoutLinks);
 	Assert.assertTrue(result.size() == 1);
+	Assert.assertSame(textNodeWithoutLinks, result.get(0));
 	Assert.assertTrue(result.get(0) instanceof TextNode);
 	Assert.assertEquals("das ist ein test ohne urls", ((TextNode) result.get(0)).getWholeText());
 
@@ -95,4 +97,26 @@ public class TwitterUserAutoLinkerTest {
 
     }
 
+
+    @Test
+    public void urlTemplateShouldBeUsed() {
+	final TwitterUserAutoLinker autoLinker = new TwitterUserAutoLinker("https://example.com/users/{username}?ref={username}&x=\"y\"")
+		.withRenderer(AnchorRenderer.defaults().withAttribute("rel", "nofollow"));
+	final AutoLinkService autoLinkService = new AutoLinkService(List.of(autoLinker));
+	final String expected = "hi <a href=\"https://example.com/users/rotnroll666?ref=rotnroll666&amp;x=&quot;y&quot;\" rel=\"nofollow\">@rotnroll666</a>";
+	Assert.assertEquals(expected, autoLinkService.addLinksToPlainText("hi @rotnroll666"));
+	Assert.assertEquals(expected, autoLinkService.newSession().addLinksToPlainText("hi @rotnroll666"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void urlTemplateWithoutUsernameShouldBeRejected() {
+	new TwitterUserAutoLinker("https://example.com/users/");
+    }
+
+    @Test
+    public void isCandidateShouldWork() {
+	final TwitterUserAutoLinker autoLinker = new TwitterUserAutoLinker();
+	Assert.assertFalse(autoLinker.isCandidate("das ist ein test ohne urls"));
+	Assert.assertTrue(autoLinker.isCandidate("＠rotnroll666"));
+    }
 }
@@ -29,13 +29,22 @@ public class UrlAutoLinkerTest {
 
     @Test
     public void createLinksShouldWork() {
-	final UrlAutoLinker autoLinker = new UrlAutoLinker(30);
+	createLinksShouldWork(new UrlAutoLinker(30));
+    }
+
+    @Test
+    public void createLinksWithScannerShouldWork() {
+	createLinksShouldWork(new UrlAutoLinker(30, UrlAutoLinker.Engine.SCANNER));
+    }
 
+    private void createLinksShouldWork(final UrlAutoLinker autoLinker) {
 	List<Node> result;
 	Element a;
 
-	result = autoLinker.createLinks(new TextNode("das ist ein test ohne urls"));
+	final TextNode textNodeWithoutLinks = new TextNode("das ist ein test ohne urls");
+	result = autoLinker.createLinks(textNodeWithoutLinks);
 	Assert.assertTrue(result.size() == 1);
+	Assert.assertSame(textNodeWithoutLinks, result.get(0));
 	Assert.assertTrue(result.get(0) instanceof TextNode);
 	Assert.assertEquals("das ist ein test ohne urls", ((TextNode) result.get(0)).getWholeText());
 
@@ -118,4 +127,15 @@ public class UrlAutoLinkerTest {
 	Assert.assertEquals("  ", ((TextNode) result.get(4)).getWholeText());
 
     }
+
+    @Test
+    public void isCandidateShouldWork() {
+	final UrlAutoLinker autoLinker = new UrlAutoLinker(30);
+	Assert.assertFalse(autoLinker.isCandidate("das ist ein test ohne urls"));
+	Assert.assertFalse(autoLinker.isCandidate("e.g. this is no url."));
+	Assert.assertFalse(autoLinker.isCandidate("x.com1 or x.xn-"));
+	Assert.assertTrue(autoLinker.isCandidate("twitter.com"));
+	Assert.assertTrue(autoLinker.isCandidate("http://はじめよう.みんな"));
+	Assert.assertTrue(autoLinker.isCandidate("http://foo.XN--p1ai"));
+    }
 }
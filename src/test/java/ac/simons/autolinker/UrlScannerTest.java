@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class UrlScannerTest {
+
+    private static final String[] TOKENS = {
+	"http://", "https://", "HTTP://", "www.", "foo", "bar", "a", "1", ".", "..", ".com", ".COM", ".co", ".tv", ".de", ".uk", ".jp", ".so",
+	".community", ".xn--p1ai", "xn--", "t.co", "/", "//", "(", ")", "?", "=", "&", "#", "-", "_", "@", "＠", ":", ":8080", " ", "!", ",",
+	"'", "~", "*", "$", "é", "ẞ", "はじめよう", ".みんな", "‪", "　", " ",
+	"😀", "\ud83d", "\n"
+    };
+
+    @Test
+    public void scannerShouldFindTheSameUrlsAsTheRegex() {
+	final String[] texts = {
+	    "http://example.com",
+	    "http://はじめよう.みんな",
+	    "http://はじめよう.香港",
+	    "http://はじめよう.الجزائر",
+	    "http://test.scot",
+	    "Try http://example.com/path**********************",
+	    "http://foo.org/bar/foo-bar-foo-bar.aspx!!!!!! Test",
+	    "twitter.com",
+	    "www.foo.co.jp",
+	    "www.foo.org.za",
+	    "http://t.co",
+	    "it.so",
+	    "www.xxxxxxx.baz",
+	    "t.co/blahblah",
+	    "http://twitt‪er.com",
+	    "http://twitt‮er.com",
+	    "das ist eine url ohne https://dailyfratze.de/app/tags/CoStarring/Anton#taggedPictures ohne protocoll",
+	    "  twitter.com ohne protocoll am anfang mit am ende https://dailyfratze.de?foo=bar  ",
+	    "https://en.wikipedia.org/wiki/Primer_(film) and /track/We_Up_(Album_Version_(Edited))/ http://foo.de/S(dfd346)/",
+	    "http://foo.com/a(b(c)d)e http://foo.com/a((b))c http://foo.com/a() http://foo.com/a(b",
+	    "x.com/bar.uk*(a)|(.org x.com/|(#x.com/)) x.com/a(b)*(c) x.com/(a)(b)(c)",
+	    "http://localhost.com:8080/foo?bar=baz&x=(y)!. http://foo.com:x http://foo.com? http://foo.com?!",
+	    "xhttp://foo.de www.foo_bar.foo-bar.com foo_bar.com -foo.com foo-.com",
+	    "http://été.fr/été @foo.com $foo.com #foo.com ＠foo.com foo.xn--p1ai",
+	    "mailto:foo@bar.com test.community test.comm x.com1 Foo.COM/BAR?A=B",
+	    "😀twitter.com 😀😀 http://😀.com"
+	};
+	for (String text : texts) {
+	    assertSameMatches(text);
+	}
+    }
+
+    @Test
+    public void scannerShouldFindTheSameUrlsAsTheRegexOnRandomInput() {
+	for (String text : RandomTexts.generate(4711, TOKENS, 12, 20_000)) {
+	    assertSameMatches(text);
+	}
+    }
+
+    @Test
+    public void scannerShouldHandleLongInput() {
+	final StringBuilder longPath = new StringBuilder("Check out http://example.com/");
+	final StringBuilder longDomain = new StringBuilder("cool");
+	final StringBuilder noTld = new StringBuilder();
+	for (int i = 0; i < 10_000; ++i) {
+	    longPath.append('a');
+	    longDomain.append(".cool");
+	    noTld.append("a-a_a.");
+	}
+	final List<String> matches = findAll(new UrlScanner(longPath));
+	Assert.assertEquals(1, matches.size());
+	Assert.assertTrue(matches.get(0).endsWith("aaaa"));
+
+	final UrlScanner scanner = new UrlScanner(longDomain);
+	Assert.assertTrue(scanner.find());
+	Assert.assertEquals(0, scanner.start());
+	Assert.assertEquals(longDomain.length(), scanner.end());
+
+	Assert.assertTrue(findAll(new UrlScanner(noTld)).isEmpty());
+    }
+
+    @Test
+    public void matchResultShouldWork() {
+	final UrlScanner scanner = new UrlScanner("see https://foo.com:8080/bar?baz=1");
+	try {
+	    scanner.start();
+	    Assert.fail();
+	} catch (IllegalStateException e) {
+	}
+	Assert.assertTrue(scanner.find());
+	Assert.assertEquals(8, scanner.groupCount());
+	Assert.assertEquals(3, scanner.start());
+	Assert.assertEquals(" https://foo.com:8080/bar?baz=1", scanner.group());
+	Assert.assertEquals("https://", scanner.group(Regex.VALID_URL_GROUP_PROTOCOL));
+	Assert.assertEquals("foo.com", scanner.group(Regex.VALID_URL_GROUP_DOMAIN));
+	Assert.assertEquals("8080", scanner.group(Regex.VALID_URL_GROUP_PORT));
+	Assert.assertEquals("/bar", scanner.group(Regex.VALID_URL_GROUP_PATH));
+	Assert.assertEquals("?baz=1", scanner.group(Regex.VALID_URL_GROUP_QUERY_STRING));
+	Assert.assertFalse(scanner.find());
+	try {
+	    scanner.group();
+	    Assert.fail();
+	} catch (IllegalStateException e) {
+	}
+    }
+
+    private static void assertSameMatches(final String text) {
+	final Matcher matcher = Regex.VALID_URL.matcher(text);
+	Assert.assertEquals("Different urls in '" + text + "'", findAll(matcher, matcher::find), findAll(new UrlScanner(text)));
+    }
+
+    private static List<String> findAll(final UrlScanner scanner) {
+	return findAll(scanner, scanner::find);
+    }
+
+    private static List<String> findAll(final MatchResult matchResult, final BooleanSupplier find) {
+	final List<String> rv = new ArrayList<>();
+	while (find.getAsBoolean()) {
+	    final StringBuilder match = new StringBuilder();
+	    for (int i = 0; i <= matchResult.groupCount(); ++i) {
+		match.append(i).append(':').append(matchResult.start(i)).append('-').append(matchResult.end(i)).append(' ');
+	    }
+	    rv.add(match.append(matchResult.group(Regex.VALID_URL_GROUP_URL)).toString());
+	}
+	return rv;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Michael J. Simons
+ */
+public class Utf8HtmlLinkerTest {
+
+    private static final String[] TOKENS = {
+	"<p>", "</p>", "<a href=\"x\">", "</a>", "<A>", "</A >", "<a/>", "<script>", "</script>", "</SCRIPT >", "</scripts>", "</SCRIPTS>", "</Scr", "<style type='a>b'>", "</style>",
+	"<!--", "-->", "<!DOCTYPE html>", "<?x?>", "<img alt=\"> example.com\"/>", "<b　class=x>", "<scrİpt>", "</scrİpt>", "<é>",
+	"&amp;", "&#64;", "&lt;", "<", ">", "\"", "'", "=", " ", "\n", "é", "😀", "ÿ", "　",
+	"example.com", "https://michael-simons.eu", "@rotnroll666", "＠rotnroll666", "michael@simons.ac", "foo", "."
+    };
+
+    private final AutoLinkService autoLinkService = new AutoLinkService(List.of(
+	    new EmailAddressAutoLinker(false, false),
+	    new TwitterUserAutoLinker(),
+	    new UrlAutoLinker(30)
+    ));
+
+    private String linkStream(final String html) throws IOException {
+	final StringWriter rv = new StringWriter();
+	autoLinkService.addLinksToStream(new StringReader(html), rv);
+	return rv.toString();
+    }
+
+    private String linkUtf8(final String html) {
+	return new String(autoLinkService.addLinksToUtf8(html.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void resultShouldMatchStreamLinker() throws IOException {
+	final String[] htmls = {
+	    "",
+	    "nothing to see here",
+	    "<p>see example.com</p>",
+	    "@rotnroll666 &lt;3 <b>x</b>",
+	    "a < b &amp; c",
+	    "schreib an michael&#64;simons.ac",
+	    "<a href=\"http://example.com\">example.com <b>www.example.com</b></a> x",
+	    "<!-- example.com --> <!---->x<!-- a -- b --->",
+	    "<script>var x = '<a>'; // example.com</script> example.com",
+	    "<STYLE type=\"text/css\">/* example.com </styles> */</style > example.com",
+	    "<img alt=\"> example.com\" src='a>b'/> example.com",
+	    "<unclosed example.com",
+	    "Grüße an ＠rotnroll666 😀 über https://michael-simons.eu"
+	};
+	for (String html : htmls) {
+	    Assert.assertEquals(html, linkStream(html), linkUtf8(html));
+	}
+    }
+
+    @Test
+    public void resultShouldMatchStreamLinkerOnRandomInput() throws IOException {
+	for (String in : RandomTexts.generate(4711, TOKENS, 20, 5_000)) {
+	    Assert.assertEquals("Different html for '" + in + "'", linkStream(in), linkUtf8(in));
+	}
+    }
+
+    @Test
+    public void linkFreeRegionsShouldBeCopiedAsIs() {
+	final byte[] malformed = {'<', 'p', ' ', 't', '=', (byte) 0xc3, '>', (byte) 0xff, (byte) 0xfe, ' ', 'x', '<', '/', 'p', '>'};
+	Assert.assertArrayEquals(malformed, autoLinkService.addLinksToUtf8(malformed));
+
+	final byte[] withLink = new byte[malformed.length + 13];
+	System.arraycopy(malformed, 0, withLink, 0, malformed.length);
+	System.arraycopy(" example.com ".getBytes(StandardCharsets.US_ASCII), 0, withLink, malformed.length, 13);
+	final byte[] linked = autoLinkService.addLinksToUtf8(withLink);
+	Assert.assertArrayEquals(malformed, Arrays.copyOf(linked, malformed.length));
+	Assert.assertEquals(" <a href=\"http://example.com\" title=\"http://example.com\">example.com</a> ", new String(linked, malformed.length, linked.length - malformed.length, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void targetShouldBeGrownIfNecessary() {
+	final ByteBuffer html = ByteBuffer.wrap("xx<p>Hallo @rotnroll666</p>".getBytes(StandardCharsets.UTF_8));
+	html.position(2);
+	final ByteBuffer target = ByteBuffer.allocateDirect(4);
+	target.put((byte) '>');
+
+	final ByteBuffer rv = autoLinkService.addLinksToUtf8(html, target);
+	Assert.assertEquals(html.limit(), html.position());
+	Assert.assertNotSame(target, rv);
+	Assert.assertTrue(rv.isDirect());
+	rv.flip();
+	Assert.assertEquals(">" + linkUtf8("<p>Hallo @rotnroll666</p>"), StandardCharsets.UTF_8.decode(rv).toString());
+
+	final ByteBuffer largeEnough = ByteBuffer.allocate(128);
+	Assert.assertSame(largeEnough, autoLinkService.addLinksToUtf8("<p>Hallo @rotnroll666</p>".getBytes(StandardCharsets.UTF_8), largeEnough));
+	Assert.assertEquals(rv.limit() - 1, largeEnough.position());
+    }
+}
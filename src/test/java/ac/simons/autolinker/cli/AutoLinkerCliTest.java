@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael J. Simons
+ */
+public class AutoLinkerCliTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(final String... args) throws InterruptedException {
+	return AutoLinkerCli.run(args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    @Test
+    public void filesShouldBeLinkedAndReported() throws IOException, InterruptedException {
+	final Path input = temporaryFolder.newFolder("input").toPath();
+	Files.write(input.resolve("index.html"), "<p>@rotnroll666 on example.com</p>".getBytes(StandardCharsets.UTF_8));
+	final Path output = temporaryFolder.getRoot().toPath().resolve("output");
+
+	Assert.assertEquals(AutoLinkerCli.EXIT_OK, run("--output", output.toString(), "--threads", "1", input.toString()));
+	Assert.assertEquals("<p><a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a> on <a href=\"http://example.com\" title=\"http://example.com\">example.com</a></p>",
+		new String(Files.readAllBytes(output.resolve("index.html")), StandardCharsets.UTF_8));
+	final String report = out.toString("UTF-8");
+	Assert.assertTrue(report, report.startsWith("Linked 1 files (0 failed), read 34 bytes"));
+	Assert.assertTrue(report, report.contains("files/s"));
+	Assert.assertTrue(report, report.contains("MB/s"));
+	Assert.assertTrue(report, report.contains("EmailAddressAutoLinker: 0 links"));
+	Assert.assertTrue(report, report.contains("TwitterUserAutoLinker: 1 links"));
+	Assert.assertTrue(report, report.contains("UrlAutoLinker: 1 links"));
+    }
+
+    @Test
+    public void failuresShouldBeReported() throws IOException, InterruptedException {
+	Assert.assertEquals(AutoLinkerCli.EXIT_FAILURES, run(temporaryFolder.getRoot().toPath().resolve("missing.html").toString()));
+	Assert.assertTrue(err.toString("UTF-8").startsWith("Could not read the input"));
+    }
+
+    @Test
+    public void invalidArgumentsShouldBeRejected() throws IOException, InterruptedException {
+	Assert.assertEquals(AutoLinkerCli.EXIT_USAGE, run());
+	Assert.assertTrue(err.toString("UTF-8").startsWith("At least one file or directory is required"));
+	err.reset();
+	Assert.assertEquals(AutoLinkerCli.EXIT_USAGE, run("--threads", "0", "x.html"));
+	Assert.assertTrue(err.toString("UTF-8").startsWith("At least one thread is required"));
+	err.reset();
+	Assert.assertEquals(AutoLinkerCli.EXIT_USAGE, run("--foo", "bar", "x.html"));
+	Assert.assertTrue(err.toString("UTF-8").contains("Usage: autolinker"));
+	err.reset();
+	Assert.assertEquals(AutoLinkerCli.EXIT_USAGE, run("x.html", "--suffix"));
+	Assert.assertTrue(err.toString("UTF-8").startsWith("Missing value of --suffix"));
+    }
+}
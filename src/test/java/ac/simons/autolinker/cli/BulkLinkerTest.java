@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 michael-simons.eu.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ac.simons.autolinker.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import ac.simons.autolinker.AutoLinkService;
+import ac.simons.autolinker.AutoLinker;
+import ac.simons.autolinker.TwitterUserAutoLinker;
+import ac.simons.autolinker.UrlAutoLinker;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael J. Simons
+ */
+public class BulkLinkerTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AutoLinker twitterUserAutoLinker = new TwitterUserAutoLinker();
+
+    private final AutoLinker urlAutoLinker = new UrlAutoLinker(30);
+
+    private final AutoLinkService autoLinkService = new AutoLinkService(List.of(twitterUserAutoLinker, urlAutoLinker));
+
+    private Path input;
+
+    @Before
+    public void createInput() throws IOException {
+	input = temporaryFolder.newFolder("input").toPath();
+	Files.createDirectories(input.resolve("a/b"));
+	write(input.resolve("index.html"), "<p>Hallo @rotnroll666</p>");
+	write(input.resolve("a/post.htm"), "<p>Siehe <a href=\"x\">example.com</a> und example.com</p>");
+	write(input.resolve("a/b/notes.txt"), "a < b, @rotnroll666");
+	write(input.resolve("a/b/empty.html"), "");
+	write(input.resolve("a/b/ignored.md"), "example.com");
+    }
+
+    private static void write(final Path file, final String content) throws IOException {
+	Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(final Path file) throws IOException {
+	return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private List<String> files(final Path directory) throws IOException {
+	try (Stream<Path> paths = Files.walk(directory)) {
+	    return paths.filter(Files::isRegularFile).map(p -> directory.relativize(p).toString().replace('\\', '/')).sorted().collect(Collectors.toList());
+	}
+    }
+
+    @Test
+    public void filesShouldBeLinkedNextToTheInput() throws IOException, InterruptedException {
+	final BulkLinker bulkLinker = new BulkLinker(autoLinkService).withThreads(2);
+	BulkLinker.Report report = bulkLinker.link(List.of(input));
+	Assert.assertEquals(4, report.getFiles());
+	Assert.assertTrue(report.getFailures().isEmpty());
+	Assert.assertEquals(List.of(
+		"a/b/empty.html", "a/b/empty.linked.html", "a/b/ignored.md", "a/b/notes.linked.txt", "a/b/notes.txt",
+		"a/post.htm", "a/post.linked.htm", "index.html", "index.linked.html"), files(input));
+	Assert.assertEquals(autoLinkService.addLinksToPlainText("a < b, @rotnroll666"), read(input.resolve("a/b/notes.linked.txt")));
+	Assert.assertEquals(new String(autoLinkService.addLinksToUtf8(Files.readAllBytes(input.resolve("a/post.htm"))), StandardCharsets.UTF_8), read(input.resolve("a/post.linked.htm")));
+	Assert.assertEquals("", read(input.resolve("a/b/empty.linked.html")));
+
+	final Map<AutoLinker, Long> matches = report.getMatches();
+	Assert.assertEquals(List.of(twitterUserAutoLinker, urlAutoLinker), List.copyOf(matches.keySet()));
+	Assert.assertEquals(Long.valueOf(2), matches.get(twitterUserAutoLinker));
+	Assert.assertEquals(Long.valueOf(1), matches.get(urlAutoLinker));
+	Assert.assertTrue(report.getBytesWritten() > report.getBytesRead());
+	Assert.assertTrue(report.getFilesPerSecond() > 0);
+
+	// Results are not linked again
+	report = bulkLinker.link(List.of(input));
+	Assert.assertEquals(4, report.getFiles());
+	Assert.assertEquals(9, files(input).size());
+    }
+
+    @Test
+    public void filesShouldBeLinkedIntoAnOutputTree() throws IOException, InterruptedException {
+	final Path output = input.resolve("out");
+	final BulkLinker.Report report = new BulkLinker(autoLinkService)
+		.withOutputDirectory(output)
+		.withExtensions(List.of("HTML"))
+		.link(List.of(input, input.resolve("a/b/notes.txt")));
+	Assert.assertEquals(3, report.getFiles());
+	Assert.assertEquals(List.of("a/b/empty.html", "index.html", "notes.txt"), files(output));
+	Assert.assertEquals("<p>Hallo <a href=\"https://twitter.com/rotnroll666\">@rotnroll666</a></p>", read(output.resolve("index.html")));
+
+	// The output directory is not linked again
+	Assert.assertEquals(3, new BulkLinker(autoLinkService).withOutputDirectory(output).withExtensions(List.of("html")).link(List.of(input, input.resolve("a/b/notes.txt"))).getFiles());
+    }
+
+    @Test
+    public void failuresShouldBeReported() throws IOException, InterruptedException {
+	final BulkLinker.Report report = new BulkLinker(autoLinkService)
+		.withOutputDirectory(input)
+		.link(List.of(input.resolve("index.html"), input.resolve("a/post.htm")));
+	Assert.assertEquals(1, report.getFiles());
+	Assert.assertEquals(1, report.getFailures().size());
+	Assert.assertTrue(report.getFailures().get(input.resolve("index.html")).getMessage().endsWith("would be overwritten"));
+	Assert.assertEquals("<p>Hallo @rotnroll666</p>", read(input.resolve("index.html")));
+	Assert.assertTrue(Files.exists(input.resolve("post.htm")));
+    }
+
+    @Test
+    public void errorsShouldBeReported() throws IOException, InterruptedException {
+	final AutoLinker failingAutoLinker = textNode -> {
+	    if (textNode.getWholeText().contains("@rotnroll666")) {
+		throw new AssertionError("Failed on @rotnroll666");
+	    }
+	    return List.of(textNode);
+	};
+	final BulkLinker.Report report = new BulkLinker(new AutoLinkService(List.of(failingAutoLinker))).link(List.of(input));
+	Assert.assertEquals(2, report.getFiles());
+	Assert.assertEquals(2, report.getFailures().size());
+	Assert.assertEquals("Failed on @rotnroll666", report.getFailures().get(input.resolve("index.html")).getMessage());
+	Assert.assertTrue(report.getFailures().get(input.resolve("a/b/notes.txt")) instanceof AssertionError);
+	Assert.assertTrue(Files.exists(input.resolve("a/post.linked.htm")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void atLeastOneThreadIsRequired() {
+	new BulkLinker(autoLinkService).withThreads(0);
+    }
+}